@@ -2,6 +2,28 @@ plugins {
     alias(libs.plugins.android.application)
 }
 
+// models.pack: version binaria de los modelos de assets, generada con la herramienta de host
+// tools/host (modelpack_convert). Se activa con -PmodelpackTool=/ruta/a/modelpack_convert;
+// sin ella la app sigue cargando los XML.
+val modelPackDir = file("build/generated/modelpack")
+val modelpackTool = providers.gradleProperty("modelpackTool")
+val packedModels = listOf(
+    "haarcascade_frontalcatface.xml",
+    "haarcascade_eye.xml",
+    "haarcascade_mcs_nose.xml",
+    "haarcascade_mcs_mouth.xml",
+    "fashion_mnist_mlp.xml"
+).map { file("src/main/assets/$it") }
+
+val packModels = tasks.register<Exec>("packModels") {
+    onlyIf { modelpackTool.isPresent }
+    inputs.files(packedModels)
+    outputs.dir(modelPackDir)
+    doFirst { modelPackDir.mkdirs() }
+    executable = modelpackTool.getOrElse("modelpack_convert")
+    args(listOf(File(modelPackDir, "models.pack").absolutePath) + packedModels.map { it.absolutePath })
+}
+
 android {
     namespace = "com.example.projectparteii"
     compileSdk = 34
@@ -38,6 +60,15 @@ android {
     buildFeatures {
         viewBinding = true
     }
+    sourceSets {
+        getByName("main") {
+            assets.srcDir(modelPackDir)
+        }
+    }
+}
+
+tasks.named("preBuild") {
+    dependsOn(packModels)
 }
 
 dependencies {
@@ -45,6 +76,10 @@ dependencies {
     implementation(libs.appcompat)
     implementation(libs.material)
     implementation(libs.constraintlayout)
+    implementation(libs.camera.core)
+    implementation(libs.camera.camera2)
+    implementation(libs.camera.lifecycle)
+    implementation(libs.camera.view)
     testImplementation(libs.junit)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
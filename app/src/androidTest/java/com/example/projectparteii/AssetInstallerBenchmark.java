@@ -0,0 +1,93 @@
+package com.example.projectparteii;
+
+import android.content.Context;
+import android.content.res.AssetManager;
+import android.util.Log;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tiempos de arranque: la copia sincrona anterior (buffer de 1 KB en cada onCreate) contra
+ * AssetInstaller en frio y con el manifiesto ya escrito. Los resultados salen en logcat con
+ * la etiqueta AssetInstallerBenchmark.
+ */
+@RunWith(AndroidJUnit4.class)
+public class AssetInstallerBenchmark {
+    private static final String TAG = "AssetInstallerBenchmark";
+    private static final String[] ASSETS = {"haarcascade_eye.xml", "haarcascade_frontalcatface.xml", "haarcascade_mcs_nose.xml", "haarcascade_mcs_mouth.xml", "fashion_mnist_mlp.xml"};
+    private static final int RUNS = 5;
+
+    @Test
+    public void installerVersusLegacyCopy() throws IOException {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        AssetInstaller installer = new AssetInstaller(context, ASSETS, new String[]{"models.pack"});
+
+        long legacy = 0;
+        long cold = 0;
+        long warm = 0;
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            legacyCopy(context);
+            legacy += System.nanoTime() - start;
+
+            clearInstalledAssets(context);
+            start = System.nanoTime();
+            assertTrue(installer.install());
+            cold += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            assertTrue(installer.install());
+            warm += System.nanoTime() - start;
+        }
+        Log.i(TAG, String.format("legacy copy %.1f ms, installer cold %.1f ms, installer warm %.1f ms",
+                legacy / 1e6 / RUNS, cold / 1e6 / RUNS, warm / 1e6 / RUNS));
+        assertTrue(warm < legacy);
+    }
+
+    @Test
+    public void activityStartup() {
+        long total = 0;
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            try (ActivityScenario<MainActivity> scenario = ActivityScenario.launch(MainActivity.class)) {
+                assertEquals(Lifecycle.State.RESUMED, scenario.getState());
+                total += System.nanoTime() - start;
+            }
+        }
+        Log.i(TAG, String.format("MainActivity launch to RESUMED %.1f ms", total / 1e6 / RUNS));
+    }
+
+    private static void legacyCopy(Context context) throws IOException {
+        AssetManager assetManager = context.getAssets();
+        for (String filename : ASSETS) {
+            File outFile = new File(context.getFilesDir(), filename);
+            try (InputStream in = assetManager.open(filename); FileOutputStream out = new FileOutputStream(outFile)) {
+                byte[] buffer = new byte[1024];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            }
+        }
+    }
+
+    private static void clearInstalledAssets(Context context) {
+        new File(context.getFilesDir(), "assets.manifest").delete();
+        for (String filename : ASSETS) {
+            new File(context.getFilesDir(), filename).delete();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.projectparteii;
+
+import android.os.Debug;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Lado Java de los resultados de deteccion con 100 rostros sinteticos (cada uno con dos ojos,
+ * nariz y boca): leer los rectangulos del texto que devolvia detectFaces contra leerlos de
+ * DetectionResult. Tiempos y objetos reservados por iteracion en logcat con la etiqueta
+ * DetectionResultBenchmark. El lado nativo se mide con tools/host/detection_result_bench.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DetectionResultBenchmark {
+    private static final String TAG = "DetectionResultBenchmark";
+    private static final int FACES = 100;
+    private static final int RUNS = 200;
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void packedVersusText() {
+        int[] records = syntheticRecords(FACES);
+        String text = DetectionResult.wrap(records).toText();
+
+        //calentamiento
+        long expected = sumFromText(text);
+        assertEquals(expected, sumFromPacked(records));
+
+        Debug.startAllocCounting();
+        try {
+            Debug.resetThreadAllocCount();
+            long start = System.nanoTime();
+            for (int i = 0; i < RUNS; i++) {
+                assertEquals(expected, sumFromText(text));
+            }
+            long textNanos = System.nanoTime() - start;
+            int textAllocs = Debug.getThreadAllocCount();
+
+            Debug.resetThreadAllocCount();
+            start = System.nanoTime();
+            for (int i = 0; i < RUNS; i++) {
+                assertEquals(expected, sumFromPacked(records));
+            }
+            long packedNanos = System.nanoTime() - start;
+            int packedAllocs = Debug.getThreadAllocCount();
+
+            Debug.resetThreadAllocCount();
+            start = System.nanoTime();
+            for (int i = 0; i < RUNS; i++) {
+                DetectionResult.wrap(records).toJson();
+            }
+            long jsonNanos = System.nanoTime() - start;
+            int jsonAllocs = Debug.getThreadAllocCount();
+
+            Log.i(TAG, String.format("%d detections: text parse %.1f us / %d allocs, packed read %.1f us / %d allocs, json on demand %.1f us / %d allocs",
+                    records.length / DetectionResult.STRIDE,
+                    textNanos / 1e3 / RUNS, textAllocs / RUNS,
+                    packedNanos / 1e3 / RUNS, packedAllocs / RUNS,
+                    jsonNanos / 1e3 / RUNS, jsonAllocs / RUNS));
+            assertTrue(packedAllocs < textAllocs);
+        } finally {
+            Debug.stopAllocCounting();
+        }
+    }
+
+    private static int[] syntheticRecords(int faces) {
+        int[] records = new int[faces * 5 * DetectionResult.STRIDE];
+        int r = 0;
+        for (int i = 0; i < faces; i++) {
+            int x = (i * 37) % 3000;
+            int y = (i * 53) % 3000;
+            int[][] rects = {{0, x, y, 200, 220, -1}, {1, x + 30, y + 50, 40, 25, i}, {1, x + 120, y + 50, 40, 25, i},
+                    {2, x + 80, y + 100, 40, 50, i}, {3, x + 60, y + 160, 80, 35, i}};
+            for (int[] rect : rects) {
+                System.arraycopy(rect, 0, records, r, rect.length);
+                records[r + 6] = -1;
+                r += DetectionResult.STRIDE;
+            }
+        }
+        return records;
+    }
+
+    // Lo que tenia que hacer quien recibia el texto para obtener los numeros
+    private static long sumFromText(String text) {
+        long sum = 0;
+        for (String line : text.split("\n")) {
+            String[] values = line.substring(line.indexOf(':') + 2).split(", ");
+            for (String value : values) {
+                sum += Integer.parseInt(value);
+            }
+        }
+        return sum;
+    }
+
+    private static long sumFromPacked(int[] records) {
+        DetectionResult result = DetectionResult.wrap(records);
+        long sum = 0;
+        for (int i = 0; i < result.size(); i++) {
+            sum += result.x(i) + result.y(i) + result.width(i) + result.height(i);
+        }
+        return sum;
+    }
+}
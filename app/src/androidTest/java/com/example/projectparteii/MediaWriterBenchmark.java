@@ -0,0 +1,70 @@
+package com.example.projectparteii;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tiempo de codificacion y tamano de cada formato de MediaWriter sobre una imagen sintetica
+ * de 1024x768 con ruido y rectangulos como los de la deteccion. Resultados en logcat con la
+ * etiqueta MediaWriterBenchmark.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MediaWriterBenchmark {
+    private static final String TAG = "MediaWriterBenchmark";
+    private static final int RUNS = 5;
+
+    @Test
+    public void encodeFormats() {
+        Bitmap bitmap = syntheticImage(1024, 768);
+        int[][] settings = {{0, 100}, {1, 90}, {1, 75}, {2, 90}, {2, 75}, {3, 100}};
+        MediaWriter.Format[] formats = MediaWriter.Format.values();
+        for (int[] setting : settings) {
+            MediaWriter.Format format = formats[setting[0]];
+            int quality = setting[1];
+            //calentamiento
+            MediaWriter.encode(bitmap, format, quality);
+            long totalMillis = 0;
+            int bytes = 0;
+            for (int i = 0; i < RUNS; i++) {
+                MediaWriter.Encoded encoded = MediaWriter.encode(bitmap, format, quality);
+                totalMillis += encoded.encodeMillis;
+                bytes = encoded.data.length;
+            }
+            assertTrue(bytes > 0);
+            Log.i(TAG, String.format("%s q%d: %d bytes, %.1f ms", format, quality, bytes, (double) totalMillis / RUNS));
+        }
+        bitmap.recycle();
+    }
+
+    private static Bitmap syntheticImage(int width, int height) {
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        Random random = new Random(42);
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int base = 96 + (x + y) / 16;
+                int noise = random.nextInt(24);
+                row[x] = Color.rgb(Math.min(255, base + noise), base, Math.max(0, base - noise));
+            }
+            bitmap.setPixels(row, 0, width, 0, y, width, 1);
+        }
+        Paint paint = new Paint();
+        paint.setStyle(Paint.Style.STROKE);
+        paint.setStrokeWidth(3);
+        paint.setColor(Color.RED);
+        new Canvas(bitmap).drawRect(300, 200, 600, 550, paint);
+        return bitmap;
+    }
+}
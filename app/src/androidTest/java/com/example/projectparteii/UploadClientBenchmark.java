@@ -0,0 +1,228 @@
+package com.example.projectparteii;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Envio de las tres partes de /recepcion1: el camino anterior (archivos temporales y el cuerpo
+ * completo en memoria) contra UploadClient, que transmite por trozos sin tocar el disco.
+ * Ambos envian a un servidor local que solo lee y descarta. Resultados en logcat con la
+ * etiqueta UploadClientBenchmark.
+ */
+@RunWith(AndroidJUnit4.class)
+public class UploadClientBenchmark {
+    private static final String TAG = "UploadClientBenchmark";
+    private static final int RUNS = 5;
+
+    @Test
+    public void streamingVersusTempFiles() throws IOException {
+        byte[] original = randomBytes(2 * 1024 * 1024, 1);
+        byte[] processed = randomBytes(2 * 1024 * 1024, 2);
+        byte[] data = "Face: 10, 20, 100, 120\n".getBytes(StandardCharsets.UTF_8);
+
+        try (Sink sink = new Sink()) {
+            String baseUrl = "http://127.0.0.1:" + sink.port();
+            UploadClient client = new UploadClient(baseUrl);
+            long legacyMs = 0;
+            long streamingMs = 0;
+            long diskBytes = 0;
+            long sent = 0;
+            for (int run = 0; run < RUNS; run++) {
+                long start = System.nanoTime();
+                File originalFile = File.createTempFile("temp_original_image", ".png");
+                File processedFile = File.createTempFile("temp_processed_image", ".png");
+                try {
+                    writeFile(originalFile, original);
+                    writeFile(processedFile, processed);
+                    diskBytes = originalFile.length() + processedFile.length();
+                    legacyPost(baseUrl + "/recepcion1original", readFile(originalFile));
+                    legacyPost(baseUrl + "/recepcion1deteccion", readFile(processedFile));
+                    legacyPost(baseUrl + "/recepcion1datos", data);
+                } finally {
+                    originalFile.delete();
+                    processedFile.delete();
+                }
+                legacyMs += (System.nanoTime() - start) / 1000000;
+
+                start = System.nanoTime();
+                sent = client.post("/recepcion1original", UploadClient.bytes(original, "image/png")).bytesSent
+                        + client.post("/recepcion1deteccion", UploadClient.bytes(processed, "image/png")).bytesSent
+                        + client.post("/recepcion1datos", UploadClient.bytes(data, "text/plain; charset=utf-8")).bytesSent;
+                streamingMs += (System.nanoTime() - start) / 1000000;
+            }
+            assertEquals(original.length + processed.length + data.length, sent);
+            Log.i(TAG, String.format(Locale.US, "temp files: %d bytes to disk, %.1f ms; streaming: 0 bytes to disk, %.1f ms",
+                    diskBytes, (double) legacyMs / RUNS, (double) streamingMs / RUNS));
+        }
+    }
+
+    //como la subida anterior: el archivo completo en memoria y una conexion por parte
+    private static void legacyPost(String url, byte[] body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body);
+        }
+        assertEquals(200, connection.getResponseCode());
+        connection.disconnect();
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream((int) file.length());
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private static void writeFile(File file, byte[] data) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(data);
+        }
+    }
+
+    private static byte[] randomBytes(int size, int seed) {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    /**
+     * Servidor HTTP minimo que lee cada peticion (Content-Length o por trozos), la descarta y
+     * responde 200, manteniendo la conexion abierta.
+     */
+    private static final class Sink implements AutoCloseable {
+        private final ServerSocket server = new ServerSocket(0, 8, InetAddress.getByName("127.0.0.1"));
+        private final ExecutorService connections = Executors.newCachedThreadPool();
+
+        Sink() throws IOException {
+            connections.execute(new Runnable() {
+                @Override
+                public void run() {
+                    accept();
+                }
+            });
+        }
+
+        int port() {
+            return server.getLocalPort();
+        }
+
+        private void accept() {
+            while (!server.isClosed()) {
+                try {
+                    final Socket socket = server.accept();
+                    connections.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            serve(socket);
+                        }
+                    });
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        private static void serve(Socket socket) {
+            try (Socket s = socket) {
+                InputStream in = new BufferedInputStream(s.getInputStream());
+                OutputStream out = s.getOutputStream();
+                while (true) {
+                    long contentLength = 0;
+                    boolean chunked = false;
+                    String line = readLine(in);
+                    if (line == null) {
+                        return;
+                    }
+                    while (!(line = readLine(in)).isEmpty()) {
+                        String header = line.toLowerCase(Locale.US);
+                        if (header.startsWith("content-length:")) {
+                            contentLength = Long.parseLong(header.substring(15).trim());
+                        } else if (header.startsWith("transfer-encoding:") && header.contains("chunked")) {
+                            chunked = true;
+                        }
+                    }
+                    if (chunked) {
+                        long size;
+                        while ((size = Long.parseLong(readLine(in).split(";")[0].trim(), 16)) > 0) {
+                            skip(in, size);
+                            readLine(in);
+                        }
+                        readLine(in);
+                    } else {
+                        skip(in, contentLength);
+                    }
+                    out.write("HTTP/1.1 200 OK\r\nContent-Length: 0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                    out.flush();
+                }
+            } catch (IOException | RuntimeException e) {
+                // el cliente cerro la conexion
+            }
+        }
+
+        //linea sin el \r\n final, o null al terminar la conexion
+        private static String readLine(InputStream in) throws IOException {
+            StringBuilder line = new StringBuilder();
+            int c;
+            while ((c = in.read()) != -1) {
+                if (c == '\n') {
+                    int end = line.length();
+                    return end > 0 && line.charAt(end - 1) == '\r' ? line.substring(0, end - 1) : line.toString();
+                }
+                line.append((char) c);
+            }
+            if (line.length() == 0) {
+                return null;
+            }
+            throw new IOException("Truncated line");
+        }
+
+        private static void skip(InputStream in, long count) throws IOException {
+            byte[] buffer = new byte[8192];
+            while (count > 0) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, count));
+                if (read == -1) {
+                    throw new IOException("Truncated body");
+                }
+                count -= read;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            server.close();
+            connections.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+#ifndef PROJECTPARTEII_BITMAP_VIEW_H
+#define PROJECTPARTEII_BITMAP_VIEW_H
+
+#include <jni.h>
+#include <android/bitmap.h>
+#include <opencv2/core.hpp>
+
+// Pixeles de un Bitmap bloqueados mientras el objeto existe. mat() es una vista directa
+// (sin copia) sobre la memoria del Bitmap: lo que se dibuje ahi aparece en el Bitmap.
+// Solo admite RGBA_8888; para otros formatos valid() devuelve false y se usa bitmapToMat.
+class BitmapView {
+public:
+    BitmapView(JNIEnv *env, jobject bitmap) : env(env), bitmap(bitmap), pixels(nullptr) {
+        AndroidBitmapInfo info;
+        if (AndroidBitmap_getInfo(env, bitmap, &info) < 0 || info.format != ANDROID_BITMAP_FORMAT_RGBA_8888) {
+            return;
+        }
+        if (AndroidBitmap_lockPixels(env, bitmap, &pixels) < 0 || pixels == nullptr) {
+            pixels = nullptr;
+            return;
+        }
+        view = cv::Mat((int) info.height, (int) info.width, CV_8UC4, pixels, info.stride);
+    }
+
+    ~BitmapView() {
+        if (pixels != nullptr) {
+            AndroidBitmap_unlockPixels(env, bitmap);
+        }
+    }
+
+    BitmapView(const BitmapView &) = delete;
+    BitmapView &operator=(const BitmapView &) = delete;
+
+    bool valid() const { return pixels != nullptr; }
+
+    cv::Mat &mat() { return view; }
+
+private:
+    JNIEnv *env;
+    jobject bitmap;
+    void *pixels;
+    cv::Mat view;
+};
+
+#endif //PROJECTPARTEII_BITMAP_VIEW_H
@@ -0,0 +1,144 @@
+#include "cascade_registry.h"
+#include "model_pack.h"
+
+#define LOG_TAG "CascadeRegistry"
+#include "native_log.h"
+
+using namespace cv;
+using namespace std;
+
+CascadeRegistry &CascadeRegistry::instance() {
+    static CascadeRegistry registry;
+    return registry;
+}
+
+unique_ptr<CascadeClassifier> CascadeRegistry::loadClassifier(const string &path) {
+    unique_ptr<CascadeClassifier> classifier(new CascadeClassifier());
+    // models.pack si existe, si no el XML
+    shared_ptr<ModelPack> pack = ModelPack::openBeside(path);
+    if (pack && pack->loadCascade(modelName(path), *classifier)) {
+        return classifier;
+    }
+    if (!classifier->load(path)) {
+        LOGE("Error loading cascade: %s", path.c_str());
+        return nullptr;
+    }
+    return classifier;
+}
+
+shared_ptr<CascadeRegistry::Entry> CascadeRegistry::entryFor(const string &path) {
+    lock_guard<std::mutex> lock(mutex);
+    shared_ptr<Entry> &entry = entries[path];
+    if (!entry) {
+        entry = make_shared<Entry>();
+    }
+    return entry;
+}
+
+bool CascadeRegistry::load(const string &path, int poolSize) {
+    return acquire(path, poolSize).valid();
+}
+
+CascadeRegistry::Lease CascadeRegistry::acquire(const string &path, int poolSize) {
+    shared_ptr<Entry> entry = entryFor(path);
+    unique_lock<std::mutex> lock(entry->mutex);
+    while (entry->idle.empty()) {
+        if (entry->instances > 0 || entry->loading) {
+            // Pool ya creado (o creandose en otro hilo): se espera una instancia libre
+            entry->available.wait(lock);
+            continue;
+        }
+
+        // Primera vez: se carga el pool completo fuera del candado
+        entry->loading = true;
+        int generation = entry->generation;
+        int size = max(poolSize, entry->poolSize);
+        lock.unlock();
+        vector<unique_ptr<CascadeClassifier>> loaded;
+        for (int i = 0; i < size; i++) {
+            unique_ptr<CascadeClassifier> classifier = loadClassifier(path);
+            if (!classifier) {
+                loaded.clear();
+                break;
+            }
+            loaded.push_back(std::move(classifier));
+        }
+        lock.lock();
+        entry->loading = false;
+        entry->available.notify_all();
+        if (loaded.empty()) {
+            return Lease();
+        }
+        // Si hubo un release() mientras se cargaba, este pool ya no vale
+        if (generation == entry->generation) {
+            entry->instances = (int) loaded.size();
+            entry->poolSize = entry->instances;
+            for (auto &classifier : loaded) {
+                entry->idle.push_back(std::move(classifier));
+            }
+            LOGI("Cascade loaded: %s (%d instances)", path.c_str(), entry->instances);
+        }
+    }
+
+    Lease lease;
+    lease.classifier = std::move(entry->idle.back());
+    entry->idle.pop_back();
+    lease.entry = entry;
+    lease.generation = entry->generation;
+    return lease;
+}
+
+void CascadeRegistry::release() {
+    lock_guard<std::mutex> lock(mutex);
+    for (auto &it : entries) {
+        lock_guard<std::mutex> entryLock(it.second->mutex);
+        it.second->idle.clear();
+        it.second->instances = 0;
+        it.second->generation++;
+        // Quien espera una instancia vuelve a cargar el pool
+        it.second->available.notify_all();
+    }
+    LOGI("Cascades released");
+}
+
+bool CascadeRegistry::reload() {
+    vector<string> paths;
+    {
+        lock_guard<std::mutex> lock(mutex);
+        for (auto &it : entries) {
+            paths.push_back(it.first);
+        }
+    }
+    bool ok = true;
+    for (const string &path : paths) {
+        ok = load(path) && ok;
+    }
+    return ok;
+}
+
+CascadeRegistry::Lease &CascadeRegistry::Lease::operator=(Lease &&other) noexcept {
+    if (this != &other) {
+        giveBack();
+        entry = std::move(other.entry);
+        classifier = std::move(other.classifier);
+        generation = other.generation;
+    }
+    return *this;
+}
+
+CascadeRegistry::Lease::~Lease() {
+    giveBack();
+}
+
+void CascadeRegistry::Lease::giveBack() {
+    if (entry && classifier) {
+        lock_guard<std::mutex> lock(entry->mutex);
+        // Si hubo un release() mientras estaba prestada, la instancia se descarta
+        if (generation == entry->generation) {
+            entry->idle.push_back(std::move(classifier));
+            entry->available.notify_one();
+        }
+    }
+    classifier.reset();
+    entry.reset();
+}
@@ -0,0 +1,81 @@
+#ifndef PROJECTPARTEII_CASCADE_REGISTRY_H
+#define PROJECTPARTEII_CASCADE_REGISTRY_H
+
+#include <opencv2/objdetect.hpp>
+#include <condition_variable>
+#include <map>
+#include <memory>
+#include <mutex>
+#include <string>
+#include <vector>
+
+// Cache de clasificadores Haar ya cargados, indexados por la ruta del XML.
+// CascadeClassifier no es seguro para usarse desde varios hilos a la vez, asi que cada
+// ruta guarda un pool de instancias de tamaño fijo: un hilo toma una instancia con
+// acquire() y la devuelve automaticamente cuando el Lease sale de alcance. El pool se crea
+// completo la primera vez que se pide la ruta; despues nunca se vuelve a parsear el modelo
+// durante una deteccion, y si todas las instancias estan prestadas acquire() espera.
+class CascadeRegistry {
+private:
+    struct Entry {
+        std::mutex mutex;
+        std::condition_variable available;
+        std::vector<std::unique_ptr<cv::CascadeClassifier>> idle;
+        // Instancias de la generacion actual, prestadas o en reposo; 0 = sin cargar
+        int instances = 0;
+        // Tamaño con que se creo el pool; reload() lo vuelve a crear igual
+        int poolSize = 1;
+        bool loading = false;
+        int generation = 0;
+    };
+
+public:
+    class Lease {
+    public:
+        Lease() = default;
+        Lease(Lease &&other) noexcept = default;
+        Lease &operator=(Lease &&other) noexcept;
+        Lease(const Lease &) = delete;
+        Lease &operator=(const Lease &) = delete;
+        ~Lease();
+
+        bool valid() const { return classifier != nullptr; }
+        cv::CascadeClassifier *operator->() const { return classifier.get(); }
+        cv::CascadeClassifier &operator*() const { return *classifier; }
+
+    private:
+        friend class CascadeRegistry;
+        void giveBack();
+
+        std::shared_ptr<Entry> entry;
+        std::unique_ptr<cv::CascadeClassifier> classifier;
+        int generation = 0;
+    };
+
+    static CascadeRegistry &instance();
+
+    // Carga el pool de la cascada si todavia no esta en cache. Devuelve false si el modelo
+    // no se pudo leer.
+    bool load(const std::string &path, int poolSize = 1);
+
+    // Presta una instancia lista para detectMultiScale. La primera llamada para una ruta
+    // carga poolSize instancias (o las del pool anterior a un release(), si eran mas); las
+    // siguientes ignoran poolSize. Si todas estan prestadas espera a que se devuelva una.
+    // Un Lease invalido indica que el modelo no se pudo leer.
+    Lease acquire(const std::string &path, int poolSize = 1);
+
+    // Libera todas las instancias en reposo; las prestadas se descartan al devolverse.
+    void release();
+
+    // Vuelve a cargar una instancia por cada ruta conocida.
+    bool reload();
+
+private:
+    static std::unique_ptr<cv::CascadeClassifier> loadClassifier(const std::string &path);
+    std::shared_ptr<Entry> entryFor(const std::string &path);
+
+    std::mutex mutex;
+    std::map<std::string, std::shared_ptr<Entry>> entries;
+};
+
+#endif //PROJECTPARTEII_CASCADE_REGISTRY_H
@@ -0,0 +1,370 @@
+#include "classifier.h"
+
+#include <opencv2/core/utility.hpp>
+#include <opencv2/imgcodecs.hpp>
+#include <opencv2/imgproc.hpp>
+#include <algorithm>
+#include <numeric>
+
+#define LOG_TAG "Predict"
+#include "native_log.h"
+
+using namespace cv;
+using namespace std;
+
+namespace {
+
+double elapsedMs(int64 start) {
+    return (double) (getTickCount() - start) * 1000.0 / getTickFrequency();
+}
+
+// Rango blanco de removeWhiteBackground: H cualquiera, S <= 20, V >= 200
+const int WHITE_MIN_V = 200;
+const int WHITE_MAX_S = 20;
+// Aritmetica de cvtColor(BGR2HSV) y (RGBA2GRAY) para 8 bits en OpenCV
+const int HSV_SHIFT = 12;
+const int GRAY_SHIFT = 14;
+const int R2Y = 4899, G2Y = 9617, B2Y = 1868;
+
+// Para cada V, la mayor diferencia max-min con la que S todavia queda <= WHITE_MAX_S,
+// calculada con la misma division en punto fijo que OpenCV; -1 si V < WHITE_MIN_V. Asi la
+// prueba de blanco es una comparacion por pixel, sin calcular H ni S.
+struct WhiteTable {
+    short maxDiff[256];
+
+    WhiteTable() {
+        for (int v = 0; v < 256; v++) {
+            maxDiff[v] = -1;
+            if (v < WHITE_MIN_V) {
+                continue;
+            }
+            int sdiv = saturate_cast<int>((255 << HSV_SHIFT) / (1. * v));
+            for (int diff = 0; diff <= v; diff++) {
+                int saturation = (diff * sdiv + (1 << (HSV_SHIFT - 1))) >> HSV_SHIFT;
+                if (saturation > WHITE_MAX_S) {
+                    break;
+                }
+                maxDiff[v] = (short) diff;
+            }
+        }
+    }
+};
+
+const WhiteTable &whiteTable() {
+    static const WhiteTable table;
+    return table;
+}
+
+const Mat &morphKernel() {
+    static const Mat kernel = getStructuringElement(MORPH_ELLIPSE, Size(5, 5));
+    return kernel;
+}
+
+// Buffers de trabajo de preprocessForHOG, uno por hilo (classifyBatch corre en paralelo)
+struct PreprocessScratch {
+    Mat mask;
+    Mat gray;
+    Mat masked;
+};
+
+PreprocessScratch &scratch() {
+    thread_local PreprocessScratch buffers;
+    return buffers;
+}
+
+// Compara las dos versiones del preprocesado sobre una imagen sintetica con muchos pixeles
+// en el borde del rango blanco.
+bool fusedMatchesReference() {
+    Mat rgba(61, 97, CV_8UC4);
+    RNG rng(7);
+    for (int y = 0; y < rgba.rows; y++) {
+        for (int x = 0; x < rgba.cols; x++) {
+            int v = (x + y) % 3 == 0 ? rng.uniform(0, 256) : rng.uniform(WHITE_MIN_V - 8, 256);
+            rgba.at<Vec4b>(y, x) = Vec4b(saturate_cast<uchar>(v - rng.uniform(0, 24)),
+                                         saturate_cast<uchar>(v - rng.uniform(0, 24)),
+                                         saturate_cast<uchar>(v), 255);
+        }
+    }
+    Mat fused, reference, fusedGray, referenceGray;
+    preprocessForHOG(rgba, fused, true, &fusedGray);
+    preprocessForHOG(rgba, reference, false, &referenceGray);
+    return norm(fused, reference, NORM_INF) == 0 && norm(fusedGray, referenceGray, NORM_INF) == 0;
+}
+
+}
+
+const Size IMG_SIZE = Size(28, 28);
+const vector<string> category_labels = {"Camiseta/Top", "Pantalón", "Jersey", "Vestido", "Abrigo",
+                                        "Sandalia", "Camisa", "Zapatilla", "Bolso", "Bota"};
+
+float responseConfidence(float score) {
+    return std::min(1.f, std::max(0.f, score));
+}
+
+void responseConfidences(const float *scores, int count, vector<float> &confidences) {
+    confidences.resize(count);
+    for (int i = 0; i < count; i++) {
+        confidences[i] = responseConfidence(scores[i]);
+    }
+}
+
+void topKIndices(const vector<float> &values, int k, vector<int> &indices) {
+    indices.resize(values.size());
+    iota(indices.begin(), indices.end(), 0);
+    k = max(0, min(k, (int) values.size()));
+    partial_sort(indices.begin(), indices.begin() + k, indices.end(), [&](int a, int b) {
+        return values[a] > values[b] || (values[a] == values[b] && a < b);
+    });
+    indices.resize(k);
+}
+
+void removeWhiteBackground(const Mat &img, Mat &output) {
+    // Metodo similar a la de la parte 1 del proyecto
+    Mat bgr;
+    cvtColor(img, bgr, COLOR_RGBA2BGR);
+
+    Mat hsv;
+    cvtColor(bgr, hsv, COLOR_BGR2HSV);
+
+
+    Scalar lower_white(0, 0, 200);
+    Scalar upper_white(180, 20, 255);
+
+
+    Mat mask;
+    inRange(hsv, lower_white, upper_white, mask);
+
+
+    bitwise_not(mask, mask);
+
+    Mat kernel = getStructuringElement(MORPH_ELLIPSE, Size(5, 5));
+    morphologyEx(mask, mask, MORPH_CLOSE, kernel);
+    morphologyEx(mask, mask, MORPH_OPEN, kernel);
+
+    img.copyTo(output, mask);
+}
+
+void whiteMaskAndGray(const Mat &rgba, Mat &mask, Mat &gray) {
+    CV_Assert(rgba.type() == CV_8UC4);
+    mask.create(rgba.size(), CV_8UC1);
+    gray.create(rgba.size(), CV_8UC1);
+    const short *maxDiff = whiteTable().maxDiff;
+    parallel_for_(Range(0, rgba.rows), [&](const Range &range) {
+        for (int y = range.start; y < range.end; y++) {
+            const uchar *pixel = rgba.ptr<uchar>(y);
+            uchar *maskRow = mask.ptr<uchar>(y);
+            uchar *grayRow = gray.ptr<uchar>(y);
+            for (int x = 0; x < rgba.cols; x++, pixel += 4) {
+                int r = pixel[0], g = pixel[1], b = pixel[2];
+                int v = std::max(r, std::max(g, b));
+                int diff = v - std::min(r, std::min(g, b));
+                maskRow[x] = diff <= maxDiff[v] ? 0 : 255;
+                grayRow[x] = (uchar) ((r * R2Y + g * G2Y + b * B2Y + (1 << (GRAY_SHIFT - 1))) >> GRAY_SHIFT);
+            }
+        }
+    });
+}
+
+void preprocessForHOG(const Mat &rgba, Mat &small, bool fused, Mat *fullGray) {
+    if (!fused) {
+        Mat preprocessed;
+        removeWhiteBackground(rgba, preprocessed);
+        Mat gray;
+        cvtColor(preprocessed, gray, COLOR_RGBA2GRAY);
+        resize(gray, small, IMG_SIZE);
+        if (fullGray) {
+            cvtColor(rgba, *fullGray, COLOR_RGBA2GRAY);
+        }
+        return;
+    }
+
+    // Mascara y gris en una pasada; la morfologia queda igual, sobre un solo canal, y el
+    // gris enmascarado es el gris de la imagen con el fondo en negro
+    PreprocessScratch &buffers = scratch();
+    whiteMaskAndGray(rgba, buffers.mask, buffers.gray);
+    morphologyEx(buffers.mask, buffers.mask, MORPH_CLOSE, morphKernel());
+    morphologyEx(buffers.mask, buffers.mask, MORPH_OPEN, morphKernel());
+    bitwise_and(buffers.gray, buffers.mask, buffers.masked);
+    resize(buffers.masked, small, IMG_SIZE);
+    if (fullGray) {
+        *fullGray = buffers.gray;
+    }
+}
+
+ClassifierSession::ClassifierSession()
+        : hog(IMG_SIZE, Size(14, 14), Size(7, 7), Size(7, 7), 9),
+          inputLayerSize(0),
+          fusedPreprocess(true) {
+}
+
+bool ClassifierSession::open(const string &modelPath) {
+    // models.pack si existe, si no el XML
+    model = loadMlpModel(modelPath);
+    if (!model) {
+        return false;
+    }
+    inputLayerSize = model->inputSize();
+    // Si la cvtColor de esta compilacion de OpenCV redondea distinto, se usa la cadena original
+    fusedPreprocess = fusedMatchesReference();
+    if (!fusedPreprocess) {
+        LOGE("Fused preprocessing differs from cvtColor, using the OpenCV chain");
+    }
+    return true;
+}
+
+void ClassifierSession::warmUp() {
+    Mat blank = Mat::zeros(IMG_SIZE, CV_8UC1);
+    vector<float> descriptors;
+    computeHOG(blank, descriptors);
+
+    Mat sample = Mat::zeros(1, inputLayerSize, CV_32F);
+    Mat response;
+    model->predict(sample, response);
+}
+
+void ClassifierSession::computeHOG(const Mat &img, vector<float> &descriptors) const {
+    hog.compute(img, descriptors);
+}
+
+bool ClassifierSession::describe(const Mat &rgba, Mat sample, ClassifierTimings *timings, Mat *fullGray) const {
+    int64 start = getTickCount();
+    //quitar el fondo blanco, gris y 28x28
+    Mat gray;
+    preprocessForHOG(rgba, gray, fusedPreprocess, fullGray);
+    if (timings) timings->preprocessMs = elapsedMs(start);
+
+    //HOG
+    start = getTickCount();
+    vector<float> descriptors;
+    computeHOG(gray, descriptors);
+    if (timings) timings->hogMs = elapsedMs(start);
+
+    //que tenga el mismo dimencion
+    if (descriptors.size() != (size_t) inputLayerSize) {
+        LOGE("El tamaño de los descriptores HOG (%zu) no coincide con el tamaño esperado por el modelo (%d).",
+             descriptors.size(), inputLayerSize);
+        return false;
+    }
+
+    //convertir a Mat para predecir
+    Mat(1, inputLayerSize, CV_32F, descriptors.data()).copyTo(sample);
+    return true;
+}
+
+int ClassifierSession::classify(const Mat &rgba, ClassifierTimings *timings, Mat *fullGray,
+                                vector<float> *scores) const {
+    Mat sample(1, inputLayerSize, CV_32F);
+    if (!describe(rgba, sample, timings, fullGray)) {
+        return -1;
+    }
+
+    //predicción
+    int64 start = getTickCount();
+    Mat response;
+    model->predict(sample, response);
+    Point maxLoc;
+    minMaxLoc(response, 0, 0, 0, &maxLoc);
+    if (timings) timings->mlpMs = elapsedMs(start);
+    if (scores) {
+        const float *values = response.ptr<float>(0);
+        scores->assign(values, values + response.cols);
+    }
+    return maxLoc.x;
+}
+
+void ClassifierSession::classifyBatch(const vector<Mat> &images, vector<int> &labels,
+                                      vector<float> &confidences, Mat *scores) const {
+    int count = (int) images.size();
+    labels.assign(count, -1);
+    confidences.assign(count, 0.f);
+    if (scores) {
+        scores->release();
+    }
+    if (count == 0) {
+        return;
+    }
+
+    // Preprocesado y HOG de cada imagen en paralelo, cada una en su fila de samples
+    Mat samples = Mat::zeros(count, inputLayerSize, CV_32F);
+    vector<uchar> described(count, 0);
+    parallel_for_(Range(0, count), [&](const Range &range) {
+        for (int i = range.start; i < range.end; i++) {
+            if (!images[i].empty() && describe(images[i], samples.row(i))) {
+                described[i] = 1;
+            }
+        }
+    });
+
+    // Una sola inferencia para todo el lote
+    Mat responses;
+    model->predict(samples, responses);
+    for (int i = 0; i < count; i++) {
+        if (!described[i]) {
+            // Las filas de imagenes sin describir no tienen sentido
+            responses.row(i).setTo(Scalar::all(0));
+            continue;
+        }
+        double maxVal;
+        Point maxLoc;
+        minMaxLoc(responses.row(i), 0, &maxVal, 0, &maxLoc);
+        labels[i] = maxLoc.x;
+        confidences[i] = responseConfidence((float) maxVal);
+    }
+    if (scores) {
+        *scores = responses;
+    }
+}
+
+void ClassifierSession::classifyFiles(const vector<string> &files, vector<int> &labels,
+                                      vector<float> &confidences, Mat *scores) const {
+    // Las imagenes tambien se decodifican en paralelo
+    int count = (int) files.size();
+    vector<Mat> images(count);
+    parallel_for_(Range(0, count), [&](const Range &range) {
+        for (int i = range.start; i < range.end; i++) {
+            Mat bgr = imread(files[i], IMREAD_COLOR);
+            if (!bgr.empty()) {
+                cvtColor(bgr, images[i], COLOR_BGR2RGBA);
+            } else {
+                LOGE("Could not read %s", files[i].c_str());
+            }
+        }
+    });
+    classifyBatch(images, labels, confidences, scores);
+}
+
+Rect ClassifierSession::annotate(Mat &rgba, int label, const Mat &gray) const {
+    //contorno de la prenda de vestir en la imagen original
+    Mat binary;
+    if (gray.empty()) {
+        cvtColor(rgba, binary, COLOR_RGBA2GRAY);
+        threshold(binary, binary, 0, 255, THRESH_BINARY_INV + THRESH_OTSU);
+    } else {
+        CV_Assert(gray.size() == rgba.size());
+        threshold(gray, binary, 0, 255, THRESH_BINARY_INV + THRESH_OTSU);
+    }
+
+    vector<vector<Point>> contours;
+    findContours(binary, contours, RETR_EXTERNAL, CHAIN_APPROX_SIMPLE);
+
+    Rect boundingBox;
+    if (!contours.empty()) {
+        size_t largestContourIdx = 0;
+        double largestArea = 0;
+        for (size_t i = 0; i < contours.size(); ++i) {
+            double area = contourArea(contours[i]);
+            if (area > largestArea) {
+                largestArea = area;
+                largestContourIdx = i;
+            }
+        }
+
+        boundingBox = cv::boundingRect(contours[largestContourIdx]);
+        rectangle(rgba, boundingBox, Scalar(0, 255, 0), 2);
+
+        double fontScale = 3.0;
+        int thickness = 3;
+        putText(rgba, category_labels[label], Point(boundingBox.x, boundingBox.y - 10), FONT_HERSHEY_SIMPLEX, fontScale, Scalar(0, 255, 0), thickness);
+    }
+    return boundingBox;
+}
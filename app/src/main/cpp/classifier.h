@@ -0,0 +1,108 @@
+#ifndef PROJECTPARTEII_CLASSIFIER_H
+#define PROJECTPARTEII_CLASSIFIER_H
+
+#include <opencv2/core.hpp>
+#include <opencv2/objdetect.hpp>
+#include <memory>
+#include <string>
+#include <vector>
+
+#include "mlp_model.h"
+
+extern const cv::Size IMG_SIZE;
+extern const std::vector<std::string> category_labels;
+
+void removeWhiteBackground(const cv::Mat &img, cv::Mat &output);
+
+// Una sola pasada sobre los pixeles RGBA: mask = 255 donde el pixel no esta en el rango
+// blanco de removeWhiteBackground (antes de la morfologia) y gray = el gris de la imagen
+// sin enmascarar. Usa la misma aritmetica entera que cvtColor de OpenCV (HSV y gris), asi
+// que el resultado es identico al de la cadena original. Las filas se reparten entre hilos.
+void whiteMaskAndGray(const cv::Mat &rgba, cv::Mat &mask, cv::Mat &gray);
+
+// Preprocesado del clasificador: gris de la imagen sin fondo blanco reducido a IMG_SIZE.
+// Con fused usa whiteMaskAndGray y buffers por hilo reutilizados entre llamadas; sin fused,
+// la cadena original (removeWhiteBackground, cvtColor y resize). Si fullGray no es null
+// recibe el gris de la imagen completa sin enmascarar, que en el modo fused comparte el
+// buffer del hilo y es valido hasta la siguiente llamada en ese hilo.
+void preprocessForHOG(const cv::Mat &rgba, cv::Mat &small, bool fused, cv::Mat *fullGray = nullptr);
+
+// Confianza de una salida del MLP. La red se entreno con objetivos 0/1 y ANN_MLP devuelve
+// SIGMOID_SYM reescalada a esa escala, aproximadamente -0.4 a 1.4; se acota a [0, 1], donde
+// 1 es una respuesta one-hot. Misma cuenta que Prediction.confidenceOf en Java.
+float responseConfidence(float score);
+
+// responseConfidence de cada categoria; no suman 1, cada una es independiente.
+void responseConfidences(const float *scores, int count, std::vector<float> &confidences);
+
+// Indices de los k valores mayores, de mayor a menor; a igual valor va primero el indice
+// menor, como en minMaxLoc. k se acota al tamaño de values.
+void topKIndices(const std::vector<float> &values, int k, std::vector<int> &indices);
+
+// Tiempos por etapa de classify; los de annotate se miden por separado.
+struct ClassifierTimings {
+    // Quitar el fondo blanco, escala de grises y reduccion a IMG_SIZE
+    double preprocessMs = 0;
+    double hogMs = 0;
+    double mlpMs = 0;
+};
+
+// Red MLP y descriptor HOG cargados una sola vez y reutilizados en cada prediccion.
+class ClassifierSession {
+public:
+    ClassifierSession();
+
+    bool open(const std::string &modelPath);
+
+    // Primera inferencia en vacio para que las asignaciones internas no caigan en la
+    // primera prediccion real.
+    void warmUp();
+
+    // Devuelve la categoria predicha para una imagen RGBA, o -1 si el descriptor HOG no
+    // coincide con la capa de entrada del modelo.
+    // fullGray: ver preprocessForHOG; se puede pasar a annotate para no recalcularlo.
+    // scores, si no es null, recibe la respuesta completa del MLP, una por categoria.
+    int classify(const cv::Mat &rgba, ClassifierTimings *timings = nullptr, cv::Mat *fullGray = nullptr,
+                 std::vector<float> *scores = nullptr) const;
+
+    // Clasifica un lote: el preprocesado y HOG corren en paralelo y los descriptores se
+    // apilan en una sola matriz para una unica llamada al MLP. confidences es la
+    // responseConfidence de la categoria predicha; las imagenes que no se pudieron describir
+    // quedan con etiqueta -1. scores, si no es null, recibe la respuesta completa: una fila
+    // CV_32F por imagen, en cero para las que no se describieron.
+    void classifyBatch(const std::vector<cv::Mat> &images, std::vector<int> &labels,
+                       std::vector<float> &confidences, cv::Mat *scores = nullptr) const;
+
+    // Como classifyBatch pero leyendo las imagenes de disco, tambien en paralelo. Las que no
+    // se pueden leer quedan con etiqueta -1.
+    void classifyFiles(const std::vector<std::string> &files, std::vector<int> &labels,
+                       std::vector<float> &confidences, cv::Mat *scores = nullptr) const;
+
+    // Dibuja el contorno de la prenda y la etiqueta sobre la imagen RGBA. gray es el gris de
+    // rgba si ya se tiene (de classify); vacio, se calcula. Devuelve el recuadro dibujado, o
+    // uno vacio si no se encontro ningun contorno.
+    cv::Rect annotate(cv::Mat &rgba, int label, const cv::Mat &gray = cv::Mat()) const;
+
+    // false si el preprocesado de una sola pasada no dio lo mismo que la cadena original al
+    // abrir el modelo y se usa esta ultima.
+    bool usesFusedPreprocess() const { return fusedPreprocess; }
+
+    // Fuerza una de las dos versiones del preprocesado; para comparar en las herramientas.
+    void setFusedPreprocess(bool enabled) { fusedPreprocess = enabled; }
+
+    int inputSize() const { return inputLayerSize; }
+
+private:
+    // Escribe el descriptor HOG de la imagen en sample (1 x inputSize, CV_32F)
+    bool describe(const cv::Mat &rgba, cv::Mat sample, ClassifierTimings *timings = nullptr,
+                  cv::Mat *fullGray = nullptr) const;
+
+    void computeHOG(const cv::Mat &img, std::vector<float> &descriptors) const;
+
+    std::unique_ptr<MlpModel> model;
+    cv::HOGDescriptor hog;
+    int inputLayerSize;
+    bool fusedPreprocess;
+};
+
+#endif //PROJECTPARTEII_CLASSIFIER_H
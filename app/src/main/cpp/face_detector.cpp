@@ -0,0 +1,266 @@
+#include "face_detector.h"
+#include "cascade_registry.h"
+
+#include <opencv2/core/utility.hpp>
+#include <opencv2/imgproc.hpp>
+#include <opencv2/objdetect.hpp>
+#include <atomic>
+#include <cmath>
+#include <sstream>
+
+using namespace cv;
+using namespace std;
+
+namespace {
+
+const char *const DETECTION_NAMES[] = {"Face", "Eye", "Nose", "Mouth"};
+
+const int FEATURES_PER_FACE = 3;
+const int FEATURE_EYE = 0;
+const int FEATURE_NOSE = 1;
+const int FEATURE_MOUTH = 2;
+const int FEATURE_FLAGS[FEATURES_PER_FACE] = {DETECT_EYES, DETECT_NOSE, DETECT_MOUTH};
+const int FEATURE_TYPES[FEATURES_PER_FACE] = {DETECTION_EYE, DETECTION_NOSE, DETECTION_MOUTH};
+
+double elapsedMs(int64 start) {
+    return (double) (getTickCount() - start) * 1000.0 / getTickFrequency();
+}
+
+Rect toOriginal(const Rect &rect, double scale) {
+    if (scale == 1.0) {
+        return rect;
+    }
+    return Rect(cvRound(rect.x / scale), cvRound(rect.y / scale),
+                cvRound(rect.width / scale), cvRound(rect.height / scale));
+}
+
+}
+
+bool unpackDetectionParams(const float *packed, int size, DetectionParams &params) {
+    if (packed == nullptr || size < PACKED_PARAMS_SIZE) {
+        return false;
+    }
+    DetectionParams read;
+    read.features = (int) packed[0];
+    read.maxSide = (int) packed[1];
+    read.scaleFactor = packed[2];
+    read.minNeighbors = (int) packed[3];
+    read.minFaceSize = (int) packed[4];
+    read.minFeatureSize = (int) packed[5];
+    read.minMouthSize = (int) packed[6];
+    // detectMultiScale necesita scaleFactor > 1; los tamaños deben ser positivos
+    if ((read.features & ~DETECT_ALL_FEATURES) != 0 || read.maxSide < 0 || !(read.scaleFactor > 1.0) ||
+        read.minNeighbors < 0 || read.minFaceSize <= 0 || read.minFeatureSize <= 0 || read.minMouthSize <= 0) {
+        return false;
+    }
+    params = read;
+    return true;
+}
+
+int featureCascadeCount(const DetectionParams &params) {
+    int count = 0;
+    for (int flag : FEATURE_FLAGS) {
+        if (params.features & flag) {
+            count++;
+        }
+    }
+    return count;
+}
+
+bool detectFeatures(const Mat &rgba, const CascadePaths &paths, const DetectionParams &params,
+                    vector<Detection> &detections, DetectionTimings *timings) {
+    int64 start = getTickCount();
+    Mat gray;
+    cvtColor(rgba, gray, COLOR_RGBA2GRAY);
+    double convertMs = elapsedMs(start);
+
+    bool loaded = detectFeaturesGray(gray, 0, paths, params, detections, timings);
+    if (timings) timings->preprocessMs += convertMs;
+    return loaded;
+}
+
+bool detectFeaturesGray(const Mat &gray, int rotation, const CascadePaths &paths, const DetectionParams &params,
+                        vector<Detection> &detections, DetectionTimings *timings) {
+    CV_Assert(gray.type() == CV_8UC1);
+    int64 start = getTickCount();
+    Mat work;
+    double scale = prepareGray(gray, rotation, params.maxSide, work);
+    double preprocessMs = elapsedMs(start);
+
+    bool loaded = detectPrepared(work, scale, paths, params, detections, timings);
+    if (timings) timings->preprocessMs = preprocessMs;
+    return loaded;
+}
+
+double prepareGray(const Mat &gray, int rotation, int maxSide, Mat &work) {
+    // Las cascadas corren sobre una copia reducida; el resultado se reescala al final
+    double scale = 1.0;
+    Mat reduced = gray;
+    int longestSide = max(gray.cols, gray.rows);
+    if (maxSide > 0 && longestSide > maxSide) {
+        scale = (double) maxSide / longestSide;
+        resize(gray, reduced, Size(), scale, scale, INTER_AREA);
+    }
+
+    // Se rota la copia reducida, que es mas barata que el cuadro completo
+    Mat upright = reduced;
+    if (rotation == 90) {
+        rotate(reduced, upright, ROTATE_90_CLOCKWISE);
+    } else if (rotation == 180) {
+        rotate(reduced, upright, ROTATE_180);
+    } else if (rotation == 270) {
+        rotate(reduced, upright, ROTATE_90_COUNTERCLOCKWISE);
+    }
+
+    // El desenfoque escribe en su propia matriz: la entrada nunca se modifica
+    GaussianBlur(upright, work, Size(5, 5), 1.5);
+    equalizeHist(work, work);
+    return scale;
+}
+
+bool detectPrepared(const Mat &work, double scale, const CascadePaths &paths, const DetectionParams &params,
+                    vector<Detection> &detections, DetectionTimings *timings) {
+    detections.clear();
+
+    // Solo los rasgos pedidos, en el orden de salida
+    const string *allPaths[FEATURES_PER_FACE] = {&paths.eye, &paths.nose, &paths.mouth};
+    const string *featurePaths[FEATURES_PER_FACE];
+    int featureIds[FEATURES_PER_FACE];
+    int selected = 0;
+    for (int feature = 0; feature < FEATURES_PER_FACE; feature++) {
+        if (params.features & FEATURE_FLAGS[feature]) {
+            featurePaths[selected] = allPaths[feature];
+            featureIds[selected] = feature;
+            selected++;
+        }
+    }
+
+    // Un hilo por nucleo, dejando uno libre; cada hilo usa su propia instancia de cada rasgo,
+    // asi que los pools de rasgos se crean de ese tamaño
+    int workers = max(1, getNumberOfCPUs() - 1);
+
+    // La primera vez que se pide una cascada su pool se carga aqui; despues sale del pool
+    int64 start = getTickCount();
+    CascadeRegistry &registry = CascadeRegistry::instance();
+    CascadeRegistry::Lease faceCascade = registry.acquire(paths.face);
+    if (!faceCascade.valid()) {
+        return false;
+    }
+    for (int i = 0; i < selected; i++) {
+        if (!registry.load(*featurePaths[i], workers)) {
+            return false;
+        }
+    }
+    if (timings) timings->cascadesMs = elapsedMs(start);
+
+    start = getTickCount();
+    double scaleFactor = params.scaleFactor;
+    int minNeighbors = params.minNeighbors;
+    Size minFeature(params.minFeatureSize, params.minFeatureSize);
+    Size minMouth(params.minMouthSize, params.minMouthSize);
+
+    // Rostros
+    vector<Rect> faces;
+    faceCascade->detectMultiScale(work, faces, scaleFactor, minNeighbors, 0 | CASCADE_SCALE_IMAGE,
+                                  Size(params.minFaceSize, params.minFaceSize));
+
+    // Rasgos pedidos de todos los rostros en paralelo: una tarea por (rostro, rasgo), en
+    // como mucho workers franjas. Cada franja toma al empezar una instancia de cada rasgo,
+    // siempre en el mismo orden para que dos detecciones simultaneas no se bloqueen entre si,
+    // y las conserva hasta terminar su rango. Cada tarea escribe solo en su casilla y el
+    // orden de salida no depende de los hilos.
+    vector<vector<Rect>> found(faces.size() * selected);
+    atomic<bool> missing(false);
+    if (!found.empty()) {
+        parallel_for_(Range(0, (int) found.size()), [&](const Range &range) {
+            CascadeRegistry::Lease cascades[FEATURES_PER_FACE];
+            for (int slot = 0; slot < selected; slot++) {
+                // Solo falla si hubo un release() y el modelo ya no se puede leer
+                cascades[slot] = registry.acquire(*featurePaths[slot], workers);
+                if (!cascades[slot].valid()) {
+                    missing = true;
+                    return;
+                }
+            }
+            for (int task = range.start; task < range.end; task++) {
+                const Rect &face = faces[task / selected];
+                int slot = task % selected;
+                CascadeRegistry::Lease &cascade = cascades[slot];
+                Mat faceROI = work(face);
+                if (featureIds[slot] == FEATURE_MOUTH) {
+                    // Ajustar el ROI para la boca a la mitad inferior del rostro
+                    Mat lowerFaceROI = faceROI(Rect(0, faceROI.rows / 2, faceROI.cols, faceROI.rows / 2));
+                    cascade->detectMultiScale(lowerFaceROI, found[task], scaleFactor, minNeighbors, 0 | CASCADE_SCALE_IMAGE, minMouth);
+                } else {
+                    cascade->detectMultiScale(faceROI, found[task], scaleFactor, minNeighbors, 0 | CASCADE_SCALE_IMAGE, minFeature);
+                }
+            }
+        }, workers);
+    }
+    if (missing) {
+        return false;
+    }
+
+    for (size_t i = 0; i < faces.size(); i++) {
+        int faceIndex = (int) i;
+        detections.push_back({DETECTION_FACE, toOriginal(faces[i], scale), -1});
+
+        for (int slot = 0; slot < selected; slot++) {
+            int feature = featureIds[slot];
+            // La boca se busco en la mitad inferior del rostro
+            int offsetY = feature == FEATURE_MOUTH ? faces[i].height / 2 : 0;
+            for (const Rect &r : found[i * selected + slot]) {
+                Rect rect = Rect(faces[i].x + r.x, faces[i].y + offsetY + r.y, r.width, r.height);
+                detections.push_back({FEATURE_TYPES[feature], toOriginal(rect, scale), faceIndex});
+            }
+        }
+    }
+    if (timings) timings->detectMs = elapsedMs(start);
+    return true;
+}
+
+void drawDetections(Mat &rgba, const vector<Detection> &detections) {
+    for (const Detection &detection : detections) {
+        switch (detection.type) {
+            case DETECTION_FACE:
+                rectangle(rgba, detection.rect, Scalar(0, 0, 255), 3); // Rojo para rostros (BGR: 0, 0, 255)
+                break;
+            case DETECTION_EYE:
+                rectangle(rgba, detection.rect, Scalar(255, 0, 255), 3); // Morado para ojos (BGR: 255, 0, 255)
+                break;
+            case DETECTION_NOSE:
+                rectangle(rgba, detection.rect, Scalar(0, 255, 0), 3); // Verde para nariz (BGR: 0, 255, 0)
+                break;
+            case DETECTION_MOUTH:
+                rectangle(rgba, detection.rect, Scalar(0, 0, 255), 4); // Rojo para boca (BGR: 0, 0, 255)
+                break;
+            default:
+                break;
+        }
+    }
+}
+
+void packDetections(const vector<Detection> &detections, vector<int> &packed) {
+    packed.resize(detections.size() * PACKED_DETECTION_STRIDE);
+    int *record = packed.data();
+    for (const Detection &detection : detections) {
+        record[0] = detection.type;
+        record[1] = detection.rect.x;
+        record[2] = detection.rect.y;
+        record[3] = detection.rect.width;
+        record[4] = detection.rect.height;
+        record[5] = detection.parent;
+        record[6] = detection.track;
+        record += PACKED_DETECTION_STRIDE;
+    }
+}
+
+string formatDetections(const vector<Detection> &detections) {
+    std::stringstream detectionResults;
+    for (const Detection &detection : detections) {
+        const Rect &r = detection.rect;
+        detectionResults << DETECTION_NAMES[detection.type] << ": " << r.x << ", " << r.y << ", "
+                         << r.width << ", " << r.height << "\n";
+    }
+    return detectionResults.str();
+}
@@ -0,0 +1,111 @@
+#ifndef PROJECTPARTEII_FACE_DETECTOR_H
+#define PROJECTPARTEII_FACE_DETECTOR_H
+
+#include <opencv2/core.hpp>
+#include <string>
+#include <vector>
+
+struct CascadePaths {
+    std::string face;
+    std::string eye;
+    std::string nose;
+    std::string mouth;
+};
+
+// Rasgos que se buscan dentro de cada rostro (DetectionParams::features)
+enum DetectionFeature {
+    DETECT_EYES = 1 << 0,
+    DETECT_NOSE = 1 << 1,
+    DETECT_MOUTH = 1 << 2,
+    DETECT_ALL_FEATURES = DETECT_EYES | DETECT_NOSE | DETECT_MOUTH
+};
+
+struct DetectionParams {
+    // Lado mayor de la imagen sobre la que corren las cascadas; 0 usa la resolucion original
+    int maxSide = 0;
+    double scaleFactor = 1.1;
+    int minNeighbors = 5;
+    // Combinacion de DetectionFeature; con 0 solo se buscan rostros. Las cascadas de los
+    // rasgos no pedidos ni se cargan ni se ejecutan
+    int features = DETECT_ALL_FEATURES;
+    // Tamaños minimos en pixeles de la imagen reducida a maxSide
+    int minFaceSize = 30;
+    // Ojos y nariz
+    int minFeatureSize = 20;
+    int minMouthSize = 30;
+};
+
+// Valores por registro en unpackDetectionParams: rasgos, maxSide, scaleFactor, minNeighbors,
+// minFaceSize, minFeatureSize, minMouthSize. Mismo orden que DetectionOptions.toPacked.
+const int PACKED_PARAMS_SIZE = 7;
+
+// Lee los parametros empaquetados desde Java. Devuelve false si faltan valores o alguno
+// esta fuera de rango; en ese caso params no se modifica.
+bool unpackDetectionParams(const float *packed, int size, DetectionParams &params);
+
+// Cascadas de rasgos que corren por cada rostro encontrado (0 a 3).
+int featureCascadeCount(const DetectionParams &params);
+
+enum DetectionType {
+    DETECTION_FACE = 0,
+    DETECTION_EYE = 1,
+    DETECTION_NOSE = 2,
+    DETECTION_MOUTH = 3
+};
+
+struct Detection {
+    int type;
+    cv::Rect rect;
+    // Indice del rostro al que pertenece el rasgo, -1 para los rostros
+    int parent;
+    // Identificador estable del rostro entre cuadros (FaceTracker), -1 sin seguimiento
+    int track = -1;
+};
+
+struct DetectionTimings {
+    double cascadesMs = 0;
+    double preprocessMs = 0;
+    double detectMs = 0;
+};
+
+// Detecta rostros y, dentro de cada uno, ojos, nariz y boca. Las cascadas corren sobre una
+// copia reducida a params.maxSide y los rectangulos se devuelven en coordenadas de rgba.
+// Los rasgos de todos los rostros se buscan en paralelo; el orden de salida es siempre
+// rostro, sus ojos, su nariz y su boca, rostro por rostro.
+// Solo se buscan los rasgos de params.features; cada cascada se carga la primera vez que se
+// usa. Devuelve false si alguna de las cascadas necesarias no se pudo cargar.
+bool detectFeatures(const cv::Mat &rgba, const CascadePaths &paths, const DetectionParams &params,
+                    std::vector<Detection> &detections, DetectionTimings *timings = nullptr);
+
+// Igual que detectFeatures pero sobre una imagen de un canal, por ejemplo el plano Y de un
+// cuadro YUV de la camara, sin conversion a RGBA. gray puede tener stride y no se modifica.
+// rotation (0, 90, 180 o 270, en sentido horario) endereza el cuadro despues de reducirlo;
+// los rectangulos quedan en coordenadas del cuadro rotado a resolucion completa.
+bool detectFeaturesGray(const cv::Mat &gray, int rotation, const CascadePaths &paths,
+                        const DetectionParams &params, std::vector<Detection> &detections,
+                        DetectionTimings *timings = nullptr);
+
+// Reduce gray a maxSide, lo endereza segun rotation, lo desenfoca y lo ecualiza en work.
+// Devuelve la escala aplicada (work = original * escala).
+double prepareGray(const cv::Mat &gray, int rotation, int maxSide, cv::Mat &work);
+
+// Cascadas sobre una imagen ya preparada con prepareGray; los rectangulos se devuelven
+// divididos por scale, en coordenadas de la imagen original. Devuelve false si alguna
+// cascada pedida no se pudo cargar; la carga de los pools cuenta en cascadesMs.
+bool detectPrepared(const cv::Mat &work, double scale, const CascadePaths &paths,
+                    const DetectionParams &params, std::vector<Detection> &detections,
+                    DetectionTimings *timings = nullptr);
+
+void drawDetections(cv::Mat &rgba, const std::vector<Detection> &detections);
+
+// Enteros por deteccion en packDetections: tipo, x, y, ancho, alto, rostro padre, pista.
+const int PACKED_DETECTION_STRIDE = 7;
+
+// Empaqueta las detecciones en registros de PACKED_DETECTION_STRIDE enteros, el formato
+// que lee DetectionResult en Java. packed se reutiliza entre llamadas.
+void packDetections(const std::vector<Detection> &detections, std::vector<int> &packed);
+
+// Lineas "Face: x, y, w, h" en el mismo orden que las detecciones.
+std::string formatDetections(const std::vector<Detection> &detections);
+
+#endif //PROJECTPARTEII_FACE_DETECTOR_H
@@ -0,0 +1,216 @@
+#include "face_tracker.h"
+#include "cascade_registry.h"
+
+#include <opencv2/objdetect.hpp>
+#include <algorithm>
+#include <utility>
+
+using namespace cv;
+using namespace std;
+
+namespace {
+
+// Cuanto puede cambiar el tamaño del rostro entre dos cuadros seguidos
+const double MIN_SIZE_RATIO = 0.7;
+const double MAX_SIZE_RATIO = 1.4;
+// Solapamiento minimo para que un rostro nuevo herede la pista de uno anterior
+const double MATCH_IOU = 0.3;
+
+double elapsedMs(int64 start) {
+    return (double) (getTickCount() - start) * 1000.0 / getTickFrequency();
+}
+
+double iou(const Rect &a, const Rect &b) {
+    double inter = (a & b).area();
+    double uni = a.area() + b.area() - inter;
+    return uni > 0 ? inter / uni : 0;
+}
+
+// Lleva un rectangulo de un rostro a otro conservando su posicion relativa
+Rect follow(const Rect &rect, const Rect &from, const Rect &to) {
+    double sx = (double) to.width / from.width;
+    double sy = (double) to.height / from.height;
+    return Rect(to.x + cvRound((rect.x - from.x) * sx), to.y + cvRound((rect.y - from.y) * sy),
+                cvRound(rect.width * sx), cvRound(rect.height * sy));
+}
+
+}
+
+FaceTracker::FaceTracker(const CascadePaths &paths, const DetectionParams &params,
+                         const TrackerParams &trackerParams)
+        : paths(paths), params(params), trackerParams(trackerParams) {
+}
+
+void FaceTracker::reset() {
+    tracks.clear();
+    needsFull = true;
+}
+
+bool FaceTracker::update(const Mat &gray, int rotation, vector<Detection> &detections,
+                         DetectionTimings *timings, TrackerFrameStats *stats) {
+    CV_Assert(gray.type() == CV_8UC1);
+    TrackerFrameStats frameStats;
+
+    int64 start = getTickCount();
+    Mat work;
+    double scale = prepareGray(gray, rotation, params.maxSide, work);
+    double preprocessMs = elapsedMs(start);
+
+    bool full = needsFull || tracks.empty() || framesSinceFull + 1 >= trackerParams.fullDetectionInterval;
+    if (full) {
+        if (!detectAll(work, scale, timings, &frameStats)) {
+            return false;
+        }
+    } else {
+        start = getTickCount();
+        for (size_t i = 0; i < tracks.size();) {
+            frameStats.cascadeInvocations++;
+            if (searchLocal(work, scale, tracks[i])) {
+                tracks[i].misses = 0;
+                i++;
+                continue;
+            }
+            // Perder un rostro baja la confianza: el siguiente cuadro se detecta completo. La
+            // pista se conserva sin mostrarse hasta maxMisses cuadros, por si el rostro solo
+            // quedo tapado un momento y reaparece con el mismo identificador
+            needsFull = true;
+            if (++tracks[i].misses > trackerParams.maxMisses) {
+                tracks.erase(tracks.begin() + i);
+            } else {
+                i++;
+            }
+        }
+        framesSinceFull++;
+        if (timings) {
+            timings->cascadesMs = 0;
+            timings->detectMs = elapsedMs(start);
+        }
+    }
+    if (timings) timings->preprocessMs = preprocessMs;
+
+    output(detections);
+    frameStats.fullDetection = full;
+    frameStats.tracks = (int) tracks.size();
+    if (stats) *stats = frameStats;
+    return true;
+}
+
+bool FaceTracker::detectAll(const Mat &work, double scale, DetectionTimings *timings, TrackerFrameStats *stats) {
+    vector<Detection> found;
+    if (!detectPrepared(work, scale, paths, params, found, timings)) {
+        return false;
+    }
+
+    // Rostros nuevos con sus rasgos, agrupados por el indice del rostro
+    vector<Track> detected;
+    vector<int> faceTrack;
+    for (const Detection &detection : found) {
+        if (detection.type == DETECTION_FACE) {
+            faceTrack.push_back((int) detected.size());
+            detected.push_back({-1, detection.rect, {}, 0});
+        } else {
+            detected[faceTrack[detection.parent]].features.push_back(detection);
+        }
+    }
+    stats->cascadeInvocations += 1 + featureCascadeCount(params) * (int) detected.size();
+
+    // Cada rostro hereda el identificador de la pista anterior con la que mas se solapa
+    vector<bool> used(tracks.size(), false);
+    for (Track &track : detected) {
+        int best = -1;
+        double bestIou = MATCH_IOU;
+        for (size_t i = 0; i < tracks.size(); i++) {
+            double overlap = iou(track.face, tracks[i].face);
+            if (!used[i] && overlap >= bestIou) {
+                best = (int) i;
+                bestIou = overlap;
+            }
+        }
+        if (best >= 0) {
+            used[best] = true;
+            track.id = tracks[best].id;
+        } else {
+            track.id = nextId++;
+        }
+    }
+
+    // Las pistas anteriores que ningun rostro nuevo tomo siguen, ocultas, hasta maxMisses
+    for (size_t i = 0; i < tracks.size(); i++) {
+        if (!used[i] && tracks[i].misses + 1 <= trackerParams.maxMisses) {
+            tracks[i].misses++;
+            detected.push_back(std::move(tracks[i]));
+        }
+    }
+
+    tracks.swap(detected);
+    framesSinceFull = 0;
+    needsFull = false;
+    return true;
+}
+
+bool FaceTracker::searchLocal(const Mat &work, double scale, Track &track) {
+    // Region de busqueda alrededor del rostro anterior, en coordenadas de work
+    Rect face(cvRound(track.face.x * scale), cvRound(track.face.y * scale),
+              cvRound(track.face.width * scale), cvRound(track.face.height * scale));
+    int marginX = cvRound(face.width * trackerParams.searchMargin);
+    int marginY = cvRound(face.height * trackerParams.searchMargin);
+    Rect region = Rect(face.x - marginX, face.y - marginY, face.width + 2 * marginX, face.height + 2 * marginY)
+                  & Rect(0, 0, work.cols, work.rows);
+
+    // Tamaño minimo de rostro, igual que en la deteccion completa
+    int minSide = max(params.minFaceSize, cvRound(min(face.width, face.height) * MIN_SIZE_RATIO));
+    int maxSide = cvRound(max(face.width, face.height) * MAX_SIZE_RATIO);
+    if (region.width < minSide || region.height < minSide) {
+        return false;
+    }
+
+    vector<Rect> candidates;
+    {
+        CascadeRegistry::Lease cascade = CascadeRegistry::instance().acquire(paths.face);
+        if (!cascade.valid()) {
+            return false;
+        }
+        cascade->detectMultiScale(work(region), candidates, params.scaleFactor, params.minNeighbors,
+                                  0 | CASCADE_SCALE_IMAGE, Size(minSide, minSide), Size(maxSide, maxSide));
+    }
+    if (candidates.empty()) {
+        return false;
+    }
+
+    // El candidato mas cercano al centro anterior
+    Point2f previous(face.x + face.width / 2.f, face.y + face.height / 2.f);
+    const Rect *closest = nullptr;
+    double closestDistance = 0;
+    for (const Rect &candidate : candidates) {
+        Point2f center(region.x + candidate.x + candidate.width / 2.f, region.y + candidate.y + candidate.height / 2.f);
+        double distance = norm(center - previous);
+        if (closest == nullptr || distance < closestDistance) {
+            closest = &candidate;
+            closestDistance = distance;
+        }
+    }
+
+    Rect moved(cvRound((region.x + closest->x) / scale), cvRound((region.y + closest->y) / scale),
+               cvRound(closest->width / scale), cvRound(closest->height / scale));
+    for (Detection &feature : track.features) {
+        feature.rect = follow(feature.rect, track.face, moved);
+    }
+    track.face = moved;
+    return true;
+}
+
+void FaceTracker::output(vector<Detection> &detections) const {
+    detections.clear();
+    int faceIndex = 0;
+    for (const Track &track : tracks) {
+        // Una pista que no se encontro en este cuadro no se muestra en una posicion vieja
+        if (track.misses > 0) {
+            continue;
+        }
+        detections.push_back({DETECTION_FACE, track.face, -1, track.id});
+        for (const Detection &feature : track.features) {
+            detections.push_back({feature.type, feature.rect, faceIndex, track.id});
+        }
+        faceIndex++;
+    }
+}
@@ -0,0 +1,70 @@
+#ifndef PROJECTPARTEII_FACE_TRACKER_H
+#define PROJECTPARTEII_FACE_TRACKER_H
+
+#include <opencv2/core.hpp>
+#include <vector>
+
+#include "face_detector.h"
+
+struct TrackerParams {
+    // Deteccion completa (cascada de rostros en todo el cuadro y los rasgos pedidos) como
+    // maximo cada fullDetectionInterval cuadros
+    int fullDetectionInterval = 10;
+    // Margen de la busqueda local alrededor del rostro anterior, en fraccion de su tamaño
+    double searchMargin = 0.5;
+    // Cuadros seguidos sin encontrar un rostro antes de descartar su pista. Mientras tanto la
+    // pista no se devuelve, pero conserva su identificador si el rostro reaparece
+    int maxMisses = 2;
+};
+
+struct TrackerFrameStats {
+    bool fullDetection = false;
+    // Llamadas a detectMultiScale hechas en este cuadro
+    int cascadeInvocations = 0;
+    int tracks = 0;
+};
+
+// Seguimiento de rostros entre cuadros consecutivos de un video o rafaga.
+// Solo hace la deteccion completa cada fullDetectionInterval cuadros o cuando una pista se
+// pierde; entre medias busca cada rostro en una region pequeña alrededor de su posicion
+// anterior con la cascada de rostros y reutiliza los ojos, nariz y boca ya encontrados,
+// desplazados con el rostro. Cada rostro conserva su identificador (Detection::track): una
+// pista perdida sigue, sin devolverse, hasta maxMisses cuadros, y si la busqueda local o
+// una deteccion completa vuelven a encontrar el rostro lo recupera.
+// No es seguro usar la misma instancia desde varios hilos a la vez.
+class FaceTracker {
+public:
+    FaceTracker(const CascadePaths &paths, const DetectionParams &params,
+                const TrackerParams &trackerParams = TrackerParams());
+
+    // Procesa el siguiente cuadro (mismo formato que detectFeaturesGray) y devuelve los
+    // rostros seguidos con sus rasgos. Devuelve false si alguna cascada no se pudo cargar.
+    bool update(const cv::Mat &gray, int rotation, std::vector<Detection> &detections,
+                DetectionTimings *timings = nullptr, TrackerFrameStats *stats = nullptr);
+
+    // Olvida las pistas; el siguiente cuadro hace una deteccion completa.
+    void reset();
+
+private:
+    struct Track {
+        int id;
+        cv::Rect face;
+        // Rasgos en coordenadas absolutas, en el mismo orden que detectFeatures
+        std::vector<Detection> features;
+        int misses;
+    };
+
+    bool detectAll(const cv::Mat &work, double scale, DetectionTimings *timings, TrackerFrameStats *stats);
+    bool searchLocal(const cv::Mat &work, double scale, Track &track);
+    void output(std::vector<Detection> &detections) const;
+
+    CascadePaths paths;
+    DetectionParams params;
+    TrackerParams trackerParams;
+    std::vector<Track> tracks;
+    int nextId = 0;
+    int framesSinceFull = 0;
+    bool needsFull = true;
+};
+
+#endif //PROJECTPARTEII_FACE_TRACKER_H
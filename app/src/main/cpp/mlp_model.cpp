@@ -0,0 +1,163 @@
+#include "mlp_model.h"
+#include "model_pack.h"
+
+#include <opencv2/ml.hpp>
+#include <cmath>
+
+#define LOG_TAG "MlpModel"
+#include "native_log.h"
+
+using namespace cv;
+using namespace std;
+using namespace cv::ml;
+using namespace modelpack;
+
+namespace {
+
+class XmlMlpModel : public MlpModel {
+public:
+    explicit XmlMlpModel(const Ptr<ANN_MLP> &model) : model(model) {}
+
+    int inputSize() const override {
+        return model->getLayerSizes().at<int>(0);
+    }
+
+    void predict(const Mat &samples, Mat &responses) const override {
+        model->predict(samples, responses);
+    }
+
+private:
+    Ptr<ANN_MLP> model;
+};
+
+// Misma propagacion que ANN_MLP::predict (escalado de entrada, capas con sesgo en la
+// ultima fila, activacion, escalado de salida) pero sobre los pesos del archivo mapeado.
+class PackedMlpModel : public MlpModel {
+public:
+    PackedMlpModel(const shared_ptr<ModelPack> &pack, const MlpHeader *header)
+            : pack(pack), header(header) {
+        const int32_t *sizes = reinterpret_cast<const int32_t *>(header + 1);
+        layerSizes.assign(sizes, sizes + header->layerCount);
+        size_t sizesBytes = ((header->layerCount * sizeof(int32_t)) + 7) & ~(size_t) 7;
+        const double *cursor = reinterpret_cast<const double *>(
+                reinterpret_cast<const uint8_t *>(sizes) + sizesBytes);
+        inputScale = cursor;
+        cursor += 2 * layerSizes.front();
+        outputScale = cursor;
+        cursor += 2 * layerSizes.back();
+        for (size_t i = 1; i < layerSizes.size(); i++) {
+            // Mat de solo lectura sobre la memoria mapeada, sin copiar
+            weights.push_back(Mat(layerSizes[i - 1] + 1, layerSizes[i], CV_64F, const_cast<double *>(cursor)));
+            cursor += (layerSizes[i - 1] + 1) * layerSizes[i];
+        }
+    }
+
+    static size_t expectedSize(const MlpHeader *header, size_t available) {
+        if (available < sizeof(MlpHeader)) {
+            return SIZE_MAX;
+        }
+        size_t sizesBytes = ((header->layerCount * sizeof(int32_t)) + 7) & ~(size_t) 7;
+        if (header->layerCount < 2 || available < sizeof(MlpHeader) + sizesBytes) {
+            return SIZE_MAX;
+        }
+        const int32_t *sizes = reinterpret_cast<const int32_t *>(header + 1);
+        size_t doubles = 2 * (size_t) sizes[0] + 2 * (size_t) sizes[header->layerCount - 1];
+        for (uint32_t i = 1; i < header->layerCount; i++) {
+            doubles += (size_t) (sizes[i - 1] + 1) * sizes[i];
+        }
+        return sizeof(MlpHeader) + sizesBytes + doubles * sizeof(double);
+    }
+
+    int inputSize() const override {
+        return layerSizes.front();
+    }
+
+    void predict(const Mat &samples, Mat &responses) const override {
+        CV_Assert(samples.type() == CV_32F && samples.cols == layerSizes.front());
+        int outputs = layerSizes.back();
+        responses.create(samples.rows, outputs, CV_32F);
+
+        Mat layerIn(samples.rows, samples.cols, CV_64F);
+        for (int r = 0; r < samples.rows; r++) {
+            const float *src = samples.ptr<float>(r);
+            double *dst = layerIn.ptr<double>(r);
+            for (int j = 0; j < samples.cols; j++) {
+                dst[j] = src[j] * inputScale[j * 2] + inputScale[j * 2 + 1];
+            }
+        }
+
+        Mat layerOut;
+        for (size_t i = 0; i < weights.size(); i++) {
+            const Mat &w = weights[i];
+            gemm(layerIn, w.rowRange(0, layerIn.cols), 1, noArray(), 0, layerOut);
+            activate(layerOut, w.ptr<double>(w.rows - 1));
+            std::swap(layerIn, layerOut);
+        }
+
+        for (int r = 0; r < samples.rows; r++) {
+            const double *src = layerIn.ptr<double>(r);
+            float *dst = responses.ptr<float>(r);
+            for (int j = 0; j < outputs; j++) {
+                dst[j] = (float) (src[j] * outputScale[j * 2] + outputScale[j * 2 + 1]);
+            }
+        }
+    }
+
+private:
+    // SIGMOID_SYM, la unica activacion que usa el modelo entrenado
+    void activate(Mat &sums, const double *bias) const {
+        double scale = -header->fParam1;
+        double scale2 = header->fParam2;
+        for (int r = 0; r < sums.rows; r++) {
+            double *data = sums.ptr<double>(r);
+            for (int j = 0; j < sums.cols; j++) {
+                double e = std::exp((data[j] + bias[j]) * scale);
+                data[j] = std::isinf(e) ? -scale2 : scale2 * (1. - e) / (1. + e);
+            }
+        }
+    }
+
+    shared_ptr<ModelPack> pack;
+    const MlpHeader *header;
+    vector<int> layerSizes;
+    const double *inputScale;
+    const double *outputScale;
+    vector<Mat> weights;
+};
+
+}
+
+unique_ptr<MlpModel> loadXmlMlpModel(const string &modelPath) {
+    Ptr<ANN_MLP> model = ANN_MLP::load(modelPath);
+    if (model.empty()) {
+        LOGE("Error loading model");
+        return nullptr;
+    }
+    return unique_ptr<MlpModel>(new XmlMlpModel(model));
+}
+
+unique_ptr<MlpModel> loadPackedMlpModel(const shared_ptr<ModelPack> &pack, const string &name) {
+    const SectionEntry *section = pack->find(name, SECTION_MLP);
+    if (section == nullptr) {
+        return nullptr;
+    }
+    const MlpHeader *header = reinterpret_cast<const MlpHeader *>(pack->data(*section));
+    if (header->activation != (uint32_t) ml::ANN_MLP::SIGMOID_SYM ||
+        PackedMlpModel::expectedSize(header, (size_t) section->size) > section->size) {
+        LOGE("Unsupported MLP section: %s", name.c_str());
+        return nullptr;
+    }
+    return unique_ptr<MlpModel>(new PackedMlpModel(pack, header));
+}
+
+unique_ptr<MlpModel> loadMlpModel(const string &modelPath) {
+    shared_ptr<ModelPack> pack = ModelPack::openBeside(modelPath);
+    if (pack) {
+        unique_ptr<MlpModel> model = loadPackedMlpModel(pack, modelName(modelPath));
+        if (model) {
+            LOGI("Model loaded from %s", PACK_FILE_NAME);
+            return model;
+        }
+    }
+    return loadXmlMlpModel(modelPath);
+}
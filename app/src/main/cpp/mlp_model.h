@@ -0,0 +1,30 @@
+#ifndef PROJECTPARTEII_MLP_MODEL_H
+#define PROJECTPARTEII_MLP_MODEL_H
+
+#include <opencv2/core.hpp>
+#include <memory>
+#include <string>
+#include <vector>
+
+class ModelPack;
+
+// Red MLP usada por el clasificador. Puede venir del XML de OpenCV (ANN_MLP) o de la
+// seccion binaria de models.pack; ambas dan la misma respuesta para la misma entrada.
+class MlpModel {
+public:
+    virtual ~MlpModel() = default;
+
+    virtual int inputSize() const = 0;
+
+    // samples: una fila CV_32F por imagen. responses: una fila CV_32F por imagen.
+    virtual void predict(const cv::Mat &samples, cv::Mat &responses) const = 0;
+};
+
+// Primero busca la red en models.pack junto al XML; si no esta, carga el XML con ANN_MLP.
+std::unique_ptr<MlpModel> loadMlpModel(const std::string &modelPath);
+
+std::unique_ptr<MlpModel> loadXmlMlpModel(const std::string &modelPath);
+
+std::unique_ptr<MlpModel> loadPackedMlpModel(const std::shared_ptr<ModelPack> &pack, const std::string &name);
+
+#endif //PROJECTPARTEII_MLP_MODEL_H
@@ -0,0 +1,112 @@
+#include "model_pack.h"
+
+#include <fcntl.h>
+#include <sys/mman.h>
+#include <sys/stat.h>
+#include <unistd.h>
+#include <cstring>
+#include <map>
+#include <mutex>
+
+#define LOG_TAG "ModelPack"
+#include "native_log.h"
+
+using namespace cv;
+using namespace std;
+using namespace modelpack;
+
+shared_ptr<ModelPack> ModelPack::open(const string &path) {
+    int fd = ::open(path.c_str(), O_RDONLY);
+    if (fd < 0) {
+        return nullptr;
+    }
+    struct stat st;
+    if (fstat(fd, &st) != 0 || (size_t) st.st_size < sizeof(PackHeader)) {
+        close(fd);
+        return nullptr;
+    }
+    size_t length = (size_t) st.st_size;
+    void *base = mmap(nullptr, length, PROT_READ, MAP_PRIVATE, fd, 0);
+    close(fd);
+    if (base == MAP_FAILED) {
+        LOGE("Error mapping model pack: %s", path.c_str());
+        return nullptr;
+    }
+
+    shared_ptr<ModelPack> pack(new ModelPack(base, length));
+    const PackHeader *header = static_cast<const PackHeader *>(base);
+    if (memcmp(header->magic, PACK_MAGIC, sizeof(PACK_MAGIC)) != 0 || header->version != PACK_VERSION) {
+        LOGE("Unsupported model pack version in %s", path.c_str());
+        return nullptr;
+    }
+    size_t tableEnd = sizeof(PackHeader) + (size_t) header->sectionCount * sizeof(SectionEntry);
+    if (tableEnd > length) {
+        LOGE("Truncated model pack: %s", path.c_str());
+        return nullptr;
+    }
+    const SectionEntry *sections = reinterpret_cast<const SectionEntry *>(header + 1);
+    for (uint32_t i = 0; i < header->sectionCount; i++) {
+        if (sections[i].offset > length || sections[i].size > length - sections[i].offset) {
+            LOGE("Truncated model pack: %s", path.c_str());
+            return nullptr;
+        }
+    }
+    return pack;
+}
+
+shared_ptr<ModelPack> ModelPack::openBeside(const string &modelPath) {
+    static std::mutex cacheMutex;
+    static map<string, shared_ptr<ModelPack>> cache;
+
+    size_t slash = modelPath.find_last_of('/');
+    string dir = slash == string::npos ? string(".") : modelPath.substr(0, slash);
+    string packPath = dir + "/" + PACK_FILE_NAME;
+
+    lock_guard<std::mutex> lock(cacheMutex);
+    auto it = cache.find(packPath);
+    if (it != cache.end()) {
+        return it->second;
+    }
+    shared_ptr<ModelPack> pack = open(packPath);
+    if (pack) {
+        cache[packPath] = pack;
+    }
+    return pack;
+}
+
+ModelPack::~ModelPack() {
+    munmap(base, length);
+}
+
+const SectionEntry *ModelPack::find(const string &name, uint32_t type) const {
+    const PackHeader *header = static_cast<const PackHeader *>(base);
+    const SectionEntry *sections = reinterpret_cast<const SectionEntry *>(header + 1);
+    for (uint32_t i = 0; i < header->sectionCount; i++) {
+        if (sections[i].type == type &&
+            strncmp(sections[i].name, name.c_str(), sizeof(sections[i].name)) == 0) {
+            return &sections[i];
+        }
+    }
+    return nullptr;
+}
+
+bool ModelPack::loadCascade(const string &name, CascadeClassifier &classifier) const {
+    const SectionEntry *section = find(name, SECTION_CASCADE);
+    if (section == nullptr) {
+        return false;
+    }
+    String xml(reinterpret_cast<const char *>(data(*section)), (size_t) section->size);
+    FileStorage fs(xml, FileStorage::READ | FileStorage::MEMORY);
+    if (!fs.isOpened() || !classifier.read(fs.getFirstTopLevelNode())) {
+        LOGE("Error reading cascade section: %s", name.c_str());
+        return false;
+    }
+    return true;
+}
+
+string modelName(const string &path) {
+    size_t slash = path.find_last_of('/');
+    string name = slash == string::npos ? path : path.substr(slash + 1);
+    size_t dot = name.find_last_of('.');
+    return dot == string::npos ? name : name.substr(0, dot);
+}
@@ -0,0 +1,87 @@
+#ifndef PROJECTPARTEII_MODEL_PACK_H
+#define PROJECTPARTEII_MODEL_PACK_H
+
+#include <opencv2/objdetect.hpp>
+#include <cstdint>
+#include <memory>
+#include <string>
+
+// Formato binario precompilado de los modelos (models.pack), generado en tiempo de build
+// por tools/host/modelpack_convert a partir de los XML de assets.
+//
+//   PackHeader | SectionEntry[sectionCount] | secciones alineadas a PACK_ALIGNMENT
+//
+// Las secciones MLP guardan los pesos del ANN_MLP como doubles listos para usarse
+// directamente desde el archivo mapeado en memoria. Las secciones de cascada guardan el
+// XML compactado (sin comentarios ni indentacion) porque CascadeClassifier solo se puede
+// construir a partir de un FileStorage; aun asi se lee desde memoria, sin copiar el archivo.
+namespace modelpack {
+
+const char PACK_MAGIC[4] = {'P', 'M', 'P', 'K'};
+const uint32_t PACK_VERSION = 1;
+const uint32_t PACK_ALIGNMENT = 64;
+const char PACK_FILE_NAME[] = "models.pack";
+
+enum SectionType : uint32_t {
+    SECTION_CASCADE = 1,
+    SECTION_MLP = 2
+};
+
+struct PackHeader {
+    char magic[4];
+    uint32_t version;
+    uint32_t sectionCount;
+    uint32_t reserved;
+};
+
+struct SectionEntry {
+    char name[48];
+    uint32_t type;
+    uint32_t reserved;
+    uint64_t offset;
+    uint64_t size;
+};
+
+// Seccion MLP: MlpHeader, int32 layerSizes[layerCount] (rellenado a 8 bytes), luego
+// double inputScale[2 * n0], double outputScale[2 * nL] y, por cada capa i = 1..L-1,
+// double weights[(n(i-1) + 1) * n(i)] en el mismo orden que ANN_MLP::getWeights(i).
+struct MlpHeader {
+    uint32_t activation;
+    uint32_t layerCount;
+    double fParam1;
+    double fParam2;
+};
+
+}
+
+class ModelPack {
+public:
+    ~ModelPack();
+
+    // Mapea el archivo en memoria y valida la cabecera; devuelve nullptr si no existe,
+    // si la version no coincide o si esta truncado.
+    static std::shared_ptr<ModelPack> open(const std::string &path);
+
+    // models.pack en la misma carpeta que el XML indicado. Los paquetes abiertos quedan en cache.
+    static std::shared_ptr<ModelPack> openBeside(const std::string &modelPath);
+
+    const modelpack::SectionEntry *find(const std::string &name, uint32_t type) const;
+
+    const uint8_t *data(const modelpack::SectionEntry &section) const {
+        return static_cast<const uint8_t *>(base) + section.offset;
+    }
+
+    // Construye la cascada a partir de su seccion. Devuelve false si no esta en el paquete.
+    bool loadCascade(const std::string &name, cv::CascadeClassifier &classifier) const;
+
+private:
+    ModelPack(void *base, size_t length) : base(base), length(length) {}
+
+    void *base;
+    size_t length;
+};
+
+// Nombre con el que un XML se guarda en el paquete: el nombre del archivo sin extension.
+std::string modelName(const std::string &path);
+
+#endif //PROJECTPARTEII_MODEL_PACK_H
@@ -1,23 +1,40 @@
 #include <jni.h>
 #include <opencv2/opencv.hpp>
 #include <android/bitmap.h>
+#include <algorithm>
+#include <memory>
+#include <mutex>
 #include <vector>
-#include <android/log.h>
-#include <sstream>
+
+#include "bitmap_view.h"
+#include "cascade_registry.h"
+#include "classifier.h"
+#include "face_detector.h"
+#include "face_tracker.h"
+#include "pipeline_metrics.h"
 
 #define LOG_TAG "Predict"
-#define LOGE(...) __android_log_print(ANDROID_LOG_ERROR, LOG_TAG, __VA_ARGS__)
-#define LOGI(...) __android_log_print(ANDROID_LOG_INFO, LOG_TAG, __VA_ARGS__)
+#include "native_log.h"
 
 
 using namespace cv;
 using namespace std;
-using namespace cv::ml;
 
-string faceCascadePath;
-string eyeCascadePath;
-string noseCascadePath;
-string mouthCascadePath;
+// initCascadePaths escribe en el hilo del instalador y las detecciones leen desde otros
+// hilos: siempre se accede con el candado y las detecciones trabajan con una copia
+static std::mutex cascadePathsMutex;
+static CascadePaths cascadePaths;
+
+static CascadePaths currentCascadePaths() {
+    lock_guard<std::mutex> lock(cascadePathsMutex);
+    return cascadePaths;
+}
+
+void throwJavaException(JNIEnv *env, const char *message) {
+    jclass je = env->FindClass("java/lang/Exception");
+    env->ThrowNew(je, message);
+    LOGE("Exception in JNI code: %s", message);
+}
 
 void bitmapToMat(JNIEnv *env, jobject bitmap, cv::Mat &dst, jboolean needUnPremultiplyAlpha) {
     AndroidBitmapInfo info;
@@ -102,6 +119,34 @@ void matToBitmap(JNIEnv *env, cv::Mat src, jobject bitmap, jboolean needPremulti
     }
 }
 
+// Detecciones empaquetadas como int[] para DetectionResult
+static jintArray toDetectionArray(JNIEnv *env, const vector<Detection> &detections) {
+    static_assert(sizeof(jint) == sizeof(int), "jint must match int");
+    vector<int> packed;
+    packDetections(detections, packed);
+    jintArray result = env->NewIntArray((jsize) packed.size());
+    if (result != nullptr) {
+        env->SetIntArrayRegion(result, 0, (jsize) packed.size(), reinterpret_cast<const jint *>(packed.data()));
+    }
+    return result;
+}
+
+// Lee DetectionOptions.toPacked(); lanza una excepcion de Java si el arreglo no es valido
+bool readDetectionParams(JNIEnv *env, jfloatArray options, DetectionParams &params) {
+    if (options == nullptr) {
+        throwJavaException(env, "Detection options are required");
+        return false;
+    }
+    jfloat packed[PACKED_PARAMS_SIZE];
+    jsize size = env->GetArrayLength(options);
+    env->GetFloatArrayRegion(options, 0, min(size, (jsize) PACKED_PARAMS_SIZE), packed);
+    if (!unpackDetectionParams(packed, size, params)) {
+        throwJavaException(env, "Invalid detection options");
+        return false;
+    }
+    return true;
+}
+
 extern "C" JNIEXPORT void JNICALL
 Java_com_example_projectparteii_MainActivity_initCascadePaths(
         JNIEnv *env,
@@ -115,220 +160,374 @@ Java_com_example_projectparteii_MainActivity_initCascadePaths(
     const char *noseCascadeChars = env->GetStringUTFChars(noseCascade, 0);
     const char *mouthCascadeChars = env->GetStringUTFChars(mouthCascade, 0);
 
-    faceCascadePath = std::string(faceCascadeChars);
-    eyeCascadePath = std::string(eyeCascadeChars);
-    noseCascadePath = std::string(noseCascadeChars);
-    mouthCascadePath = std::string(mouthCascadeChars);
+    CascadePaths paths;
+    paths.face = std::string(faceCascadeChars);
+    paths.eye = std::string(eyeCascadeChars);
+    paths.nose = std::string(noseCascadeChars);
+    paths.mouth = std::string(mouthCascadeChars);
+    {
+        lock_guard<std::mutex> lock(cascadePathsMutex);
+        cascadePaths = paths;
+    }
 
     env->ReleaseStringUTFChars(faceCascade, faceCascadeChars);
     env->ReleaseStringUTFChars(eyeCascade, eyeCascadeChars);
     env->ReleaseStringUTFChars(noseCascade, noseCascadeChars);
     env->ReleaseStringUTFChars(mouthCascade, mouthCascadeChars);
 
-    LOGI("Face cascade path: %s", faceCascadePath.c_str());
-    LOGI("Eye cascade path: %s", eyeCascadePath.c_str());
-    LOGI("Nose cascade path: %s", noseCascadePath.c_str());
-    LOGI("Mouth cascade path: %s", mouthCascadePath.c_str());
+    LOGI("Face cascade path: %s", paths.face.c_str());
+    LOGI("Eye cascade path: %s", paths.eye.c_str());
+    LOGI("Nose cascade path: %s", paths.nose.c_str());
+    LOGI("Mouth cascade path: %s", paths.mouth.c_str());
+
+    // No se carga nada aqui: cada cascada se parsea la primera vez que una deteccion la pide,
+    // asi las de los rasgos que nunca se usan no ocupan memoria
+}
+
+extern "C" JNIEXPORT void JNICALL
+Java_com_example_projectparteii_MainActivity_releaseCascades(
+        JNIEnv *env,
+        jobject /* this */) {
+    CascadeRegistry::instance().release();
+}
+
+extern "C" JNIEXPORT jboolean JNICALL
+Java_com_example_projectparteii_MainActivity_reloadCascades(
+        JNIEnv *env,
+        jobject /* this */) {
+    return CascadeRegistry::instance().reload() ? JNI_TRUE : JNI_FALSE;
 }
 
-extern "C" JNIEXPORT jstring JNICALL
+extern "C" JNIEXPORT jintArray JNICALL
 Java_com_example_projectparteii_MainActivity_detectFaces(
         JNIEnv *env,
         jobject instance,
         jobject bitmapIn,
-        jobject bitmapOut) {
-
-    // Verificar
-    CascadeClassifier faceCascade, eyesCascade, noseCascade, mouthCascade;
-    if (!faceCascade.load(faceCascadePath) || !eyesCascade.load(eyeCascadePath) ||
-        !noseCascade.load(noseCascadePath) || !mouthCascade.load(mouthCascadePath)) {
-        LOGE("Error loading cascades");
-        return env->NewStringUTF("Error loading cascades");
+        jobject bitmapOut,
+        jfloatArray options) {
+
+    ScopedMetricTimer total(TIMER_DETECT_TOTAL);
+    PipelineMetrics &metrics = PipelineMetrics::instance();
+    DetectionParams params;
+    if (!readDetectionParams(env, options, params)) {
+        return nullptr;
     }
 
-    Mat img;
-    bitmapToMat(env, bitmapIn, img, false);
-
-    Mat gray;
-    cvtColor(img, gray, COLOR_RGBA2GRAY);
-
-    GaussianBlur(gray, gray, Size(5, 5), 1.5);
-    equalizeHist(gray, gray);
-
-    // Rostros
-    vector<Rect> faces;
-    faceCascade.detectMultiScale(gray, faces, 1.1, 5, 0 | CASCADE_SCALE_IMAGE, Size(30, 30));
-
-    std::stringstream detectionResults;
-
-    for (size_t i = 0; i < faces.size(); i++) {
-        rectangle(img, faces[i], Scalar(0, 0, 255), 3); // Rojo para rostros (BGR: 0, 0, 255)
-        detectionResults << "Face: " << faces[i].x << ", " << faces[i].y << ", " << faces[i].width << ", " << faces[i].height << "\n";
-
-        Mat faceROI = gray(faces[i]);
-        vector<Rect> eyes, nose, mouths;
-
-        // Ojos
-        eyesCascade.detectMultiScale(faceROI, eyes, 1.1, 5, 0 | CASCADE_SCALE_IMAGE, Size(20, 20));
-        for (size_t j = 0; j < eyes.size(); j++) {
-            Rect eyeRect = Rect(faces[i].x + eyes[j].x, faces[i].y + eyes[j].y, eyes[j].width, eyes[j].height);
-            rectangle(img, eyeRect, Scalar(255, 0, 255), 3); // Morado para ojos (BGR: 255, 0, 255)
-            detectionResults << "Eye: " << eyeRect.x << ", " << eyeRect.y << ", " << eyeRect.width << ", " << eyeRect.height << "\n";
+    vector<Detection> detections;
+    DetectionTimings timings;
+    try {
+        // La entrada se lee directamente de los pixeles del Bitmap
+        BitmapView input(env, bitmapIn);
+        Mat converted;
+        if (!input.valid()) {
+            bitmapToMat(env, bitmapIn, converted, false);
+            // bitmapToMat ya dejo la excepcion pendiente; no se llama mas a JNI
+            if (env->ExceptionCheck()) {
+                return nullptr;
+            }
+            metrics.add(COUNTER_BYTES_COPIED, (int64_t) (converted.total() * converted.elemSize()));
         }
+        const Mat &img = input.valid() ? input.mat() : converted;
 
-        // Nariz
-        noseCascade.detectMultiScale(faceROI, nose, 1.1, 5, 0 | CASCADE_SCALE_IMAGE, Size(20, 20));
-        for (size_t k = 0; k < nose.size(); k++) {
-            Rect noseRect = Rect(faces[i].x + nose[k].x, faces[i].y + nose[k].y, nose[k].width, nose[k].height);
-            rectangle(img, noseRect, Scalar(0, 255, 0), 3); // Verde para nariz (BGR: 0, 255, 0)
-            detectionResults << "Nose: " << noseRect.x << ", " << noseRect.y << ", " << noseRect.width << ", " << noseRect.height << "\n";
+        if (!detectFeatures(img, currentCascadePaths(), params, detections, &timings)) {
+            LOGE("Error loading cascades");
+            throwJavaException(env, "Error loading cascades");
+            return nullptr;
         }
-
-        // Boca
-        // Ajustar el ROI para la boca a la mitad inferior del rostro
-        Mat lowerFaceROI = faceROI(Rect(0, faceROI.rows / 2, faceROI.cols, faceROI.rows / 2));
-        mouthCascade.detectMultiScale(lowerFaceROI, mouths, 1.1, 5, 0 | CASCADE_SCALE_IMAGE, Size(30, 30));
-        for (size_t j = 0; j < mouths.size(); j++) {
-            Rect mouthRect = Rect(faces[i].x + mouths[j].x, faces[i].y + faces[i].height / 2 + mouths[j].y, mouths[j].width, mouths[j].height);
-            rectangle(img, mouthRect, Scalar(0, 0, 255), 4); // Rojo para boca (BGR: 0, 0, 255)
-            detectionResults << "Mouth: " << mouthRect.x << ", " << mouthRect.y << ", " << mouthRect.width << ", " << mouthRect.height << "\n";
+        metrics.recordMs(TIMER_DETECT_PREPROCESS, timings.preprocessMs);
+        metrics.recordMs(TIMER_DETECT_CASCADES, timings.cascadesMs + timings.detectMs);
+
+        // Una sola copia hacia el Bitmap de salida y los rectangulos se dibujan ahi mismo
+        ScopedMetricTimer draw(TIMER_DETECT_DRAW);
+        BitmapView output(env, bitmapOut);
+        if (output.valid()) {
+            CV_Assert(output.mat().size() == img.size());
+            img.copyTo(output.mat());
+            drawDetections(output.mat(), detections);
+            metrics.add(COUNTER_BYTES_COPIED, (int64_t) (img.total() * img.elemSize()));
+        } else {
+            Mat annotated = img.clone();
+            drawDetections(annotated, detections);
+            matToBitmap(env, annotated, bitmapOut, false);
+            if (env->ExceptionCheck()) {
+                return nullptr;
+            }
+            metrics.add(COUNTER_BYTES_COPIED, (int64_t) (2 * img.total() * img.elemSize()));
         }
+    } catch (const cv::Exception &e) {
+        throwJavaException(env, e.what());
+        return nullptr;
     }
 
-    matToBitmap(env, img, bitmapOut, false);
+    int64_t faces = count_if(detections.begin(), detections.end(), [](const Detection &d) {
+        return d.type == DETECTION_FACE;
+    });
+    metrics.add(COUNTER_FACES, faces);
+    metrics.add(COUNTER_FEATURES, (int64_t) detections.size() - faces);
+    LOGI("detectFaces: cascades %.2f ms, preprocess %.2f ms, detection %.2f ms",
+         timings.cascadesMs, timings.preprocessMs, timings.detectMs);
 
-    return env->NewStringUTF(detectionResults.str().c_str());
+    // Registros de enteros; el texto se arma en Java solo cuando hace falta
+    return toDetectionArray(env, detections);
 }
 
+extern "C" JNIEXPORT jintArray JNICALL
+Java_com_example_projectparteii_LiveFaceAnalyzer_nativeDetectFrame(
+        JNIEnv *env,
+        jclass clazz,
+        jlong trackerHandle,
+        jobject yPlane,
+        jint width,
+        jint height,
+        jint rowStride,
+        jint rotationDegrees,
+        jfloatArray options,
+        jfloatArray timingsOut) {
+
+    // El plano Y del cuadro ya es la imagen en escala de grises: se envuelve sin copiarlo
+    uchar *pixels = static_cast<uchar *>(env->GetDirectBufferAddress(yPlane));
+    if (pixels == nullptr) {
+        throwJavaException(env, "Y plane must be a direct buffer");
+        return nullptr;
+    }
 
+    DetectionParams params;
+    if (!readDetectionParams(env, options, params)) {
+        return nullptr;
+    }
 
-const Size IMG_SIZE = Size(28, 28);
-vector<string> category_labels = {"Camiseta/Top", "Pantalón", "Jersey", "Vestido", "Abrigo",
-                                  "Sandalia", "Camisa", "Zapatilla", "Bolso", "Bota"};
-
-void computeHOG(Mat& img, vector<float>& descriptors) {
-    HOGDescriptor hog(
-            IMG_SIZE,
-            Size(14, 14),
-            Size(7, 7),
-            Size(7, 7),
-            9
-    );
-    hog.compute(img, descriptors);
-}
+    vector<Detection> detections;
+    DetectionTimings timings;
+    TrackerFrameStats trackerStats;
+    try {
+        Mat gray(height, width, CV_8UC1, pixels, (size_t) rowStride);
+        // Con seguidor, la deteccion completa solo corre cada pocos cuadros
+        FaceTracker *tracker = reinterpret_cast<FaceTracker *>(trackerHandle);
+        bool loaded = tracker != nullptr
+                      ? tracker->update(gray, rotationDegrees, detections, &timings, &trackerStats)
+                      : detectFeaturesGray(gray, rotationDegrees, currentCascadePaths(), params, detections, &timings);
+        if (!loaded) {
+            LOGE("Error loading cascades");
+            throwJavaException(env, "Error loading cascades");
+            return nullptr;
+        }
+        if (tracker == nullptr) {
+            // Sin seguimiento: cascada de rostros y las de los rasgos pedidos por rostro
+            int faces = (int) count_if(detections.begin(), detections.end(), [](const Detection &detection) {
+                return detection.type == DETECTION_FACE;
+            });
+            trackerStats.cascadeInvocations = 1 + featureCascadeCount(params) * faces;
+        }
+    } catch (const cv::Exception &e) {
+        throwJavaException(env, e.what());
+        return nullptr;
+    }
 
-void removeWhiteBackground(Mat& img, Mat& output) {
-    // Metodo similar a la de la parte 1 del proyecto
-    Mat bgr;
-    cvtColor(img, bgr, COLOR_RGBA2BGR);
+    if (timingsOut != nullptr) {
+        jfloat stageMs[] = {(jfloat) timings.cascadesMs, (jfloat) timings.preprocessMs, (jfloat) timings.detectMs,
+                            (jfloat) trackerStats.cascadeInvocations};
+        env->SetFloatArrayRegion(timingsOut, 0, 4, stageMs);
+    }
 
-    Mat hsv;
-    cvtColor(bgr, hsv, COLOR_BGR2HSV);
+    return toDetectionArray(env, detections);
+}
 
+extern "C" JNIEXPORT jlong JNICALL
+Java_com_example_projectparteii_LiveFaceAnalyzer_nativeCreateTracker(JNIEnv *env, jclass clazz,
+                                                                     jint fullDetectionInterval,
+                                                                     jfloatArray options) {
+    DetectionParams params;
+    if (!readDetectionParams(env, options, params)) {
+        return 0;
+    }
+    TrackerParams trackerParams;
+    trackerParams.fullDetectionInterval = fullDetectionInterval;
+    return reinterpret_cast<jlong>(new FaceTracker(currentCascadePaths(), params, trackerParams));
+}
 
-    Scalar lower_white(0, 0, 200);
-    Scalar upper_white(180, 20, 255);
+extern "C" JNIEXPORT void JNICALL
+Java_com_example_projectparteii_LiveFaceAnalyzer_nativeReleaseTracker(JNIEnv *env, jclass clazz, jlong handle) {
+    delete reinterpret_cast<FaceTracker *>(handle);
+}
 
+extern "C" JNIEXPORT jlong JNICALL
+Java_com_example_projectparteii_ClassifierSession_nativeOpen(JNIEnv *env, jclass clazz, jstring modelPath) {
+    //cargar el modelo una sola vez
+    const char *modelPathChars = env->GetStringUTFChars(modelPath, 0);
+    ClassifierSession *session = new ClassifierSession();
+    double start = (double) getTickCount();
+    bool opened = session->open(modelPathChars);
+    env->ReleaseStringUTFChars(modelPath, modelPathChars);
 
-    Mat mask;
-    inRange(hsv, lower_white, upper_white, mask);
+    if (!opened) {
+        delete session;
+        return 0;
+    }
+    session->warmUp();
+    double openMs = ((double) getTickCount() - start) * 1000.0 / getTickFrequency();
+    LOGI("Model loaded and warmed up in %.2f ms", openMs);
+    return reinterpret_cast<jlong>(session);
+}
 
+extern "C" JNIEXPORT void JNICALL
+Java_com_example_projectparteii_ClassifierSession_nativeClose(JNIEnv *env, jclass clazz, jlong handle) {
+    delete reinterpret_cast<ClassifierSession *>(handle);
+}
 
-    bitwise_not(mask, mask);
+// Copia etiquetas, confianzas y respuestas completas del lote a los arreglos primitivos de
+// Java; scoresOut tiene una fila de categorias por imagen
+static void writeBatchResults(JNIEnv *env, const vector<int> &labels, const vector<float> &confidences,
+                              const Mat &scores, jintArray labelsOut, jfloatArray confidencesOut,
+                              jfloatArray scoresOut) {
+    env->SetIntArrayRegion(labelsOut, 0, (jsize) labels.size(), labels.data());
+    env->SetFloatArrayRegion(confidencesOut, 0, (jsize) confidences.size(), confidences.data());
+    if (scores.empty()) {
+        return;
+    }
+    if (env->GetArrayLength(scoresOut) != (jsize) scores.total()) {
+        throwJavaException(env, "Model output size does not match the number of categories");
+        return;
+    }
+    Mat continuous = scores.isContinuous() ? scores : scores.clone();
+    env->SetFloatArrayRegion(scoresOut, 0, (jsize) continuous.total(), continuous.ptr<float>(0));
+}
 
-    Mat kernel = getStructuringElement(MORPH_ELLIPSE, Size(5, 5));
-    morphologyEx(mask, mask, MORPH_CLOSE, kernel);
-    morphologyEx(mask, mask, MORPH_OPEN, kernel);
+extern "C" JNIEXPORT void JNICALL
+Java_com_example_projectparteii_ClassifierSession_nativePredictBatch(JNIEnv *env, jclass clazz, jlong handle,
+                                                                     jobjectArray bitmaps, jintArray labelsOut,
+                                                                     jfloatArray confidencesOut,
+                                                                     jfloatArray scoresOut) {
+    ClassifierSession *session = reinterpret_cast<ClassifierSession *>(handle);
+    jsize count = env->GetArrayLength(bitmaps);
+    if (env->PushLocalFrame(count + 16) < 0) {
+        return;
+    }
+    try {
+        // Todos los bitmaps quedan bloqueados mientras dura el lote; se leen sin copiarlos
+        vector<unique_ptr<BitmapView>> views;
+        vector<Mat> images(count);
+        for (jsize i = 0; i < count; i++) {
+            views.emplace_back(new BitmapView(env, env->GetObjectArrayElement(bitmaps, i)));
+            if (views.back()->valid()) {
+                images[i] = views.back()->mat();
+            }
+        }
 
-    img.copyTo(output, mask);
+        vector<int> labels;
+        vector<float> confidences;
+        Mat scores;
+        session->classifyBatch(images, labels, confidences, &scores);
+        writeBatchResults(env, labels, confidences, scores, labelsOut, confidencesOut, scoresOut);
+    } catch (const cv::Exception &e) {
+        throwJavaException(env, e.what());
+    }
+    env->PopLocalFrame(nullptr);
 }
-extern "C" JNIEXPORT jstring JNICALL
-Java_com_example_projectparteii_MainActivity_predict(JNIEnv *env, jobject instance, jobject bitmap, jstring modelPath) {
-    Mat img;
-    AndroidBitmapInfo info;
-    void* pixels = 0;
-    CV_Assert(AndroidBitmap_getInfo(env, bitmap, &info) >= 0);
-    CV_Assert(info.format == ANDROID_BITMAP_FORMAT_RGBA_8888);
-    CV_Assert(AndroidBitmap_lockPixels(env, bitmap, &pixels) >= 0);
-    img.create(info.height, info.width, CV_8UC4);
-    Mat tmp(info.height, info.width, CV_8UC4, pixels);
-    tmp.copyTo(img);
-    AndroidBitmap_unlockPixels(env, bitmap);
 
-    //quitar el fondo blanco
-    Mat preprocessed;
-    removeWhiteBackground(img, preprocessed);
+extern "C" JNIEXPORT void JNICALL
+Java_com_example_projectparteii_ClassifierSession_nativePredictFiles(JNIEnv *env, jclass clazz, jlong handle,
+                                                                     jobjectArray paths, jintArray labelsOut,
+                                                                     jfloatArray confidencesOut,
+                                                                     jfloatArray scoresOut) {
+    ClassifierSession *session = reinterpret_cast<ClassifierSession *>(handle);
+    jsize count = env->GetArrayLength(paths);
+    vector<string> files(count);
+    for (jsize i = 0; i < count; i++) {
+        jstring path = (jstring) env->GetObjectArrayElement(paths, i);
+        const char *pathChars = env->GetStringUTFChars(path, 0);
+        files[i] = pathChars;
+        env->ReleaseStringUTFChars(path, pathChars);
+        env->DeleteLocalRef(path);
+    }
 
-    Mat gray;
-    cvtColor(preprocessed, gray, COLOR_RGBA2GRAY);
+    try {
+        vector<int> labels;
+        vector<float> confidences;
+        Mat scores;
+        session->classifyFiles(files, labels, confidences, &scores);
+        writeBatchResults(env, labels, confidences, scores, labelsOut, confidencesOut, scoresOut);
+    } catch (const cv::Exception &e) {
+        throwJavaException(env, e.what());
+    }
+}
 
-    resize(gray, gray, IMG_SIZE);
+// Resultados de nativePredict ademas de la etiqueta dibujada; mismos valores que
+// Prediction.STATUS_* en Java
+const jint PREDICT_FAILED = -1;
+const jint PREDICT_REJECTED = -2;
 
-    //cargar el modelo
-    const char *modelPathChars = env->GetStringUTFChars(modelPath, 0);
-    Ptr<ANN_MLP> model = ANN_MLP::load(modelPathChars);
-    env->ReleaseStringUTFChars(modelPath, modelPathChars);
+extern "C" JNIEXPORT jint JNICALL
+Java_com_example_projectparteii_ClassifierSession_nativePredict(JNIEnv *env, jclass clazz, jlong handle, jobject bitmap,
+                                                                jfloat minConfidence, jfloatArray scoresOut,
+                                                                jintArray boxOut) {
+    ClassifierSession *session = reinterpret_cast<ClassifierSession *>(handle);
+    ScopedMetricTimer total(TIMER_PREDICT_TOTAL);
+    PipelineMetrics &metrics = PipelineMetrics::instance();
 
-    if (model.empty()) {
-        LOGE("Error loading model");
-        return env->NewStringUTF("Error loading model");
-    }
+    int predictedLabel;
+    try {
+        // Se clasifica y se dibuja directamente sobre los pixeles del Bitmap, sin copias
+        BitmapView view(env, bitmap);
+        if (!view.valid()) {
+            throwJavaException(env, "predict requires an ARGB_8888 bitmap");
+            return PREDICT_FAILED;
+        }
 
-    //HOG
-    vector<float> descriptors;
-    computeHOG(gray, descriptors);
+        ClassifierTimings timings;
+        // El gris de la imagen completa sale del preprocesado y se reutiliza para el contorno
+        Mat fullGray;
+        vector<float> scores;
+        predictedLabel = session->classify(view.mat(), &timings, &fullGray, &scores);
+        metrics.recordMs(TIMER_PREDICT_PREPROCESS, timings.preprocessMs);
+        if (predictedLabel < 0) {
+            metrics.add(COUNTER_PREDICT_FAILURES, 1);
+            return PREDICT_FAILED;
+        }
+        metrics.recordMs(TIMER_PREDICT_HOG, timings.hogMs);
+        metrics.recordMs(TIMER_PREDICT_MLP, timings.mlpMs);
 
-    //que tenga el mismo dimencion
-    if (descriptors.size() != model->getLayerSizes().at<int>(0)) {
-        LOGE("El tamaño de los descriptores HOG (%zu) no coincide con el tamaño esperado por el modelo (%d).",
-             descriptors.size(), model->getLayerSizes().at<int>(0));
-        return env->NewStringUTF("Error: HOG descriptor size mismatch");
-    }
+        // La respuesta completa vuelve a Java para las confianzas y el top-k
+        if (env->GetArrayLength(scoresOut) != (jsize) scores.size()) {
+            throwJavaException(env, "Model output size does not match the number of categories");
+            return PREDICT_FAILED;
+        }
+        env->SetFloatArrayRegion(scoresOut, 0, (jsize) scores.size(), scores.data());
 
-    //convertir a Mat para predecir
-    Mat sample(1, static_cast<int>(descriptors.size()), CV_32F);
-    for (size_t j = 0; j < descriptors.size(); ++j) {
-        sample.at<float>(0, static_cast<int>(j)) = descriptors[j];
-    }
+        float confidence = responseConfidence(scores[predictedLabel]);
+        LOGI("Predicted label: %d, confidence %.3f", predictedLabel, confidence);
 
-    //predicción
-    Mat response;
-    model->predict(sample, response);
-    Point maxLoc;
-    minMaxLoc(response, 0, 0, 0, &maxLoc);
-    int predictedLabel = maxLoc.x;
-
-    LOGI("Predicted label: %d", predictedLabel);
-
-    //contorno de la prenda de vestir en la imagen original
-    cvtColor(img, gray, COLOR_RGBA2GRAY);
-    threshold(gray, gray, 0, 255, THRESH_BINARY_INV + THRESH_OTSU);
-
-    vector<vector<Point>> contours;
-    findContours(gray, contours, RETR_EXTERNAL, CHAIN_APPROX_SIMPLE);
-
-    if (!contours.empty()) {
-        size_t largestContourIdx = 0;
-        double largestArea = 0;
-        for (size_t i = 0; i < contours.size(); ++i) {
-            double area = contourArea(contours[i]);
-            if (area > largestArea) {
-                largestArea = area;
-                largestContourIdx = i;
-            }
+        // Con poca confianza no se dibuja: el contorno es la parte mas cara
+        if (confidence < minConfidence) {
+            metrics.add(COUNTER_PREDICT_REJECTED, 1);
+            return PREDICT_REJECTED;
         }
 
-        Rect boundingBox = cv::boundingRect(contours[largestContourIdx]);
-        rectangle(img, boundingBox, Scalar(0, 255, 0), 2);
-
-        double fontScale = 3.0;
-        int thickness = 3;
-        putText(img, category_labels[predictedLabel], Point(boundingBox.x, boundingBox.y - 10), FONT_HERSHEY_SIMPLEX, fontScale, Scalar(0, 255, 0), thickness);
+        ScopedMetricTimer annotate(TIMER_PREDICT_ANNOTATE);
+        Rect box = session->annotate(view.mat(), predictedLabel, fullGray);
+        // Recuadro dibujado (x, y, ancho, alto); queda en ceros si no hubo contorno
+        jint boxValues[] = {box.x, box.y, box.width, box.height};
+        env->SetIntArrayRegion(boxOut, 0, 4, boxValues);
+    } catch (const cv::Exception &e) {
+        throwJavaException(env, e.what());
+        return PREDICT_FAILED;
     }
 
+    //prediccion
+    return predictedLabel;
+}
 
-    matToBitmap(env, img, bitmap, false);
+extern "C" JNIEXPORT jlongArray JNICALL
+Java_com_example_projectparteii_PipelineMetrics_nativeSnapshot(JNIEnv *env, jclass clazz) {
+    vector<int64_t> packed;
+    PipelineMetrics::instance().snapshot(packed);
+    jlongArray result = env->NewLongArray((jsize) packed.size());
+    if (result != nullptr) {
+        env->SetLongArrayRegion(result, 0, (jsize) packed.size(), reinterpret_cast<const jlong *>(packed.data()));
+    }
+    return result;
+}
 
-    //prediccion
-    return env->NewStringUTF(category_labels[predictedLabel].c_str());
+extern "C" JNIEXPORT void JNICALL
+Java_com_example_projectparteii_PipelineMetrics_nativeReset(JNIEnv *env, jclass clazz) {
+    PipelineMetrics::instance().reset();
 }
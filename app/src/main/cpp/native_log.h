@@ -0,0 +1,16 @@
+#ifndef PROJECTPARTEII_NATIVE_LOG_H
+#define PROJECTPARTEII_NATIVE_LOG_H
+
+// Cada .cpp define LOG_TAG antes de incluir este archivo.
+// Fuera de Android (herramientas de host) los mensajes van a stderr.
+#ifdef __ANDROID__
+#include <android/log.h>
+#define LOGE(...) __android_log_print(ANDROID_LOG_ERROR, LOG_TAG, __VA_ARGS__)
+#define LOGI(...) __android_log_print(ANDROID_LOG_INFO, LOG_TAG, __VA_ARGS__)
+#else
+#include <cstdio>
+#define LOGE(...) (fprintf(stderr, "E/" LOG_TAG ": " __VA_ARGS__), fputc('\n', stderr))
+#define LOGI(...) (fprintf(stderr, "I/" LOG_TAG ": " __VA_ARGS__), fputc('\n', stderr))
+#endif
+
+#endif //PROJECTPARTEII_NATIVE_LOG_H
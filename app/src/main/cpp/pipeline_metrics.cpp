@@ -0,0 +1,73 @@
+#include "pipeline_metrics.h"
+
+using namespace std;
+
+namespace {
+
+int bucketFor(int64_t micros) {
+    int bucket = 0;
+    while (micros > 1 && bucket < METRIC_BUCKETS - 1) {
+        micros >>= 1;
+        bucket++;
+    }
+    return bucket;
+}
+
+}
+
+PipelineMetrics::Histogram::Histogram() {
+    for (atomic<int64_t> &bucket : buckets) {
+        bucket.store(0, memory_order_relaxed);
+    }
+}
+
+PipelineMetrics &PipelineMetrics::instance() {
+    static PipelineMetrics metrics;
+    return metrics;
+}
+
+void PipelineMetrics::record(MetricTimer timer, int64_t micros) {
+    if (micros < 0) {
+        micros = 0;
+    }
+    Histogram &histogram = timers[timer];
+    histogram.count.fetch_add(1, memory_order_relaxed);
+    histogram.sum.fetch_add(micros, memory_order_relaxed);
+    histogram.buckets[bucketFor(micros)].fetch_add(1, memory_order_relaxed);
+    int64_t previous = histogram.max.load(memory_order_relaxed);
+    while (micros > previous && !histogram.max.compare_exchange_weak(previous, micros, memory_order_relaxed)) {
+    }
+}
+
+void PipelineMetrics::snapshot(vector<int64_t> &packed) const {
+    packed.clear();
+    packed.reserve(3 + TIMER_COUNT * (3 + METRIC_BUCKETS) + COUNTER_COUNT);
+    packed.push_back(TIMER_COUNT);
+    packed.push_back(COUNTER_COUNT);
+    packed.push_back(METRIC_BUCKETS);
+    for (const Histogram &histogram : timers) {
+        packed.push_back(histogram.count.load(memory_order_relaxed));
+        packed.push_back(histogram.sum.load(memory_order_relaxed));
+        packed.push_back(histogram.max.load(memory_order_relaxed));
+        for (const atomic<int64_t> &bucket : histogram.buckets) {
+            packed.push_back(bucket.load(memory_order_relaxed));
+        }
+    }
+    for (const atomic<int64_t> &counter : counters) {
+        packed.push_back(counter.load(memory_order_relaxed));
+    }
+}
+
+void PipelineMetrics::reset() {
+    for (Histogram &histogram : timers) {
+        histogram.count.store(0, memory_order_relaxed);
+        histogram.sum.store(0, memory_order_relaxed);
+        histogram.max.store(0, memory_order_relaxed);
+        for (atomic<int64_t> &bucket : histogram.buckets) {
+            bucket.store(0, memory_order_relaxed);
+        }
+    }
+    for (atomic<int64_t> &counter : counters) {
+        counter.store(0, memory_order_relaxed);
+    }
+}
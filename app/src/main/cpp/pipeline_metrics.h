@@ -0,0 +1,99 @@
+#ifndef PROJECTPARTEII_PIPELINE_METRICS_H
+#define PROJECTPARTEII_PIPELINE_METRICS_H
+
+#include <atomic>
+#include <chrono>
+#include <cstdint>
+#include <vector>
+
+// Etapas medidas. El orden y los nombres deben coincidir con PipelineMetrics.TIMER_NAMES
+// en Java.
+enum MetricTimer {
+    TIMER_DETECT_TOTAL = 0,
+    TIMER_DETECT_PREPROCESS,
+    TIMER_DETECT_CASCADES,
+    TIMER_DETECT_DRAW,
+    TIMER_PREDICT_TOTAL,
+    TIMER_PREDICT_PREPROCESS,
+    TIMER_PREDICT_HOG,
+    TIMER_PREDICT_MLP,
+    TIMER_PREDICT_ANNOTATE,
+    TIMER_COUNT
+};
+
+// Contadores; mismo orden que PipelineMetrics.COUNTER_NAMES.
+enum MetricCounter {
+    COUNTER_FACES = 0,
+    COUNTER_FEATURES,
+    COUNTER_BYTES_COPIED,
+    COUNTER_PREDICT_FAILURES,
+    // Predicciones bajo el umbral de confianza, que no se dibujaron
+    COUNTER_PREDICT_REJECTED,
+    COUNTER_COUNT
+};
+
+// Cubetas del histograma: la i cubre [2^i, 2^(i+1)) microsegundos (la 0 incluye el 0) y
+// la ultima todo lo que pase de ~8 s.
+const int METRIC_BUCKETS = 24;
+
+// Metricas del procesamiento siempre activas. Cada registro son unas pocas operaciones
+// atomicas relajadas, sin bloqueos ni reservas de memoria, asi que se puede llamar desde
+// cualquier hilo en cada cuadro.
+class PipelineMetrics {
+public:
+    static PipelineMetrics &instance();
+
+    void record(MetricTimer timer, int64_t micros);
+
+    void recordMs(MetricTimer timer, double ms) { record(timer, (int64_t) (ms * 1000.0)); }
+
+    void add(MetricCounter counter, int64_t value) {
+        counters[counter].fetch_add(value, std::memory_order_relaxed);
+    }
+
+    // Copia plana de todo, el formato que lee PipelineMetrics.Snapshot en Java:
+    // [TIMER_COUNT, COUNTER_COUNT, METRIC_BUCKETS,
+    //  por temporizador: cantidad, suma us, maximo us, METRIC_BUCKETS cubetas,
+    //  los contadores]
+    // No es atomica en conjunto: un registro concurrente puede aparecer a medias.
+    void snapshot(std::vector<int64_t> &packed) const;
+
+    void reset();
+
+private:
+    struct Histogram {
+        std::atomic<int64_t> count{0};
+        std::atomic<int64_t> sum{0};
+        std::atomic<int64_t> max{0};
+        std::atomic<int64_t> buckets[METRIC_BUCKETS];
+
+        Histogram();
+    };
+
+    PipelineMetrics() = default;
+
+    Histogram timers[TIMER_COUNT];
+    std::atomic<int64_t> counters[COUNTER_COUNT] = {};
+};
+
+// Mide con el reloj monotono desde la construccion hasta la destruccion.
+class ScopedMetricTimer {
+public:
+    explicit ScopedMetricTimer(MetricTimer timer)
+            : timer(timer), start(std::chrono::steady_clock::now()) {}
+
+    ~ScopedMetricTimer() {
+        auto elapsed = std::chrono::steady_clock::now() - start;
+        PipelineMetrics::instance().record(
+                timer, std::chrono::duration_cast<std::chrono::microseconds>(elapsed).count());
+    }
+
+    ScopedMetricTimer(const ScopedMetricTimer &) = delete;
+    ScopedMetricTimer &operator=(const ScopedMetricTimer &) = delete;
+
+private:
+    MetricTimer timer;
+    std::chrono::steady_clock::time_point start;
+};
+
+#endif //PROJECTPARTEII_PIPELINE_METRICS_H
@@ -0,0 +1,207 @@
+package com.example.projectparteii;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.res.AssetManager;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Copia los modelos de assets a getFilesDir() fuera del hilo principal.
+ * <p>
+ * Guarda un manifiesto con la version de la app y el tamaño de cada archivo copiado; en los
+ * siguientes arranques solo se copian los archivos que faltan o que cambiaron.
+ */
+public class AssetInstaller {
+    private static final String TAG = "AssetInstaller";
+    private static final String MANIFEST_FILE = "assets.manifest";
+    private static final String VERSION_KEY = "version";
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    public interface Callback {
+        /**
+         * Se llama en el hilo de instalacion, asi que se pueden cargar los modelos ahi mismo
+         * antes de volver al hilo principal.
+         */
+        void onInstalled(boolean success);
+    }
+
+    private final Context context;
+    private final String[] requiredAssets;
+    private final String[] optionalAssets;
+
+    public AssetInstaller(Context context, String[] requiredAssets, String[] optionalAssets) {
+        this.context = context.getApplicationContext();
+        this.requiredAssets = requiredAssets;
+        this.optionalAssets = optionalAssets;
+    }
+
+    public void installAsync(final Callback callback) {
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                callback.onInstalled(install());
+            }
+        }, TAG).start();
+    }
+
+    /**
+     * Instala los assets en el hilo actual.
+     *
+     * @return false si algun asset obligatorio no se pudo copiar
+     */
+    public boolean install() {
+        long start = System.nanoTime();
+        File filesDir = context.getFilesDir();
+        String version = appVersion();
+        Manifest manifest = Manifest.read(new File(filesDir, MANIFEST_FILE));
+        boolean sameVersion = version.equals(manifest.version);
+
+        Map<String, Long> installed = new HashMap<>();
+        boolean success = true;
+        int copied = 0;
+        for (String filename : requiredAssets) {
+            File outFile = new File(filesDir, filename);
+            Long size = manifest.sizes.get(filename);
+            if (sameVersion && size != null && outFile.length() == size) {
+                installed.put(filename, size);
+                continue;
+            }
+            try {
+                installed.put(filename, copyAsset(filename, outFile));
+                copied++;
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to copy asset file: " + filename, e);
+                success = false;
+            }
+        }
+        for (String filename : optionalAssets) {
+            File outFile = new File(filesDir, filename);
+            Long size = manifest.sizes.get(filename);
+            // -1 indica que el asset no venia en el APK
+            if (sameVersion && size != null && (size < 0 || outFile.length() == size)) {
+                installed.put(filename, size);
+                continue;
+            }
+            try {
+                installed.put(filename, copyAsset(filename, outFile));
+                copied++;
+            } catch (FileNotFoundException e) {
+                outFile.delete();
+                installed.put(filename, -1L);
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to copy asset file: " + filename, e);
+                outFile.delete();
+            }
+        }
+
+        if (copied > 0 || !sameVersion) {
+            Manifest updated = new Manifest(version, installed);
+            updated.write(new File(filesDir, MANIFEST_FILE));
+        }
+        Log.i(TAG, "Assets ready in " + (System.nanoTime() - start) / 1000000 + " ms, " + copied + " copied");
+        return success;
+    }
+
+    private long copyAsset(String filename, File outFile) throws IOException {
+        AssetManager assetManager = context.getAssets();
+        // Se escribe a un temporal y se renombra para no dejar modelos a medias
+        File tmpFile = new File(outFile.getPath() + ".tmp");
+        long total = 0;
+        try (InputStream in = assetManager.open(filename);
+             ReadableByteChannel source = Channels.newChannel(in);
+             FileChannel target = new FileOutputStream(tmpFile).getChannel()) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            while (source.read(buffer) != -1) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    total += target.write(buffer);
+                }
+                buffer.clear();
+            }
+        } catch (IOException e) {
+            tmpFile.delete();
+            throw e;
+        }
+        if (!tmpFile.renameTo(outFile)) {
+            tmpFile.delete();
+            throw new IOException("Could not rename " + tmpFile);
+        }
+        Log.i(TAG, "Successfully copied " + filename);
+        return total;
+    }
+
+    private String appVersion() {
+        try {
+            PackageInfo info = context.getPackageManager().getPackageInfo(context.getPackageName(), 0);
+            // lastUpdateTime cambia en cada reinstalacion, aunque no cambie versionCode
+            return info.getLongVersionCode() + "-" + info.lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            return "unknown";
+        }
+    }
+
+    private static class Manifest {
+        final String version;
+        final Map<String, Long> sizes;
+
+        Manifest(String version, Map<String, Long> sizes) {
+            this.version = version;
+            this.sizes = sizes;
+        }
+
+        static Manifest read(File file) {
+            String version = null;
+            Map<String, Long> sizes = new HashMap<>();
+            if (!file.exists()) {
+                return new Manifest(null, sizes);
+            }
+            try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int separator = line.lastIndexOf('=');
+                    if (separator <= 0) {
+                        continue;
+                    }
+                    String key = line.substring(0, separator);
+                    String value = line.substring(separator + 1);
+                    if (VERSION_KEY.equals(key)) {
+                        version = value;
+                    } else {
+                        sizes.put(key, Long.parseLong(value));
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                Log.e(TAG, "Invalid asset manifest, reinstalling", e);
+                return new Manifest(null, new HashMap<String, Long>());
+            }
+            return new Manifest(version, sizes);
+        }
+
+        void write(File file) {
+            try (PrintWriter writer = new PrintWriter(file)) {
+                writer.println(VERSION_KEY + "=" + version);
+                for (Map.Entry<String, Long> entry : sizes.entrySet()) {
+                    writer.println(entry.getKey() + "=" + entry.getValue());
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to write asset manifest", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.projectparteii;
+
+/**
+ * Resultado de {@link ClassifierSession#predictBatch}: etiquetas, confianzas y respuestas
+ * completas del MLP en arreglos primitivos, en el mismo orden que las imagenes de entrada.
+ * La confianza es la misma que la de {@link Prediction}.
+ */
+public class BatchPrediction {
+    /** Nombres de las categorias, en el mismo orden que las salidas del modelo. */
+    public static final String[] CATEGORY_LABELS = {"Camiseta/Top", "Pantalón", "Jersey", "Vestido", "Abrigo",
+            "Sandalia", "Camisa", "Zapatilla", "Bolso", "Bota"};
+
+    /** Indice de categoria de cada imagen, o -1 si no se pudo clasificar. */
+    public final int[] labels;
+    /** Confianza (0-1) de la categoria predicha de cada imagen, 0 si no se pudo clasificar. */
+    public final float[] confidences;
+    /** Respuesta del MLP: CATEGORY_LABELS.length valores seguidos por imagen. */
+    final float[] scores;
+
+    BatchPrediction(int[] labels, float[] confidences, float[] scores) {
+        this.labels = labels;
+        this.confidences = confidences;
+        this.scores = scores;
+    }
+
+    public int size() {
+        return labels.length;
+    }
+
+    /** Nombre de la categoria de la imagen i, o null si no se pudo clasificar. */
+    public String label(int i) {
+        return labels[i] >= 0 ? CATEGORY_LABELS[labels[i]] : null;
+    }
+
+    /** Prediccion completa de la imagen i, con su respuesta y top-k. */
+    public Prediction prediction(int i) {
+        if (labels[i] < 0) {
+            return new Prediction(new float[0], false);
+        }
+        int categories = CATEGORY_LABELS.length;
+        float[] imageScores = new float[categories];
+        System.arraycopy(scores, i * categories, imageScores, 0, categories);
+        return new Prediction(imageScores, false);
+    }
+}
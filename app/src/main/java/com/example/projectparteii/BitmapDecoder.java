@@ -0,0 +1,105 @@
+package com.example.projectparteii;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.os.Debug;
+import android.util.Log;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodifica imagenes de la galeria a la resolucion que realmente se procesa.
+ * <p>
+ * Primero lee solo las dimensiones, elige el {@code inSampleSize} mas grande que mantiene el
+ * lado mayor por encima de la resolucion de procesamiento y decodifica sobre un bitmap del
+ * {@link BitmapPool} cuando hay uno libre.
+ */
+public class BitmapDecoder {
+    private static final String TAG = "BitmapDecoder";
+
+    private final ContentResolver contentResolver;
+    private final BitmapPool pool;
+
+    public BitmapDecoder(ContentResolver contentResolver, BitmapPool pool) {
+        this.contentResolver = contentResolver;
+        this.pool = pool;
+    }
+
+    /**
+     * @param maxSide resolucion de procesamiento; la imagen decodificada tiene el lado mayor
+     *                entre maxSide y 2 * maxSide (o el tamaño original si es menor)
+     * @return el bitmap, o null si el contenido no es una imagen
+     */
+    public Bitmap decode(Uri uri, int maxSide) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        try (InputStream in = open(uri)) {
+            BitmapFactory.decodeStream(in, null, options);
+        }
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        int sourceWidth = options.outWidth;
+        int sourceHeight = options.outHeight;
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = calculateInSampleSize(sourceWidth, sourceHeight, maxSide);
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        options.inMutable = true;
+        int width = (sourceWidth + options.inSampleSize - 1) / options.inSampleSize;
+        int height = (sourceHeight + options.inSampleSize - 1) / options.inSampleSize;
+        options.inBitmap = pool.take(width, height, Bitmap.Config.ARGB_8888);
+
+        Bitmap bitmap;
+        try (InputStream in = open(uri)) {
+            bitmap = BitmapFactory.decodeStream(in, null, options);
+        } catch (IllegalArgumentException e) {
+            // El bitmap reutilizado no era compatible con esta imagen
+            Log.w(TAG, "inBitmap rejected, decoding into a new bitmap", e);
+            pool.release(options.inBitmap);
+            options.inBitmap = null;
+            try (InputStream in = open(uri)) {
+                bitmap = BitmapFactory.decodeStream(in, null, options);
+            }
+        }
+        if (bitmap == null) {
+            return null;
+        }
+
+        long fullBytes = (long) sourceWidth * sourceHeight * 4;
+        Log.i(TAG, String.format("%dx%d -> %dx%d (inSampleSize %d%s): %.1f MB instead of %.1f MB, native heap %.1f MB",
+                sourceWidth, sourceHeight, bitmap.getWidth(), bitmap.getHeight(), options.inSampleSize,
+                options.inBitmap != null ? ", reused" : "",
+                bitmap.getAllocationByteCount() / 1048576.0, fullBytes / 1048576.0,
+                Debug.getNativeHeapAllocatedSize() / 1048576.0));
+        return bitmap;
+    }
+
+    /**
+     * Potencia de dos mas grande tal que el lado mayor submuestreado no quede por debajo de
+     * maxSide. Con maxSide menor o igual a 0 no se submuestrea.
+     */
+    public static int calculateInSampleSize(int width, int height, int maxSide) {
+        int inSampleSize = 1;
+        if (maxSide <= 0) {
+            return inSampleSize;
+        }
+        int longestSide = Math.max(width, height);
+        while (longestSide / (inSampleSize * 2) >= maxSide) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    private InputStream open(Uri uri) throws FileNotFoundException {
+        InputStream in = contentResolver.openInputStream(uri);
+        if (in == null) {
+            throw new FileNotFoundException(uri.toString());
+        }
+        return in;
+    }
+}
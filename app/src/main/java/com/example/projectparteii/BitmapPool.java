@@ -0,0 +1,88 @@
+package com.example.projectparteii;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Pool pequeño de bitmaps mutables para reutilizar su memoria entre imagenes, tanto como
+ * {@code inBitmap} al decodificar como para los bitmaps de salida de deteccion y prediccion.
+ * <p>
+ * Solo se debe devolver un bitmap con {@link #release(Bitmap)} cuando ya no lo muestra ninguna
+ * vista ni lo esta leyendo ninguna tarea.
+ */
+public class BitmapPool {
+    private static final int MAX_SIZE = 3;
+
+    private final List<Bitmap> bitmaps = new ArrayList<>();
+
+    /**
+     * Bitmap mutable de las dimensiones pedidas, reutilizando uno del pool si tiene memoria
+     * suficiente. El contenido no esta definido.
+     */
+    public synchronized Bitmap obtain(int width, int height, Bitmap.Config config) {
+        Bitmap reusable = take(width, height, config);
+        if (reusable != null) {
+            reusable.reconfigure(width, height, config);
+            return reusable;
+        }
+        return Bitmap.createBitmap(width, height, config);
+    }
+
+    /**
+     * Saca del pool un bitmap que pueda usarse como {@code inBitmap} para una imagen de ese
+     * tamaño, o null si no hay ninguno.
+     */
+    public synchronized Bitmap take(int width, int height, Bitmap.Config config) {
+        long needed = (long) width * height * bytesPerPixel(config);
+        Bitmap best = null;
+        for (Bitmap bitmap : bitmaps) {
+            if (bitmap.getAllocationByteCount() >= needed
+                    && (best == null || bitmap.getAllocationByteCount() < best.getAllocationByteCount())) {
+                best = bitmap;
+            }
+        }
+        if (best != null) {
+            bitmaps.remove(best);
+        }
+        return best;
+    }
+
+    public synchronized void release(Bitmap bitmap) {
+        if (bitmap == null || !bitmap.isMutable() || bitmap.isRecycled() || bitmaps.contains(bitmap)) {
+            return;
+        }
+        bitmaps.add(bitmap);
+        if (bitmaps.size() > MAX_SIZE) {
+            // Se descarta el mas pequeño, el que menos memoria ahorra
+            Bitmap smallest = bitmap;
+            for (Bitmap candidate : bitmaps) {
+                if (candidate.getAllocationByteCount() < smallest.getAllocationByteCount()) {
+                    smallest = candidate;
+                }
+            }
+            bitmaps.remove(smallest);
+        }
+    }
+
+    public synchronized void clear() {
+        Iterator<Bitmap> it = bitmaps.iterator();
+        while (it.hasNext()) {
+            it.next().recycle();
+            it.remove();
+        }
+    }
+
+    private static int bytesPerPixel(Bitmap.Config config) {
+        if (config == Bitmap.Config.RGB_565 || config == Bitmap.Config.ARGB_4444) {
+            return 2;
+        } else if (config == Bitmap.Config.ALPHA_8) {
+            return 1;
+        } else if (config == Bitmap.Config.RGBA_F16) {
+            return 8;
+        }
+        return 4;
+    }
+}
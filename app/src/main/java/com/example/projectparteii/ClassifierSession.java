@@ -0,0 +1,118 @@
+package com.example.projectparteii;
+
+import android.graphics.Bitmap;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Sesion nativa del clasificador de prendas: el ANN_MLP y el descriptor HOG se cargan una
+ * sola vez en {@link #open(String)} y se reutilizan en cada {@link #predict(Bitmap, float)}.
+ * La memoria nativa se libera con {@link #close()}.
+ */
+public class ClassifierSession implements Closeable {
+
+    static {
+        System.loadLibrary("projectparteii");
+    }
+
+    private long nativeHandle;
+
+    private ClassifierSession(long nativeHandle) {
+        this.nativeHandle = nativeHandle;
+    }
+
+    /**
+     * Carga el modelo y hace una inferencia de calentamiento.
+     *
+     * @throws IOException si el modelo no se pudo cargar
+     */
+    public static ClassifierSession open(String modelPath) throws IOException {
+        long handle = nativeOpen(modelPath);
+        if (handle == 0) {
+            throw new IOException("Error loading model: " + modelPath);
+        }
+        return new ClassifierSession(handle);
+    }
+
+    /**
+     * Clasifica la imagen y dibuja sobre ella el contorno y la etiqueta de la prenda.
+     */
+    public Prediction predict(Bitmap bitmap) {
+        return predict(bitmap, 0f);
+    }
+
+    /**
+     * Clasifica la imagen y, si la confianza de la categoria predicha llega a
+     * {@code minConfidence}, dibuja sobre ella el contorno y la etiqueta. Por debajo del
+     * umbral la prediccion vuelve rechazada y la imagen queda sin tocar, sin el costo del
+     * contorno.
+     *
+     * @param minConfidence confianza minima (0-1), ver {@link Prediction}; 0 no rechaza nunca
+     */
+    public synchronized Prediction predict(Bitmap bitmap, float minConfidence) {
+        if (nativeHandle == 0) {
+            throw new IllegalStateException("ClassifierSession is closed");
+        }
+        float[] scores = new float[BatchPrediction.CATEGORY_LABELS.length];
+        int[] box = new int[4];
+        int status = nativePredict(nativeHandle, bitmap, minConfidence, scores, box);
+        return Prediction.fromNative(status, scores, box);
+    }
+
+    /**
+     * Clasifica varias imagenes en una sola llamada nativa: el preprocesado y HOG corren en
+     * paralelo y el MLP evalua todo el lote de una vez. Las imagenes no se modifican ni se
+     * aplica umbral; {@link BatchPrediction#prediction(int)} da la respuesta y el top-k.
+     */
+    public synchronized BatchPrediction predictBatch(Bitmap[] bitmaps) {
+        if (nativeHandle == 0) {
+            throw new IllegalStateException("ClassifierSession is closed");
+        }
+        int[] labels = new int[bitmaps.length];
+        float[] confidences = new float[bitmaps.length];
+        float[] scores = new float[bitmaps.length * BatchPrediction.CATEGORY_LABELS.length];
+        nativePredictBatch(nativeHandle, bitmaps, labels, confidences, scores);
+        return new BatchPrediction(labels, confidences, scores);
+    }
+
+    /**
+     * Igual que {@link #predictBatch(Bitmap[])} pero leyendo las imagenes de archivos, que
+     * tambien se decodifican en paralelo en codigo nativo.
+     */
+    public synchronized BatchPrediction predictFiles(String[] paths) {
+        if (nativeHandle == 0) {
+            throw new IllegalStateException("ClassifierSession is closed");
+        }
+        int[] labels = new int[paths.length];
+        float[] confidences = new float[paths.length];
+        float[] scores = new float[paths.length * BatchPrediction.CATEGORY_LABELS.length];
+        nativePredictFiles(nativeHandle, paths, labels, confidences, scores);
+        return new BatchPrediction(labels, confidences, scores);
+    }
+
+    public synchronized boolean isClosed() {
+        return nativeHandle == 0;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (nativeHandle != 0) {
+            nativeClose(nativeHandle);
+            nativeHandle = 0;
+        }
+    }
+
+    private static native long nativeOpen(String modelPath);
+
+    private static native int nativePredict(long handle, Bitmap bitmap, float minConfidence, float[] scoresOut,
+                                            int[] boxOut);
+
+    private static native void nativePredictBatch(long handle, Bitmap[] bitmaps, int[] labels, float[] confidences,
+                                                  float[] scores);
+
+    private static native void nativePredictFiles(long handle, String[] paths, int[] labels, float[] confidences,
+                                                  float[] scores);
+
+    private static native void nativeClose(long handle);
+}
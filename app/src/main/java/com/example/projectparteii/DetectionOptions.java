@@ -0,0 +1,138 @@
+package com.example.projectparteii;
+
+import java.util.Locale;
+
+/**
+ * Opciones de la deteccion nativa: que rasgos buscar dentro de cada rostro, resolucion de
+ * trabajo, tamaños minimos y los parametros de detectMultiScale. Las cascadas de los rasgos
+ * que no se piden no se cargan ni se ejecutan.
+ * <p>
+ * Se pasan por JNI con {@link #toPacked()}, en el orden que lee unpackDetectionParams en
+ * face_detector.h.
+ */
+public final class DetectionOptions {
+    public static final int FEATURE_EYES = 1;
+    public static final int FEATURE_NOSE = 1 << 1;
+    public static final int FEATURE_MOUTH = 1 << 2;
+    public static final int ALL_FEATURES = FEATURE_EYES | FEATURE_NOSE | FEATURE_MOUTH;
+
+    /** Mismo valor que PACKED_PARAMS_SIZE en face_detector.h. */
+    static final int PACKED_SIZE = 7;
+
+    /** Rasgos combinados con OR; 0 busca solo rostros. */
+    public final int features;
+    /** Lado mayor de la imagen sobre la que corren las cascadas; 0 usa la resolucion original. */
+    public final int maxSide;
+    public final float scaleFactor;
+    public final int minNeighbors;
+    /** Tamaños minimos en pixeles de la imagen ya reducida a maxSide. */
+    public final int minFaceSize;
+    /** Ojos y nariz. */
+    public final int minFeatureSize;
+    public final int minMouthSize;
+
+    private DetectionOptions(Builder builder) {
+        features = builder.features;
+        maxSide = builder.maxSide;
+        scaleFactor = builder.scaleFactor;
+        minNeighbors = builder.minNeighbors;
+        minFaceSize = builder.minFaceSize;
+        minFeatureSize = builder.minFeatureSize;
+        minMouthSize = builder.minMouthSize;
+    }
+
+    public boolean detects(int feature) {
+        return (features & feature) == feature;
+    }
+
+    public Builder buildUpon() {
+        return new Builder()
+                .features(features)
+                .maxSide(maxSide)
+                .scaleFactor(scaleFactor)
+                .minNeighbors(minNeighbors)
+                .minFaceSize(minFaceSize)
+                .minFeatureSize(minFeatureSize)
+                .minMouthSize(minMouthSize);
+    }
+
+    float[] toPacked() {
+        return new float[]{features, maxSide, scaleFactor, minNeighbors, minFaceSize, minFeatureSize, minMouthSize};
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "features=%d maxSide=%d scaleFactor=%.2f minNeighbors=%d minSizes=%d/%d/%d",
+                features, maxSide, scaleFactor, minNeighbors, minFaceSize, minFeatureSize, minMouthSize);
+    }
+
+    /** Los valores por defecto son los que usaba la deteccion antes de ser configurable. */
+    public static final class Builder {
+        private int features = ALL_FEATURES;
+        private int maxSide = 0;
+        private float scaleFactor = 1.1f;
+        private int minNeighbors = 5;
+        private int minFaceSize = 30;
+        private int minFeatureSize = 20;
+        private int minMouthSize = 30;
+
+        public Builder features(int features) {
+            if ((features & ~ALL_FEATURES) != 0) {
+                throw new IllegalArgumentException("Unknown feature flags: " + features);
+            }
+            this.features = features;
+            return this;
+        }
+
+        public Builder maxSide(int maxSide) {
+            if (maxSide < 0) {
+                throw new IllegalArgumentException("maxSide must be >= 0: " + maxSide);
+            }
+            this.maxSide = maxSide;
+            return this;
+        }
+
+        public Builder scaleFactor(float scaleFactor) {
+            //detectMultiScale no avanza con una escala de 1 o menos
+            if (!(scaleFactor > 1f)) {
+                throw new IllegalArgumentException("scaleFactor must be > 1: " + scaleFactor);
+            }
+            this.scaleFactor = scaleFactor;
+            return this;
+        }
+
+        public Builder minNeighbors(int minNeighbors) {
+            if (minNeighbors < 0) {
+                throw new IllegalArgumentException("minNeighbors must be >= 0: " + minNeighbors);
+            }
+            this.minNeighbors = minNeighbors;
+            return this;
+        }
+
+        public Builder minFaceSize(int minFaceSize) {
+            this.minFaceSize = positive("minFaceSize", minFaceSize);
+            return this;
+        }
+
+        public Builder minFeatureSize(int minFeatureSize) {
+            this.minFeatureSize = positive("minFeatureSize", minFeatureSize);
+            return this;
+        }
+
+        public Builder minMouthSize(int minMouthSize) {
+            this.minMouthSize = positive("minMouthSize", minMouthSize);
+            return this;
+        }
+
+        public DetectionOptions build() {
+            return new DetectionOptions(this);
+        }
+
+        private static int positive(String name, int value) {
+            if (value <= 0) {
+                throw new IllegalArgumentException(name + " must be > 0: " + value);
+            }
+            return value;
+        }
+    }
+}
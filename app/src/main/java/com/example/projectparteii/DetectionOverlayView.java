@@ -0,0 +1,73 @@
+package com.example.projectparteii;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.View;
+
+/**
+ * Dibuja encima de la vista previa los rectangulos devueltos por {@link LiveFaceAnalyzer}, sin
+ * tocar los pixeles del cuadro. Supone que la vista previa usa escala fitCenter.
+ */
+public class DetectionOverlayView extends View {
+    //mismos colores y grosores que drawDetections en el codigo nativo
+    private static final int[] COLORS = {Color.BLUE, Color.MAGENTA, Color.GREEN, Color.BLUE};
+    private static final float[] STROKES = {3, 3, 3, 4};
+
+    private final Paint paint = new Paint();
+    private final Paint textPaint = new Paint();
+    private DetectionResult detections = DetectionResult.wrap(null);
+    private int frameWidth;
+    private int frameHeight;
+
+    public DetectionOverlayView(Context context) {
+        this(context, null);
+    }
+
+    public DetectionOverlayView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        paint.setStyle(Paint.Style.STROKE);
+        textPaint.setColor(Color.YELLOW);
+        textPaint.setTextSize(32);
+    }
+
+    /** Rectangulos en coordenadas del cuadro de tamaño frameWidth x frameHeight. */
+    public void setDetections(DetectionResult detections, int frameWidth, int frameHeight) {
+        this.detections = detections;
+        this.frameWidth = frameWidth;
+        this.frameHeight = frameHeight;
+        invalidate();
+    }
+
+    public void clear() {
+        setDetections(DetectionResult.wrap(null), 0, 0);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (frameWidth == 0 || frameHeight == 0) {
+            return;
+        }
+        float scale = Math.min((float) getWidth() / frameWidth, (float) getHeight() / frameHeight);
+        float offsetX = (getWidth() - frameWidth * scale) / 2;
+        float offsetY = (getHeight() - frameHeight * scale) / 2;
+        for (int i = 0; i < detections.size(); i++) {
+            int type = detections.type(i);
+            if (type < 0 || type >= COLORS.length) {
+                continue;
+            }
+            paint.setColor(COLORS[type]);
+            paint.setStrokeWidth(STROKES[type]);
+            float left = offsetX + detections.x(i) * scale;
+            float top = offsetY + detections.y(i) * scale;
+            canvas.drawRect(left, top, left + detections.width(i) * scale, top + detections.height(i) * scale, paint);
+            //numero de pista sobre cada rostro seguido
+            if (type == DetectionResult.TYPE_FACE && detections.track(i) >= 0) {
+                canvas.drawText("#" + detections.track(i), left, top - 8, textPaint);
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.projectparteii;
+
+/**
+ * Vista de solo lectura sobre las detecciones empaquetadas que devuelve el codigo nativo.
+ * <p>
+ * Cada deteccion ocupa {@link #STRIDE} enteros consecutivos: tipo, x, y, ancho, alto,
+ * indice del rostro al que pertenece (-1 para los rostros) y numero de pista (-1 sin
+ * seguimiento). Los accesores leen directamente del arreglo, sin crear un objeto por
+ * rectangulo; el texto y el JSON se generan solo cuando se piden.
+ */
+public final class DetectionResult {
+    public static final int STRIDE = 7;
+
+    public static final int TYPE_FACE = 0;
+    public static final int TYPE_EYE = 1;
+    public static final int TYPE_NOSE = 2;
+    public static final int TYPE_MOUTH = 3;
+
+    private static final String[] TYPE_NAMES = {"Face", "Eye", "Nose", "Mouth"};
+    private static final DetectionResult EMPTY = new DetectionResult(new int[0]);
+
+    private final int[] records;
+
+    private DetectionResult(int[] records) {
+        this.records = records;
+    }
+
+    /** Envuelve el arreglo sin copiarlo; null equivale a un resultado vacio. */
+    public static DetectionResult wrap(int[] records) {
+        if (records == null || records.length == 0) {
+            return EMPTY;
+        }
+        if (records.length % STRIDE != 0) {
+            throw new IllegalArgumentException("Packed detections length " + records.length + " is not a multiple of " + STRIDE);
+        }
+        return new DetectionResult(records);
+    }
+
+    public int size() {
+        return records.length / STRIDE;
+    }
+
+    public boolean isEmpty() {
+        return records.length == 0;
+    }
+
+    public int type(int i) {
+        return records[i * STRIDE];
+    }
+
+    public int x(int i) {
+        return records[i * STRIDE + 1];
+    }
+
+    public int y(int i) {
+        return records[i * STRIDE + 2];
+    }
+
+    public int width(int i) {
+        return records[i * STRIDE + 3];
+    }
+
+    public int height(int i) {
+        return records[i * STRIDE + 4];
+    }
+
+    public int parent(int i) {
+        return records[i * STRIDE + 5];
+    }
+
+    public int track(int i) {
+        return records[i * STRIDE + 6];
+    }
+
+    public int countOfType(int type) {
+        int count = 0;
+        for (int i = 0; i < records.length; i += STRIDE) {
+            if (records[i] == type) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public static String typeName(int type) {
+        return type >= 0 && type < TYPE_NAMES.length ? TYPE_NAMES[type] : "Unknown";
+    }
+
+    /** Mismo formato que devolvia antes detectFaces: una linea "Face: x, y, w, h" por deteccion. */
+    public String toText() {
+        StringBuilder text = new StringBuilder(size() * 24);
+        for (int i = 0; i < size(); i++) {
+            text.append(typeName(type(i))).append(": ").append(x(i)).append(", ").append(y(i)).append(", ")
+                    .append(width(i)).append(", ").append(height(i)).append('\n');
+        }
+        return text.toString();
+    }
+
+    /** Arreglo JSON con un objeto por deteccion. */
+    public String toJson() {
+        StringBuilder json = new StringBuilder(size() * 80).append('[');
+        for (int i = 0; i < size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"type\":\"").append(typeName(type(i)))
+                    .append("\",\"x\":").append(x(i))
+                    .append(",\"y\":").append(y(i))
+                    .append(",\"width\":").append(width(i))
+                    .append(",\"height\":").append(height(i))
+                    .append(",\"parent\":").append(parent(i))
+                    .append(",\"track\":").append(track(i))
+                    .append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    @Override
+    public String toString() {
+        return toText();
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.projectparteii;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Planificador unico para las llamadas nativas de deteccion y prediccion.
+ * <p>
+ * Usa un pool acotado al numero de nucleos. Las peticiones se agrupan por clave: si llega una
+ * nueva con la misma clave, la anterior se cancela si aun estaba en cola, y si ya se estaba
+ * ejecutando su resultado se descarta (el codigo nativo no se puede interrumpir). Los
+ * resultados se entregan en el {@code resultExecutor}, normalmente el hilo principal.
+ */
+public class InferenceScheduler {
+    private static final int QUEUE_CAPACITY = 16;
+
+    public interface Task<T> {
+        T run() throws Exception;
+    }
+
+    public interface Callback<T> {
+        void onResult(T result);
+
+        void onError(Exception e);
+    }
+
+    /** Copia inmutable de las metricas del planificador. */
+    public static final class Stats {
+        public final int queueDepth;
+        public final int running;
+        public final long completed;
+        public final long failed;
+        public final long superseded;
+        public final double averageQueueMs;
+        public final double averageRunMs;
+        public final double maxLatencyMs;
+
+        Stats(int queueDepth, int running, long completed, long failed, long superseded,
+              double averageQueueMs, double averageRunMs, double maxLatencyMs) {
+            this.queueDepth = queueDepth;
+            this.running = running;
+            this.completed = completed;
+            this.failed = failed;
+            this.superseded = superseded;
+            this.averageQueueMs = averageQueueMs;
+            this.averageRunMs = averageRunMs;
+            this.maxLatencyMs = maxLatencyMs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("queue=%d running=%d completed=%d failed=%d superseded=%d queueMs=%.1f runMs=%.1f maxMs=%.1f",
+                    queueDepth, running, completed, failed, superseded, averageQueueMs, averageRunMs, maxLatencyMs);
+        }
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final Executor resultExecutor;
+    private final Map<String, Request> pending = new HashMap<>();
+    private final Object lock = new Object();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private long completed;
+    private long failed;
+    private long superseded;
+    private long totalQueueNanos;
+    private long totalRunNanos;
+    private long maxLatencyNanos;
+
+    public InferenceScheduler(Executor resultExecutor) {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() - 1), resultExecutor);
+    }
+
+    public InferenceScheduler(int threads, Executor resultExecutor) {
+        this.executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(QUEUE_CAPACITY));
+        this.executor.allowCoreThreadTimeOut(true);
+        this.resultExecutor = resultExecutor;
+    }
+
+    /**
+     * Encola la tarea y reemplaza cualquier peticion anterior con la misma clave.
+     */
+    public <T> void submit(String key, Task<T> task, Callback<T> callback) {
+        Request request;
+        synchronized (lock) {
+            Request previous = pending.remove(key);
+            if (previous != null) {
+                supersede(previous);
+            }
+            request = new Request(key);
+            pending.put(key, request);
+        }
+        inFlight.incrementAndGet();
+        try {
+            request.future = executor.submit(new Job<>(request, task, callback));
+        } catch (RejectedExecutionException e) {
+            inFlight.decrementAndGet();
+            synchronized (lock) {
+                pending.remove(key);
+                failed++;
+            }
+            callback.onError(e);
+        }
+    }
+
+    /** Cancela la peticion pendiente con esa clave; su resultado ya no se entrega. */
+    public void cancel(String key) {
+        synchronized (lock) {
+            Request previous = pending.remove(key);
+            if (previous != null) {
+                supersede(previous);
+            }
+        }
+    }
+
+    /**
+     * true si no hay ninguna tarea en cola ni ejecutandose, incluidas las reemplazadas que
+     * siguen corriendo en codigo nativo. Solo entonces es seguro reutilizar sus bitmaps.
+     */
+    public boolean isIdle() {
+        return inFlight.get() == 0;
+    }
+
+    public Stats stats() {
+        synchronized (lock) {
+            long finished = Math.max(1, completed + failed);
+            return new Stats(executor.getQueue().size(), executor.getActiveCount(), completed, failed, superseded,
+                    totalQueueNanos / 1e6 / finished, totalRunNanos / 1e6 / finished, maxLatencyNanos / 1e6);
+        }
+    }
+
+    public void shutdown() {
+        synchronized (lock) {
+            for (Request request : pending.values()) {
+                request.cancelled = true;
+            }
+            pending.clear();
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * Como {@link #shutdown()}, y cuando termina la tarea que se este ejecutando (el codigo
+     * nativo no se puede interrumpir) corre {@code onTerminated} en un hilo propio. Sirve para
+     * liberar recursos que esa tarea usa sin bloquear al que llama.
+     */
+    public void shutdown(final Runnable onTerminated) {
+        shutdown();
+        Thread waiter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                onTerminated.run();
+            }
+        }, "InferenceScheduler-shutdown");
+        waiter.start();
+    }
+
+    private void supersede(Request request) {
+        request.cancelled = true;
+        superseded++;
+        Future<?> future = request.future;
+        if (future != null && future.cancel(false)) {
+            // No llego a ejecutarse
+            inFlight.decrementAndGet();
+            executor.purge();
+        }
+    }
+
+    private boolean isCurrent(Request request) {
+        synchronized (lock) {
+            return !request.cancelled && pending.get(request.key) == request;
+        }
+    }
+
+    private static final class Request {
+        final String key;
+        final long submittedAt = System.nanoTime();
+        volatile Future<?> future;
+        volatile boolean cancelled;
+
+        Request(String key) {
+            this.key = key;
+        }
+    }
+
+    private final class Job<T> implements Runnable {
+        private final Request request;
+        private final Task<T> task;
+        private final Callback<T> callback;
+
+        Job(Request request, Task<T> task, Callback<T> callback) {
+            this.request = request;
+            this.task = task;
+            this.callback = callback;
+        }
+
+        @Override
+        public void run() {
+            try {
+                execute();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+
+        private void execute() {
+            if (!isCurrent(request)) {
+                return;
+            }
+            long startedAt = System.nanoTime();
+            T result = null;
+            Exception error = null;
+            try {
+                result = task.run();
+            } catch (Exception e) {
+                error = e;
+            }
+            long finishedAt = System.nanoTime();
+            synchronized (lock) {
+                if (error == null) {
+                    completed++;
+                } else {
+                    failed++;
+                }
+                totalQueueNanos += startedAt - request.submittedAt;
+                totalRunNanos += finishedAt - startedAt;
+                maxLatencyNanos = Math.max(maxLatencyNanos, finishedAt - request.submittedAt);
+            }
+            deliver(result, error);
+        }
+
+        private void deliver(final T result, final Exception error) {
+            resultExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    // Se vuelve a comprobar en el hilo de entrega por si llego otra peticion
+                    synchronized (lock) {
+                        if (request.cancelled || pending.get(request.key) != request) {
+                            return;
+                        }
+                        pending.remove(request.key);
+                    }
+                    if (error == null) {
+                        callback.onResult(result);
+                    } else {
+                        callback.onError(error);
+                    }
+                }
+            });
+        }
+    }
+}
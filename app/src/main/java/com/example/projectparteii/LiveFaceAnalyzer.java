@@ -0,0 +1,235 @@
+package com.example.projectparteii;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.camera.core.ImageAnalysis;
+import androidx.camera.core.ImageProxy;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+
+/**
+ * Deteccion de rostros sobre el flujo de analisis de CameraX.
+ * <p>
+ * Cada cuadro YUV_420_888 se pasa al codigo nativo usando solo el plano Y como imagen en
+ * escala de grises, sin convertir a RGBA ni crear bitmaps. El analisis debe configurarse con
+ * {@code STRATEGY_KEEP_ONLY_LATEST}: mientras un cuadro se procesa, CameraX descarta los que
+ * llegan y entrega solo el mas reciente. Los rectangulos vuelven como {@link DetectionResult}
+ * en coordenadas del cuadro ya rotado.
+ * <p>
+ * Con {@code fullDetectionInterval > 1} se usa un seguidor nativo: la deteccion completa
+ * corre cada tantos cuadros y entre medias solo se busca cada rostro cerca de su posicion
+ * anterior, conservando su numero de pista. {@link #close()} libera el seguidor y debe
+ * llamarse en el mismo ejecutor del analisis, despues del ultimo cuadro.
+ */
+public class LiveFaceAnalyzer implements ImageAnalysis.Analyzer, Closeable {
+    private static final String TAG = "LiveFaceAnalyzer";
+    private static final int LOG_EVERY_FRAMES = 30;
+
+    public interface Listener {
+        void onDetections(DetectionResult detections, int frameWidth, int frameHeight, Stats stats);
+
+        /** El cuadro no se pudo analizar, por ejemplo porque las cascadas no cargaron. */
+        void onError(Exception error);
+    }
+
+    /** Metricas acumuladas desde el ultimo {@link #resetStats()}. */
+    public static final class Stats {
+        public final long frames;
+        public final double fps;
+        public final double cascadesMs;
+        public final double preprocessMs;
+        public final double detectMs;
+        public final double frameMs;
+        public final double cascadeInvocations;
+
+        Stats(long frames, double fps, double cascadesMs, double preprocessMs, double detectMs, double frameMs,
+              double cascadeInvocations) {
+            this.frames = frames;
+            this.fps = fps;
+            this.cascadesMs = cascadesMs;
+            this.preprocessMs = preprocessMs;
+            this.detectMs = detectMs;
+            this.frameMs = frameMs;
+            this.cascadeInvocations = cascadeInvocations;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "frames=%d fps=%.1f cascadesMs=%.1f preprocessMs=%.1f detectMs=%.1f frameMs=%.1f invocations=%.1f",
+                    frames, fps, cascadesMs, preprocessMs, detectMs, frameMs, cascadeInvocations);
+        }
+    }
+
+    static {
+        System.loadLibrary("projectparteii");
+    }
+
+    //DetectionOptions empaquetadas una sola vez para todos los cuadros
+    private final float[] options;
+    private final Executor resultExecutor;
+    private final Listener listener;
+    //cascades, preprocess y detect en ms, y llamadas a detectMultiScale
+    private final float[] stageMs = new float[4];
+    private long trackerHandle;
+
+    private long frames;
+    private long firstFrameAt;
+    private long lastFrameAt;
+    private double totalCascadesMs;
+    private double totalPreprocessMs;
+    private double totalDetectMs;
+    private double totalFrameMs;
+    private double totalInvocations;
+
+    private File recordDir;
+    private int framesToRecord;
+    private int framesRecorded;
+
+    public LiveFaceAnalyzer(DetectionOptions options, int fullDetectionInterval, Executor resultExecutor,
+                            Listener listener) {
+        this.options = options.toPacked();
+        this.resultExecutor = resultExecutor;
+        this.listener = listener;
+        if (fullDetectionInterval > 1) {
+            trackerHandle = nativeCreateTracker(fullDetectionInterval, this.options);
+        }
+    }
+
+    /**
+     * Guarda los siguientes {@code count} planos Y en {@code dir} para reproducirlos en el host
+     * con tools/host/live_replay.
+     */
+    public synchronized void recordFrames(File dir, int count) {
+        recordDir = dir;
+        framesToRecord = count;
+        framesRecorded = 0;
+    }
+
+    public synchronized Stats stats() {
+        double elapsedSec = (lastFrameAt - firstFrameAt) / 1e9;
+        double fps = frames > 1 && elapsedSec > 0 ? (frames - 1) / elapsedSec : 0;
+        long count = Math.max(1, frames);
+        return new Stats(frames, fps, totalCascadesMs / count, totalPreprocessMs / count,
+                totalDetectMs / count, totalFrameMs / count, totalInvocations / count);
+    }
+
+    public synchronized void resetStats() {
+        frames = 0;
+        totalCascadesMs = 0;
+        totalPreprocessMs = 0;
+        totalDetectMs = 0;
+        totalFrameMs = 0;
+        totalInvocations = 0;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (trackerHandle != 0) {
+            nativeReleaseTracker(trackerHandle);
+            trackerHandle = 0;
+        }
+    }
+
+    @Override
+    public void analyze(@NonNull ImageProxy image) {
+        try {
+            ImageProxy.PlaneProxy yPlane = image.getPlanes()[0];
+            int width = image.getWidth();
+            int height = image.getHeight();
+            int rotation = image.getImageInfo().getRotationDegrees();
+            maybeRecord(yPlane.getBuffer(), width, height, yPlane.getRowStride(), rotation);
+
+            long start = SystemClock.elapsedRealtimeNanos();
+            int[] packed = nativeDetectFrame(trackerHandle, yPlane.getBuffer(), width, height, yPlane.getRowStride(),
+                    rotation, options, stageMs);
+            long end = SystemClock.elapsedRealtimeNanos();
+            if (packed == null) {
+                return;
+            }
+            final DetectionResult detections = DetectionResult.wrap(packed);
+
+            final Stats stats = record(start, end);
+            if (stats.frames % LOG_EVERY_FRAMES == 0) {
+                Log.i(TAG, "Live " + stats);
+            }
+
+            //el cuadro rotado intercambia ancho y alto
+            final int frameWidth = rotation % 180 == 0 ? width : height;
+            final int frameHeight = rotation % 180 == 0 ? height : width;
+            resultExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    listener.onDetections(detections, frameWidth, frameHeight, stats);
+                }
+            });
+        } catch (final Exception e) {
+            //nativeDetectFrame lanza java.lang.Exception si las cascadas no cargan
+            Log.e(TAG, "Live detection failed", e);
+            resultExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    listener.onError(e);
+                }
+            });
+        } finally {
+            image.close();
+        }
+    }
+
+    private synchronized Stats record(long start, long end) {
+        if (frames == 0) {
+            firstFrameAt = end;
+        }
+        lastFrameAt = end;
+        frames++;
+        totalCascadesMs += stageMs[0];
+        totalPreprocessMs += stageMs[1];
+        totalDetectMs += stageMs[2];
+        totalInvocations += stageMs[3];
+        totalFrameMs += (end - start) / 1e6;
+        return stats();
+    }
+
+    private void maybeRecord(ByteBuffer buffer, int width, int height, int rowStride, int rotation) {
+        File dir;
+        int index;
+        synchronized (this) {
+            if (recordDir == null || framesToRecord <= 0) {
+                return;
+            }
+            dir = recordDir;
+            framesToRecord--;
+            index = framesRecorded++;
+        }
+        //frame_<n>_<ancho>x<alto>_r<rotacion>.y, filas sin relleno
+        File file = new File(dir, String.format(Locale.US, "frame_%05d_%dx%d_r%d.y",
+                index, width, height, rotation));
+        ByteBuffer rows = buffer.duplicate();
+        byte[] row = new byte[width];
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            for (int y = 0; y < height; y++) {
+                rows.position(y * rowStride);
+                rows.get(row);
+                out.write(row);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Could not record frame " + index, e);
+        }
+    }
+
+    private static native long nativeCreateTracker(int fullDetectionInterval, float[] options);
+
+    private static native void nativeReleaseTracker(long handle);
+
+    private static native int[] nativeDetectFrame(long tracker, ByteBuffer yPlane, int width, int height, int rowStride,
+                                                  int rotationDegrees, float[] options, float[] timingsOut)
+            throws Exception;
+}
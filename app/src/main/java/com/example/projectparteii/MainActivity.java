@@ -2,22 +2,29 @@ package com.example.projectparteii;
 
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.camera.core.CameraSelector;
+import androidx.camera.core.ImageAnalysis;
+import androidx.camera.core.Preview;
+import androidx.camera.core.resolutionselector.ResolutionSelector;
+import androidx.camera.core.resolutionselector.ResolutionStrategy;
+import androidx.camera.lifecycle.ProcessCameraProvider;
+import androidx.camera.view.PreviewView;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 import android.Manifest;
 import android.app.ProgressDialog;
-import android.content.ContentValues;
+import android.content.DialogInterface;
 import android.content.Intent;
 import android.content.pm.PackageManager;
-import android.content.res.AssetManager;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.net.ConnectivityManager;
+import android.net.Network;
 import android.net.Uri;
-import android.os.Build;
 import android.os.Bundle;
-import android.os.Environment;
 import android.provider.MediaStore;
 import android.util.Log;
+import android.util.Size;
 import android.view.View;
 import android.widget.Button;
 import android.widget.EditText;
@@ -26,59 +33,119 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.io.PrintWriter;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.util.concurrent.ListenableFuture;
 
 public class MainActivity extends AppCompatActivity {
     private static final String TAG = "MainActivity";
     private static final int REQUEST_IMAGE_CAPTURE = 1;
     private static final int REQUEST_CAMERA_PERMISSION = 200;
     private static final int REQUEST_STORAGE_PERMISSION = 201;
+    private static final int REQUEST_LIVE_CAMERA_PERMISSION = 202;
     private static final int REQUEST_SELECT_IMAGE = 2;
+    private static final String TASK_DETECT = "detect";
+    private static final String TASK_PREDICT = "predict";
+    private static final String TASK_RELOAD_CASCADES = "reloadCascades";
+    //confianza minima (0-1, salida del MLP acotada) para dibujar la prediccion; por debajo se
+    //rechaza sin calcular el contorno. 0.5 es el punto medio de los objetivos 0/1 del
+    //entrenamiento: una categoria que no llega a la mitad no es la respuesta del modelo.
+    //Se ajusta con la tabla de tools/host/classify_eval (rechazadas frente a precision)
+    private static final float PREDICTION_MIN_CONFIDENCE = 0.5f;
+    //categorias alternativas que se muestran junto a la prediccion
+    private static final int PREDICTION_TOP_K = 3;
+    //las cascadas corren sobre una copia reducida; los rectangulos vuelven en coordenadas originales
+    private static final int DETECTION_MAX_SIDE = 1024;
+    //rasgos, tamaños minimos y parametros de detectMultiScale; solo se cargan las cascadas pedidas
+    private static final DetectionOptions DETECTION_OPTIONS = new DetectionOptions.Builder()
+            .maxSide(DETECTION_MAX_SIDE)
+            .build();
+    //modo en vivo: cuadros de analisis pequenos, solo se procesa el mas reciente
+    private static final Size LIVE_RESOLUTION = new Size(640, 480);
+    private static final int LIVE_MAX_SIDE = 480;
+    private static final DetectionOptions LIVE_DETECTION_OPTIONS = DETECTION_OPTIONS.buildUpon()
+            .maxSide(LIVE_MAX_SIDE)
+            .build();
+    //entre detecciones completas los rostros se siguen localmente
+    private static final int LIVE_FULL_DETECTION_INTERVAL = 10;
+    private static final int UPLOAD_PORT = 5000;
+    //interruptores de compilacion, no ajustes de usuario: el servidor debe aceptar el formato elegido
+    //true envia original, procesada y datos en una sola peticion multipart
+    private static final boolean UPLOAD_AS_MULTIPART = false;
+    //true envia la original una vez, solo el recorte dibujado de la procesada y los resultados en JSON
+    private static final boolean UPLOAD_ANNOTATIONS_ONLY = false;
+    //codec de la original en el envio por anotaciones; la procesada completa siempre va en PNG
+    private static final MediaWriter.Format UPLOAD_ORIGINAL_FORMAT = MediaWriter.Format.JPEG;
+    private static final int UPLOAD_ORIGINAL_QUALITY = 90;
+    //formato de la imagen guardada en la galeria; la misma codificacion se reutiliza al enviarla
+    private static final MediaWriter.Format SAVE_FORMAT = MediaWriter.Format.PNG;
+    private static final int SAVE_QUALITY = 100;
+    private static final String MODEL_PACK_FILE = "models.pack";
+    private static final String[] MODEL_ASSETS = {"haarcascade_eye.xml", "haarcascade_frontalcatface.xml", "haarcascade_mcs_nose.xml", "haarcascade_mcs_mouth.xml", "fashion_mnist_mlp.xml"};
 
     private ImageView originalImageView;
     private ImageView processedImageView;
     private Bitmap originalBitmap;
     private Bitmap processedBitmap;
-    private String detectionResults;
+    private DetectionResult detectionResults;
+    private Prediction predictionResult;
     private EditText ipEditText;
     private TextView predictionTextView;
     private ProgressDialog progressDialog;
+    private ClassifierSession classifierSession;
+    private InferenceScheduler inferenceScheduler;
+    private final BitmapPool bitmapPool = new BitmapPool();
+    private BitmapDecoder bitmapDecoder;
+    private Button buttonDetectFaces;
+    private Button buttonPredict;
+    private Button buttonLive;
+    private View liveContainer;
+    private PreviewView livePreview;
+    private DetectionOverlayView liveOverlay;
+    private TextView liveStatsText;
+    private ExecutorService liveExecutor;
+    private LiveFaceAnalyzer liveAnalyzer;
+    private final ExecutorService uploadExecutor = Executors.newSingleThreadExecutor();
+    private final AtomicInteger uploadsInFlight = new AtomicInteger();
+    private UploadQueue uploadQueue;
+    private MediaWriter mediaWriter;
+    private ConnectivityManager.NetworkCallback networkCallback;
+    private ProcessCameraProvider cameraProvider;
+    //rutas de las cascadas ya pasadas al codigo nativo
+    private boolean cascadesReady;
+    //las cascadas se liberaron en onTrimMemory y se vuelven a cargar en onStart
+    private boolean cascadesTrimmed;
 
     static {
         System.loadLibrary("projectparteii");
     }
 
-    private native String detectFaces(Bitmap bitmap, Bitmap processedBitmap);
+    private native int[] detectFaces(Bitmap bitmap, Bitmap processedBitmap, float[] options);
 
     private native void initCascadePaths(String faceCascade, String eyeCascade, String noseCascade, String mouthCascade);
 
-    private native String predict(Bitmap bitmap, String modelPath);
+    private native void releaseCascades();
+
+    private native boolean reloadCascades();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
-        //archivos para la practica
-        copyAssetsToFiles();
-
-        //rutas donde esta los documentos
-        String faceCascadePath = getFilesDir().getAbsolutePath() + "/haarcascade_frontalcatface.xml";
-        String eyeCascadePath = getFilesDir().getAbsolutePath() + "/haarcascade_eye.xml";
-        String noseCascadePath = getFilesDir().getAbsolutePath() + "/haarcascade_mcs_nose.xml";
-        String mouthCascadePath = getFilesDir().getAbsolutePath() + "/haarcascade_mcs_mouth.xml";
-        initCascadePaths(faceCascadePath, eyeCascadePath, noseCascadePath, mouthCascadePath);
+        inferenceScheduler = new InferenceScheduler(ContextCompat.getMainExecutor(this));
+        bitmapDecoder = new BitmapDecoder(getContentResolver(), bitmapPool);
+        mediaWriter = new MediaWriter(getContentResolver());
 
         Button buttonTakePhoto = findViewById(R.id.button_take_photo);
         Button buttonSelectPhoto = findViewById(R.id.button_select_photo);
@@ -108,21 +175,61 @@ public class MainActivity extends AppCompatActivity {
             }
         });
 
-        Button buttonDetectFaces = findViewById(R.id.button_detect_faces);
+        liveContainer = findViewById(R.id.live_container);
+        livePreview = findViewById(R.id.preview_live);
+        liveOverlay = findViewById(R.id.overlay_live);
+        liveStatsText = findViewById(R.id.text_live_stats);
+        buttonLive = findViewById(R.id.button_live);
+        buttonLive.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                if (cameraProvider != null) {
+                    stopLiveDetection();
+                } else if (ContextCompat.checkSelfPermission(MainActivity.this, Manifest.permission.CAMERA) != PackageManager.PERMISSION_GRANTED) {
+                    ActivityCompat.requestPermissions(MainActivity.this, new String[]{Manifest.permission.CAMERA}, REQUEST_LIVE_CAMERA_PERMISSION);
+                } else {
+                    startLiveDetection();
+                }
+            }
+        });
+
+        buttonDetectFaces = findViewById(R.id.button_detect_faces);
         buttonDetectFaces.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
                 if (originalBitmap != null) {
-                    processedBitmap = Bitmap.createBitmap(originalBitmap.getWidth(), originalBitmap.getHeight(), originalBitmap.getConfig());
-                    detectionResults = detectFaces(originalBitmap, processedBitmap);
-                    processedImageView.setImageBitmap(processedBitmap);
-
-                    //mensaje de alerta
-                    new AlertDialog.Builder(MainActivity.this)
-                            .setTitle("Detección")
-                            .setMessage("Rostro(s) detectado(s) en la imagen.")
-                            .setPositiveButton(android.R.string.ok, null)
-                            .show();
+                    //la deteccion corre en el planificador; si se vuelve a tocar, la anterior se descarta
+                    final Bitmap input = originalBitmap;
+                    final Bitmap output = bitmapPool.obtain(input.getWidth(), input.getHeight(), Bitmap.Config.ARGB_8888);
+                    inferenceScheduler.submit(TASK_DETECT, new InferenceScheduler.Task<DetectionResult>() {
+                        @Override
+                        public DetectionResult run() throws Exception {
+                            return DetectionResult.wrap(detectFaces(input, output, DETECTION_OPTIONS.toPacked()));
+                        }
+                    }, new InferenceScheduler.Callback<DetectionResult>() {
+                        @Override
+                        public void onResult(DetectionResult result) {
+                            Bitmap previous = processedBitmap;
+                            processedBitmap = output;
+                            detectionResults = result;
+                            processedImageView.setImageBitmap(processedBitmap);
+                            recycleBitmap(previous);
+                            Log.i(TAG, "Inference " + inferenceScheduler.stats());
+
+                            //mensaje de alerta
+                            new AlertDialog.Builder(MainActivity.this)
+                                    .setTitle("Detección")
+                                    .setMessage("Rostro(s) detectado(s) en la imagen.")
+                                    .setPositiveButton(android.R.string.ok, null)
+                                    .show();
+                        }
+
+                        @Override
+                        public void onError(Exception e) {
+                            Log.e(TAG, "Face detection failed", e);
+                            Toast.makeText(MainActivity.this, "Error al detectar rostros", Toast.LENGTH_SHORT).show();
+                        }
+                    });
                 } else {
                     Toast.makeText(MainActivity.this, "No image to process", Toast.LENGTH_SHORT).show();
                 }
@@ -130,35 +237,55 @@ public class MainActivity extends AppCompatActivity {
         });
 
         predictionTextView = findViewById(R.id.text_prediction);
-        Button buttonPredict = findViewById(R.id.button_predict);
+        //pulsacion larga: tiempos por etapa y contadores del procesamiento nativo
+        predictionTextView.setOnLongClickListener(new View.OnLongClickListener() {
+            @Override
+            public boolean onLongClick(View v) {
+                showPipelineMetrics();
+                return true;
+            }
+        });
+        buttonPredict = findViewById(R.id.button_predict);
         buttonPredict.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
                 if (originalBitmap != null) {
-                    showProgressDialog("Prediciendo...");
-                    String modelPath = getFilesDir().getAbsolutePath() + "/fashion_mnist_mlp.xml";
-                    File modelFile = new File(modelPath);
-                    if (modelFile.exists()) {
-                        new Thread(new Runnable() {
+                    if (classifierSession != null) {
+                        showProgressDialog("Prediciendo...");
+                        final ClassifierSession session = classifierSession;
+                        final Bitmap input = originalBitmap;
+                        final Bitmap output = bitmapPool.obtain(input.getWidth(), input.getHeight(), Bitmap.Config.ARGB_8888);
+                        inferenceScheduler.submit(TASK_PREDICT, new InferenceScheduler.Task<Prediction>() {
                             @Override
-                            public void run() {
-                                String prediction = predict(originalBitmap, modelPath);
-                                runOnUiThread(new Runnable() {
-                                    @Override
-                                    public void run() {
-                                        predictionTextView.setText("Predicción: " + prediction);
-                                        hideProgressDialog();
-
-                                        //hacemos la predccion y mostramos la imagen con el cuadro
-                                        processedBitmap = originalBitmap.copy(Bitmap.Config.ARGB_8888, true);
-                                        processedImageView.setImageBitmap(processedBitmap);
-                                    }
-                                });
+                            public Prediction run() {
+                                //la prediccion dibuja sobre la copia, la original queda intacta
+                                new Canvas(output).drawBitmap(input, 0, 0, null);
+                                return session.predict(output, PREDICTION_MIN_CONFIDENCE);
                             }
-                        }).start();
+                        }, new InferenceScheduler.Callback<Prediction>() {
+                            @Override
+                            public void onResult(Prediction prediction) {
+                                predictionTextView.setText(predictionText(prediction));
+                                hideProgressDialog();
+                                Log.i(TAG, "Inference " + inferenceScheduler.stats());
+
+                                //hacemos la predccion y mostramos la imagen con el cuadro
+                                Bitmap previous = processedBitmap;
+                                processedBitmap = output;
+                                predictionResult = prediction;
+                                processedImageView.setImageBitmap(processedBitmap);
+                                recycleBitmap(previous);
+                            }
+
+                            @Override
+                            public void onError(Exception e) {
+                                Log.e(TAG, "Prediction failed", e);
+                                hideProgressDialog();
+                                Toast.makeText(MainActivity.this, "Error al predecir", Toast.LENGTH_SHORT).show();
+                            }
+                        });
                     } else {
                         Toast.makeText(MainActivity.this, "El archivo del modelo no existe", Toast.LENGTH_SHORT).show();
-                        hideProgressDialog();
                     }
                 } else {
                     Toast.makeText(MainActivity.this, "No hay imagen original para predecir", Toast.LENGTH_SHORT).show();
@@ -174,8 +301,7 @@ public class MainActivity extends AppCompatActivity {
                     ActivityCompat.requestPermissions(MainActivity.this, new String[]{Manifest.permission.WRITE_EXTERNAL_STORAGE}, REQUEST_STORAGE_PERMISSION);
                 } else {
                     if (isValidIpAddress(ipEditText.getText().toString())) {
-                        saveImageAndPositions();
-                        sendImageAndData(ipEditText.getText().toString(), originalBitmap, processedBitmap, detectionResults);
+                        saveImageAndPositions(ipEditText.getText().toString());
                     } else {
                         Toast.makeText(MainActivity.this, "Dirección IP no válida", Toast.LENGTH_SHORT).show();
                     }
@@ -188,12 +314,99 @@ public class MainActivity extends AppCompatActivity {
             @Override
             public void onClick(View v) {
                 if (isValidIpAddress(ipEditText.getText().toString())) {
-                    sendProcessedPrediction(ipEditText.getText().toString(), originalBitmap, processedBitmap, predictionTextView.getText().toString());
+                    sendProcessedPrediction(ipEditText.getText().toString(), originalBitmap, processedBitmap,
+                            predictionTextView.getText().toString(), predictionResult);
                 } else {
                     Toast.makeText(MainActivity.this, "Dirección IP no válida", Toast.LENGTH_SHORT).show();
                 }
             }
         });
+
+        //los botones se habilitan cuando los modelos estan listos
+        buttonDetectFaces.setEnabled(false);
+        buttonPredict.setEnabled(false);
+        buttonLive.setEnabled(false);
+        installModels();
+        startUploadQueue();
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        if (!cascadesTrimmed) {
+            return;
+        }
+        //se recargan antes de que el usuario vuelva a detectar, con los mismos pools de antes
+        cascadesTrimmed = false;
+        inferenceScheduler.submit(TASK_RELOAD_CASCADES, new InferenceScheduler.Task<Boolean>() {
+            @Override
+            public Boolean run() {
+                return reloadCascades();
+            }
+        }, new InferenceScheduler.Callback<Boolean>() {
+            @Override
+            public void onResult(Boolean loaded) {
+                if (!loaded) {
+                    //la siguiente deteccion vuelve a intentar cargarlas
+                    Log.w(TAG, "Could not reload cascades");
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "Cascade reload failed", e);
+            }
+        });
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        //en segundo plano las cascadas son la mayor parte de la memoria nativa
+        if (level >= TRIM_MEMORY_BACKGROUND && cascadesReady && !cascadesTrimmed) {
+            inferenceScheduler.cancel(TASK_RELOAD_CASCADES);
+            releaseCascades();
+            cascadesTrimmed = true;
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        //la sesion se cierra fuera del hilo principal cuando termina la prediccion en curso:
+        //nativePredict no se puede interrumpir y close() esperaria a que acabe
+        final ClassifierSession session = classifierSession;
+        classifierSession = null;
+        inferenceScheduler.shutdown(new Runnable() {
+            @Override
+            public void run() {
+                if (session != null) {
+                    session.close();
+                }
+            }
+        });
+        if (liveAnalyzer != null) {
+            stopLiveDetection();
+        }
+        if (liveExecutor != null) {
+            liveExecutor.shutdown();
+        }
+        //el escritor se detiene despues de la ultima tarea de subida, que puede estar guardando
+        uploadExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                mediaWriter.shutdown();
+            }
+        });
+        uploadExecutor.shutdown();
+        //lo que quede en la cola se envia la proxima vez que se abra la app
+        getSystemService(ConnectivityManager.class).unregisterNetworkCallback(networkCallback);
+        uploadQueue.stop();
+        bitmapPool.clear();
+        //las cascadas quedan en memoria nativa hasta que la actividad termina de verdad
+        if (isFinishing()) {
+            releaseCascades();
+        }
     }
 
     private void showProgressDialog(String message) {
@@ -212,23 +425,140 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
-    private void copyAssetsToFiles() {
-        AssetManager assetManager = getAssets();
-        String[] files = {"haarcascade_eye.xml", "haarcascade_frontalcatface.xml", "haarcascade_mcs_nose.xml", "haarcascade_mcs_mouth.xml", "fashion_mnist_mlp.xml"};
-
-        for (String filename : files) {
-            File outFile = new File(getFilesDir(), filename);
-            try (InputStream in = assetManager.open(filename); FileOutputStream out = new FileOutputStream(outFile)) {
-                byte[] buffer = new byte[1024];
-                int read;
-                while ((read = in.read(buffer)) != -1) {
-                    out.write(buffer, 0, read);
+    private void installModels() {
+        //archivos para la practica, copiados y cargados fuera del hilo principal
+        AssetInstaller installer = new AssetInstaller(this, MODEL_ASSETS, new String[]{MODEL_PACK_FILE});
+        final String filesDir = getFilesDir().getAbsolutePath();
+        installer.installAsync(new AssetInstaller.Callback() {
+            @Override
+            public void onInstalled(boolean success) {
+                if (!success) {
+                    runOnUiThread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Toast.makeText(MainActivity.this, "Error al copiar los modelos", Toast.LENGTH_SHORT).show();
+                        }
+                    });
+                    return;
                 }
-                Log.i(TAG, "Successfully copied " + filename);
-            } catch (IOException e) {
-                Log.e(TAG, "Failed to copy asset file: " + filename, e);
+
+                //rutas donde esta los documentos
+                initCascadePaths(filesDir + "/haarcascade_frontalcatface.xml", filesDir + "/haarcascade_eye.xml",
+                        filesDir + "/haarcascade_mcs_nose.xml", filesDir + "/haarcascade_mcs_mouth.xml");
+
+                //el modelo se carga una vez y se reutiliza en cada prediccion
+                ClassifierSession session = null;
+                try {
+                    session = ClassifierSession.open(filesDir + "/fashion_mnist_mlp.xml");
+                } catch (IOException e) {
+                    Log.e(TAG, "Failed to open classifier session", e);
+                }
+
+                final ClassifierSession openedSession = session;
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (isDestroyed()) {
+                            if (openedSession != null) {
+                                openedSession.close();
+                            }
+                            return;
+                        }
+                        classifierSession = openedSession;
+                        cascadesReady = true;
+                        buttonDetectFaces.setEnabled(true);
+                        buttonLive.setEnabled(true);
+                        buttonPredict.setEnabled(openedSession != null);
+                    }
+                });
+            }
+        });
+    }
+
+    private void startLiveDetection() {
+        final ListenableFuture<ProcessCameraProvider> providerFuture = ProcessCameraProvider.getInstance(this);
+        providerFuture.addListener(new Runnable() {
+            @Override
+            public void run() {
+                ProcessCameraProvider provider;
+                try {
+                    provider = providerFuture.get();
+                } catch (ExecutionException | InterruptedException e) {
+                    Log.e(TAG, "Camera provider unavailable", e);
+                    Toast.makeText(MainActivity.this, "No se pudo abrir la cámara", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                if (isDestroyed() || cameraProvider != null) {
+                    return;
+                }
+
+                Preview preview = new Preview.Builder().build();
+                preview.setSurfaceProvider(livePreview.getSurfaceProvider());
+
+                //el analisis se queda solo con el ultimo cuadro mientras el anterior se procesa
+                ImageAnalysis analysis = new ImageAnalysis.Builder()
+                        .setResolutionSelector(new ResolutionSelector.Builder()
+                                .setResolutionStrategy(new ResolutionStrategy(LIVE_RESOLUTION,
+                                        ResolutionStrategy.FALLBACK_RULE_CLOSEST_HIGHER_THEN_LOWER))
+                                .build())
+                        .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
+                        .setOutputImageFormat(ImageAnalysis.OUTPUT_IMAGE_FORMAT_YUV_420_888)
+                        .build();
+                if (liveExecutor == null) {
+                    liveExecutor = Executors.newSingleThreadExecutor();
+                }
+                liveAnalyzer = new LiveFaceAnalyzer(LIVE_DETECTION_OPTIONS, LIVE_FULL_DETECTION_INTERVAL,
+                        ContextCompat.getMainExecutor(MainActivity.this), new LiveFaceAnalyzer.Listener() {
+                    @Override
+                    public void onDetections(DetectionResult detections, int frameWidth, int frameHeight, LiveFaceAnalyzer.Stats stats) {
+                        if (cameraProvider == null) {
+                            return;
+                        }
+                        liveOverlay.setDetections(detections, frameWidth, frameHeight);
+                        liveStatsText.setText(String.format(Locale.US, "%.1f FPS  %.0f ms", stats.fps, stats.frameMs));
+                    }
+
+                    @Override
+                    public void onError(Exception error) {
+                        if (cameraProvider == null) {
+                            return;
+                        }
+                        //el error se repetiria en cada cuadro: se detiene el vivo
+                        stopLiveDetection();
+                        Toast.makeText(MainActivity.this, "Error al detectar rostros", Toast.LENGTH_SHORT).show();
+                    }
+                });
+                analysis.setAnalyzer(liveExecutor, liveAnalyzer);
+
+                provider.unbindAll();
+                provider.bindToLifecycle(MainActivity.this, CameraSelector.DEFAULT_BACK_CAMERA, preview, analysis);
+                cameraProvider = provider;
+                liveContainer.setVisibility(View.VISIBLE);
+                buttonLive.setText("Detener Vivo");
             }
+        }, ContextCompat.getMainExecutor(this));
+    }
+
+    private void stopLiveDetection() {
+        if (cameraProvider != null) {
+            cameraProvider.unbindAll();
+            cameraProvider = null;
+        }
+        if (liveAnalyzer != null) {
+            //el seguidor se libera en el hilo del analisis, despues del ultimo cuadro
+            final LiveFaceAnalyzer analyzer = liveAnalyzer;
+            liveAnalyzer = null;
+            liveExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    analyzer.close();
+                }
+            });
         }
+        liveOverlay.clear();
+        liveStatsText.setText("");
+        liveContainer.setVisibility(View.GONE);
+        buttonLive.setText("Detección en Vivo");
     }
 
     private void dispatchTakePictureIntent() {
@@ -252,6 +582,12 @@ public class MainActivity extends AppCompatActivity {
             } else {
                 Toast.makeText(this, "Camera permission required", Toast.LENGTH_SHORT).show();
             }
+        } else if (requestCode == REQUEST_LIVE_CAMERA_PERMISSION) {
+            if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
+                startLiveDetection();
+            } else {
+                Toast.makeText(this, "Camera permission required", Toast.LENGTH_SHORT).show();
+            }
         } else if (requestCode == REQUEST_STORAGE_PERMISSION) {
             if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
                 selectImageFromGallery();
@@ -264,244 +600,298 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onActivityResult(int requestCode, int resultCode, Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
+        if (resultCode == RESULT_OK) {
+            //los resultados pendientes corresponden a la imagen anterior
+            inferenceScheduler.cancel(TASK_DETECT);
+            inferenceScheduler.cancel(TASK_PREDICT);
+            hideProgressDialog();
+        }
         if (requestCode == REQUEST_IMAGE_CAPTURE && resultCode == RESULT_OK) {
             Bundle extras = data.getExtras();
+            Bitmap previous = originalBitmap;
             originalBitmap = (Bitmap) extras.get("data");
             originalImageView.setImageBitmap(originalBitmap);
+            recycleBitmap(previous);
         } else if (requestCode == REQUEST_SELECT_IMAGE && resultCode == RESULT_OK) {
             Uri selectedImage = data.getData();
             try {
-                InputStream imageStream = getContentResolver().openInputStream(selectedImage);
-                originalBitmap = BitmapFactory.decodeStream(imageStream);
+                //se decodifica directamente a la resolucion de procesamiento
+                Bitmap decoded = bitmapDecoder.decode(selectedImage, DETECTION_MAX_SIDE);
+                if (decoded == null) {
+                    Toast.makeText(this, "Error al cargar la imagen", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                Bitmap previous = originalBitmap;
+                originalBitmap = decoded;
                 originalImageView.setImageBitmap(originalBitmap);
-            } catch (FileNotFoundException e) {
+                recycleBitmap(previous);
+            } catch (IOException e) {
                 e.printStackTrace();
                 Toast.makeText(this, "Error al cargar la imagen", Toast.LENGTH_SHORT).show();
             }
         }
     }
 
-    private void saveImageAndPositions() {
-        if (processedBitmap != null && detectionResults != null) {
-            // Guardar en el celular
-            String timeStamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(new Date());
-            String imageFileName = "IMG_" + timeStamp + ".png";
-
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
-                ContentValues values = new ContentValues();
-                values.put(MediaStore.Images.Media.DISPLAY_NAME, imageFileName);
-                values.put(MediaStore.Images.Media.MIME_TYPE, "image/png");
-                values.put(MediaStore.Images.Media.RELATIVE_PATH, Environment.DIRECTORY_PICTURES + "/MyApp");
-
-                Uri uri = getContentResolver().insert(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, values);
-                if (uri != null) {
-                    try (OutputStream out = getContentResolver().openOutputStream(uri)) {
-                        processedBitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
-                        Toast.makeText(this, "Imagen guardada: " + imageFileName, Toast.LENGTH_SHORT).show();
-                    } catch (IOException e) {
-                        Log.e(TAG, "Error saving image", e);
-                        Toast.makeText(this, "Error al guardar la imagen", Toast.LENGTH_SHORT).show();
+    private void showPipelineMetrics() {
+        PipelineMetrics.Snapshot snapshot = PipelineMetrics.snapshot();
+        Log.i(TAG, "Pipeline metrics: " + snapshot.toJson());
+        new AlertDialog.Builder(this)
+                .setTitle("Métricas")
+                .setMessage(snapshot.toText())
+                .setPositiveButton(android.R.string.ok, null)
+                .setNegativeButton("Reiniciar", new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        PipelineMetrics.reset();
                     }
-                }
-            } else {
-                File storageDir = new File(Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_PICTURES), "MyApp");
-                if (!storageDir.exists()) {
-                    storageDir.mkdirs();
-                }
-                File imageFile = new File(storageDir, imageFileName);
-                try (FileOutputStream out = new FileOutputStream(imageFile)) {
-                    processedBitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
-                    Toast.makeText(this, "Imagen guardada: " + imageFileName, Toast.LENGTH_SHORT).show();
-                } catch (IOException e) {
-                    Log.e(TAG, "Error saving image", e);
-                    Toast.makeText(this, "Error al guardar la imagen", Toast.LENGTH_SHORT).show();
-                }
-            }
+                })
+                .show();
+    }
 
-            // Guardar posiciones en un txt
-            String textFileName = "POSITIONS_" + timeStamp + ".txt";
-            File textFile;
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
-                ContentValues values = new ContentValues();
-                values.put(MediaStore.Files.FileColumns.DISPLAY_NAME, textFileName);
-                values.put(MediaStore.Files.FileColumns.MIME_TYPE, "text/plain");
-                values.put(MediaStore.Files.FileColumns.RELATIVE_PATH, Environment.DIRECTORY_DOCUMENTS + "/MyApp");
-
-                Uri uri = getContentResolver().insert(MediaStore.Files.getContentUri("external"), values);
-                if (uri != null) {
-                    try (OutputStream out = getContentResolver().openOutputStream(uri);
-                         PrintWriter writer = new PrintWriter(out)) {
-                        writer.println(detectionResults);
-                        Toast.makeText(this, "Posiciones guardadas: " + textFileName, Toast.LENGTH_SHORT).show();
-                    } catch (IOException e) {
-                        Log.e(TAG, "Error saving positions", e);
-                        Toast.makeText(this, "Error al guardar las posiciones", Toast.LENGTH_SHORT).show();
-                    }
-                }
-            } else {
-                File storageDir = new File(Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOCUMENTS), "MyApp");
-                if (!storageDir.exists()) {
-                    storageDir.mkdirs();
-                }
-                textFile = new File(storageDir, textFileName);
-                try (PrintWriter out = new PrintWriter(textFile)) {
-                    out.println(detectionResults);
-                    Toast.makeText(this, "Posiciones guardadas: " + textFileName, Toast.LENGTH_SHORT).show();
-                } catch (IOException e) {
-                    Log.e(TAG, "Error saving positions", e);
-                    Toast.makeText(this, "Error al guardar las posiciones", Toast.LENGTH_SHORT).show();
-                }
-            }
-        } else {
-            Toast.makeText(this, "No hay imagen procesada o resultados de detección", Toast.LENGTH_SHORT).show();
+    /**
+     * Devuelve al pool un bitmap que ya no se muestra. Si hay tareas nativas o subidas en curso
+     * podrian estar leyendolo, asi que en ese caso se deja al recolector.
+     */
+    private void recycleBitmap(Bitmap bitmap) {
+        if (bitmap != null && bitmap != originalBitmap && bitmap != processedBitmap && inferenceScheduler.isIdle()
+                && uploadsInFlight.get() == 0) {
+            bitmapPool.release(bitmap);
         }
     }
 
-    private void sendImageAndData(String ipAddress, Bitmap originalBitmap, Bitmap processedBitmap, String detectionResults) {
-        String originalImageFileName = "temp_original_image.png";
-        String processedImageFileName = "temp_processed_image.png";
-
-        File originalImageFile = new File(getExternalFilesDir(null), originalImageFileName);
-        File processedImageFile = new File(getExternalFilesDir(null), processedImageFileName);
-
-        try (FileOutputStream originalOut = new FileOutputStream(originalImageFile);
-             FileOutputStream processedOut = new FileOutputStream(processedImageFile)) {
-            originalBitmap.compress(Bitmap.CompressFormat.PNG, 100, originalOut);
-            processedBitmap.compress(Bitmap.CompressFormat.PNG, 100, processedOut);
-        } catch (IOException e) {
-            Log.e(TAG, "Error saving images", e);
+    /**
+     * Guarda la imagen procesada y las posiciones y las encola para el servidor. La imagen se
+     * codifica una sola vez fuera del hilo de la interfaz y los mismos bytes van a la galeria
+     * (MediaWriter) y a la cola de subidas.
+     */
+    private void saveImageAndPositions(final String ipAddress) {
+        if (processedBitmap == null || originalBitmap == null || detectionResults == null) {
+            Toast.makeText(this, "No hay imagen procesada o resultados de detección", Toast.LENGTH_SHORT).show();
             return;
         }
-
-        // Enviar las imágenes y los datos de detección
-        new Thread(new Runnable() {
+        final Bitmap original = originalBitmap;
+        final Bitmap processed = processedBitmap;
+        final DetectionResult detections = detectionResults;
+        final String timeStamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(new Date());
+        uploadsInFlight.incrementAndGet();
+        uploadExecutor.execute(new Runnable() {
             @Override
             public void run() {
-                sendFileToEndpoint(ipAddress, "/recepcion1original", originalImageFile);
-                sendFileToEndpoint(ipAddress, "/recepcion1deteccion", processedImageFile);
-                sendDataToEndpoint(ipAddress, "/recepcion1datos", detectionResults);
+                try {
+                    MediaWriter.Encoded encoded = MediaWriter.encode(processed, SAVE_FORMAT, SAVE_QUALITY);
+                    //el texto de las posiciones se arma solo al guardarlo o enviarlo
+                    String detectionText = detections.toText();
+                    mediaWriter.save(encoded, timeStamp, detectionText, saveListener);
+                    enqueueUpload(ipAddress, "/recepcion1", new String[]{"/recepcion1original", "/recepcion1deteccion", "/recepcion1datos"},
+                            original, processed, encoded, detectionText, detections.toJson(), null);
+                } finally {
+                    uploadsInFlight.decrementAndGet();
+                }
             }
-        }).start();
+        });
     }
 
-    private void sendProcessedPrediction(String ipAddress, Bitmap originalBitmap, Bitmap processedBitmap, String predictionText) {
-        if (processedBitmap != null && originalBitmap != null) {
-            String originalImageFileName = "temp_original_image.png";
-            String processedImageFileName = "temp_processed_image.png";
-
-            File originalImageFile = new File(getExternalFilesDir(null), originalImageFileName);
-            File processedImageFile = new File(getExternalFilesDir(null), processedImageFileName);
-
-            try (FileOutputStream originalOut = new FileOutputStream(originalImageFile);
-                 FileOutputStream processedOut = new FileOutputStream(processedImageFile)) {
-                // Asegúrate de comprimir y guardar la imagen original
-                originalBitmap.compress(Bitmap.CompressFormat.PNG, 100, originalOut);
-                // Asegúrate de comprimir y guardar la imagen procesada
-                processedBitmap.compress(Bitmap.CompressFormat.PNG, 100, processedOut);
-            } catch (IOException e) {
-                Log.e(TAG, "Error saving images", e);
-                return;
-            }
+    private final MediaWriter.Listener saveListener = new MediaWriter.Listener() {
+        @Override
+        public void onSaved(final String imageName, final String positionsName, long encodeMillis, long imageWriteMillis,
+                            long textWriteMillis) {
+            Log.i(TAG, "Saved " + imageName + ": encode " + encodeMillis + " ms, image write " + imageWriteMillis
+                    + " ms, positions write " + textWriteMillis + " ms");
+            runOnUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    Toast.makeText(MainActivity.this, "Imagen guardada: " + imageName, Toast.LENGTH_SHORT).show();
+                    Toast.makeText(MainActivity.this, "Posiciones guardadas: " + positionsName, Toast.LENGTH_SHORT).show();
+                }
+            });
+        }
 
-            new Thread(new Runnable() {
+        @Override
+        public void onError(IOException error) {
+            Log.e(TAG, "Error saving image", error);
+            runOnUiThread(new Runnable() {
                 @Override
                 public void run() {
-                    // Asegúrate de enviar la imagen original al endpoint correcto
-                    sendFileToEndpoint(ipAddress, "/recepcion2original", originalImageFile);
-                    // Asegúrate de enviar la imagen procesada al endpoint correcto
-                    sendFileToEndpoint(ipAddress, "/recepcion2prediccion", processedImageFile);
-                    sendDataToEndpoint(ipAddress, "/recepcion2datos", predictionText);
+                    Toast.makeText(MainActivity.this, "Error al guardar la imagen", Toast.LENGTH_SHORT).show();
                 }
-            }).start();
+            });
+        }
+    };
+
+    private static String predictionText(Prediction prediction) {
+        if (prediction.failed()) {
+            return "Predicción: error al describir la imagen";
+        }
+        float[] confidences = prediction.confidences();
+        StringBuilder text = new StringBuilder(prediction.rejected ? "Predicción descartada: " : "Predicción: ");
+        int[] top = prediction.topK(PREDICTION_TOP_K);
+        for (int i = 0; i < top.length; i++) {
+            if (i > 0) {
+                text.append(i == 1 ? " (" : ", ");
+            }
+            text.append(BatchPrediction.CATEGORY_LABELS[top[i]])
+                    .append(String.format(Locale.US, " %.0f%%", confidences[top[i]] * 100));
+        }
+        return top.length > 1 ? text.append(')').toString() : text.toString();
+    }
+
+    private void sendProcessedPrediction(String ipAddress, Bitmap originalBitmap, Bitmap processedBitmap, String predictionText,
+                                         Prediction prediction) {
+        if (processedBitmap != null && originalBitmap != null) {
+            //categoria, recuadro y top-k para el envio por anotaciones
+            String predictionJson = prediction != null ? prediction.toJson(PREDICTION_TOP_K) : null;
+            uploadResults(ipAddress, "/recepcion2", new String[]{"/recepcion2original", "/recepcion2prediccion", "/recepcion2datos"},
+                    originalBitmap, processedBitmap, predictionText, predictionJson);
         } else {
             Toast.makeText(this, "No hay imagen procesada o imagen original para enviar", Toast.LENGTH_SHORT).show();
         }
     }
 
-
-    private void sendFileToEndpoint(String ipAddress, String endpoint, File file) {
-        String serverURL = "http://" + ipAddress + ":5000" + endpoint;
-        try {
-            URL url = new URL(serverURL);
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("POST");
-            connection.setDoOutput(true);
-            connection.setRequestProperty("Content-Type", "application/octet-stream");
-
-            try (OutputStream outputStream = connection.getOutputStream();
-                 FileInputStream fileInputStream = new FileInputStream(file)) {
-                byte[] buffer = new byte[4096];
-                int bytesRead;
-                while ((bytesRead = fileInputStream.read(buffer)) != -1) {
-                    outputStream.write(buffer, 0, bytesRead);
+    private void uploadResults(final String ipAddress, final String multipartEndpoint, final String[] endpoints,
+                               final Bitmap original, final Bitmap processed, final String data,
+                               final String predictionJson) {
+        if (original == null || processed == null) {
+            Toast.makeText(this, "No hay imagen procesada o imagen original para enviar", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        //mientras se comprimen no se pueden devolver al pool
+        uploadsInFlight.incrementAndGet();
+        uploadExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    enqueueUpload(ipAddress, multipartEndpoint, endpoints, original, processed, null, data, null,
+                            predictionJson);
+                } finally {
+                    uploadsInFlight.decrementAndGet();
                 }
             }
+        });
+    }
 
-            final int responseCode = connection.getResponseCode();
-            if (responseCode == HttpURLConnection.HTTP_OK) {
-                runOnUiThread(new Runnable() {
-                    @Override
-                    public void run() {
-                        Toast.makeText(MainActivity.this, "Archivo enviado correctamente a " + endpoint, Toast.LENGTH_SHORT).show();
-                    }
-                });
-            } else {
-                runOnUiThread(new Runnable() {
-                    @Override
-                    public void run() {
-                        Toast.makeText(MainActivity.this, "Error al enviar el archivo a " + endpoint + ", código: " + responseCode, Toast.LENGTH_SHORT).show();
-                    }
-                });
+    /**
+     * Encola la imagen original, la procesada y el texto para subirlos; corre en uploadExecutor.
+     * Las imagenes se comprimen una vez (la procesada se reutiliza si ya viene codificada) y se
+     * guardan en la cola persistente, que las envia en segundo plano y reintenta si el servidor
+     * no responde; con UPLOAD_AS_MULTIPART van juntas en una sola peticion a multipartEndpoint.
+     * Con UPLOAD_ANNOTATIONS_ONLY la procesada se reduce al recuadro donde difiere de la
+     * original y los datos pasan a ser el JSON de OverlayDelta, con las detecciones o la
+     * prediccion que correspondan.
+     */
+    private void enqueueUpload(String ipAddress, String multipartEndpoint, String[] endpoints, Bitmap original,
+                               Bitmap processed, MediaWriter.Encoded processedEncoded, String data, String detectionsJson,
+                               String predictionJson) {
+        String message;
+        try {
+            List<UploadQueue.Part> parts = UPLOAD_ANNOTATIONS_ONLY
+                    ? annotationParts(endpoints, original, processed, data, detectionsJson, predictionJson)
+                    : fullParts(endpoints, original, processed, processedEncoded, data);
+            uploadQueue.enqueue(new UploadQueue.Request("http://" + ipAddress + ":" + UPLOAD_PORT,
+                    UPLOAD_AS_MULTIPART ? multipartEndpoint : null, parts));
+            message = "Envío en cola (" + uploadQueue.metrics().depth + " pendientes)";
+        } catch (IOException e) {
+            Log.e(TAG, "Could not queue upload", e);
+            message = "Error al preparar el envío";
+        }
+        final String toast = message;
+        runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                Toast.makeText(MainActivity.this, toast, Toast.LENGTH_SHORT).show();
             }
-        } catch (Exception e) {
-            e.printStackTrace();
-            runOnUiThread(new Runnable() {
-                @Override
-                public void run() {
-                    Toast.makeText(MainActivity.this, "Error al enviar el archivo a " + endpoint, Toast.LENGTH_SHORT).show();
-                }
-            });
+        });
+    }
+
+    private static List<UploadQueue.Part> fullParts(String[] endpoints, Bitmap original, Bitmap processed,
+                                                    MediaWriter.Encoded processedEncoded, String data) {
+        long start = System.nanoTime();
+        if (processedEncoded == null) {
+            processedEncoded = MediaWriter.encode(processed, MediaWriter.Format.PNG, 100);
         }
+        List<UploadQueue.Part> parts = new ArrayList<>();
+        parts.add(new UploadQueue.Part("original", endpoints[0], "image/png",
+                MediaWriter.encode(original, MediaWriter.Format.PNG, 100).data));
+        parts.add(new UploadQueue.Part("processed", endpoints[1], processedEncoded.format.mimeType, processedEncoded.data));
+        parts.add(new UploadQueue.Part("data", endpoints[2], "text/plain; charset=utf-8",
+                (data != null ? data : "").getBytes(StandardCharsets.UTF_8)));
+        logPayload("full", parts, start);
+        return parts;
     }
 
-    private void sendDataToEndpoint(String ipAddress, String endpoint, String data) {
-        String serverURL = "http://" + ipAddress + ":5000" + endpoint;
-        try {
-            URL url = new URL(serverURL);
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("POST");
-            connection.setDoOutput(true);
-            connection.setRequestProperty("Content-Type", "text/plain");
-
-            try (OutputStream outputStream = connection.getOutputStream()) {
-                outputStream.write(data.getBytes());
+    private static List<UploadQueue.Part> annotationParts(String[] endpoints, final Bitmap original, final Bitmap processed,
+                                                          String data, String detectionsJson, String predictionJson) {
+        if (original.getWidth() != processed.getWidth() || original.getHeight() != processed.getHeight()) {
+            return fullParts(endpoints, original, processed, null, data);
+        }
+        long start = System.nanoTime();
+        final int width = original.getWidth();
+        int[] bounds = OverlayDelta.changedBounds(new OverlayDelta.Rows() {
+            @Override
+            public void read(int y, int[] row) {
+                original.getPixels(row, 0, width, 0, y, width, 1);
+            }
+        }, new OverlayDelta.Rows() {
+            @Override
+            public void read(int y, int[] row) {
+                processed.getPixels(row, 0, width, 0, y, width, 1);
             }
+        }, width, original.getHeight());
+
+        List<UploadQueue.Part> parts = new ArrayList<>();
+        MediaWriter.Encoded encodedOriginal = MediaWriter.encode(original, UPLOAD_ORIGINAL_FORMAT, UPLOAD_ORIGINAL_QUALITY);
+        parts.add(new UploadQueue.Part("original", endpoints[0], encodedOriginal.format.mimeType, encodedOriginal.data));
+        if (bounds != null) {
+            //solo el recuadro con lo dibujado; PNG para que las lineas no se emborronen
+            Bitmap overlay = Bitmap.createBitmap(processed, bounds[0], bounds[1], bounds[2], bounds[3]);
+            parts.add(new UploadQueue.Part("overlay", endpoints[1], "image/png",
+                    MediaWriter.encode(overlay, MediaWriter.Format.PNG, 100).data));
+            overlay.recycle();
+        }
+        String json = OverlayDelta.toJson(width, original.getHeight(), bounds, detectionsJson, predictionJson, data);
+        parts.add(new UploadQueue.Part("data", endpoints[2], "application/json", json.getBytes(StandardCharsets.UTF_8)));
+        logPayload("annotations", parts, start);
+        return parts;
+    }
 
-            final int responseCode = connection.getResponseCode();
-            if (responseCode == HttpURLConnection.HTTP_OK) {
-                runOnUiThread(new Runnable() {
-                    @Override
-                    public void run() {
-                        Toast.makeText(MainActivity.this, "Datos enviados correctamente a " + endpoint, Toast.LENGTH_SHORT).show();
-                    }
-                });
-            } else {
+    private static void logPayload(String mode, List<UploadQueue.Part> parts, long startNanos) {
+        long bytes = 0;
+        for (UploadQueue.Part part : parts) {
+            bytes += part.data.length;
+        }
+        Log.i(TAG, "Upload payload (" + mode + "): " + bytes + " bytes in " + parts.size() + " parts, encoded in "
+                + (System.nanoTime() - startNanos) / 1000000 + " ms");
+    }
+
+    private void startUploadQueue() {
+        uploadQueue = new UploadQueue(new File(getFilesDir(), "upload-queue"));
+        uploadQueue.setListener(new UploadQueue.Listener() {
+            @Override
+            public void onDelivered(String id, long ageMillis) {
+                Log.i(TAG, "Upload " + id + " delivered after " + ageMillis + " ms, " + uploadQueue.metrics());
                 runOnUiThread(new Runnable() {
                     @Override
                     public void run() {
-                        Toast.makeText(MainActivity.this, "Error al enviar los datos a " + endpoint + ", código: " + responseCode, Toast.LENGTH_SHORT).show();
+                        Toast.makeText(MainActivity.this, "Enviado correctamente", Toast.LENGTH_SHORT).show();
                     }
                 });
             }
-        } catch (Exception e) {
-            e.printStackTrace();
-            runOnUiThread(new Runnable() {
-                @Override
-                public void run() {
-                    Toast.makeText(MainActivity.this, "Error al enviar los datos a " + endpoint, Toast.LENGTH_SHORT).show();
-                }
-            });
-        }
+
+            @Override
+            public void onRetry(String id, int attempts, long delayMillis, IOException error) {
+                Log.w(TAG, "Upload " + id + " failed (attempt " + attempts + "), retrying in " + delayMillis + " ms: " + error);
+            }
+        });
+        uploadQueue.start();
+
+        //al recuperar la red se reintenta sin esperar a que termine la pausa
+        ConnectivityManager connectivity = getSystemService(ConnectivityManager.class);
+        networkCallback = new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onAvailable(Network network) {
+                uploadQueue.onNetworkAvailable();
+            }
+        };
+        connectivity.registerDefaultNetworkCallback(networkCallback);
     }
 
     private boolean isValidIpAddress(String ipAddress) {
@@ -0,0 +1,154 @@
+package com.example.projectparteii;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Environment;
+import android.os.SystemClock;
+import android.provider.MediaStore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Guarda la imagen procesada y sus posiciones en la galeria sin bloquear la interfaz.
+ * <p>
+ * La imagen se codifica una sola vez con {@link #encode}; los mismos bytes se escriben en
+ * MediaStore desde un hilo de E/S propio y se pueden reutilizar para el envio al servidor.
+ * Cada archivo se inserta como pendiente y solo se publica cuando termino de escribirse.
+ */
+public class MediaWriter {
+    private static final String RELATIVE_DIR = "MyApp";
+
+    /** Formatos de guardado; los WEBP con perdida son bastante mas rapidos que PNG. */
+    public enum Format {
+        PNG("image/png", "png"),
+        JPEG("image/jpeg", "jpg"),
+        WEBP_LOSSY("image/webp", "webp"),
+        WEBP_LOSSLESS("image/webp", "webp");
+
+        public final String mimeType;
+        public final String extension;
+
+        Format(String mimeType, String extension) {
+            this.mimeType = mimeType;
+            this.extension = extension;
+        }
+
+        //WEBP esta deprecado desde R pero es el unico WEBP en API 29 (minSdk); solo se usa en esa rama
+        @SuppressWarnings("deprecation")
+        Bitmap.CompressFormat compressFormat() {
+            switch (this) {
+                case JPEG:
+                    return Bitmap.CompressFormat.JPEG;
+                case WEBP_LOSSY:
+                    return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R ? Bitmap.CompressFormat.WEBP_LOSSY : Bitmap.CompressFormat.WEBP;
+                case WEBP_LOSSLESS:
+                    return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R ? Bitmap.CompressFormat.WEBP_LOSSLESS : Bitmap.CompressFormat.WEBP;
+                default:
+                    return Bitmap.CompressFormat.PNG;
+            }
+        }
+    }
+
+    /** Imagen ya codificada, lista para guardar o enviar. */
+    public static final class Encoded {
+        public final byte[] data;
+        public final Format format;
+        public final long encodeMillis;
+
+        Encoded(byte[] data, Format format, long encodeMillis) {
+            this.data = data;
+            this.format = format;
+            this.encodeMillis = encodeMillis;
+        }
+    }
+
+    /** Se llama en el hilo de E/S. */
+    public interface Listener {
+        void onSaved(String imageName, String positionsName, long encodeMillis, long imageWriteMillis, long textWriteMillis);
+
+        void onError(IOException error);
+    }
+
+    private final ContentResolver contentResolver;
+    private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
+
+    public MediaWriter(ContentResolver contentResolver) {
+        this.contentResolver = contentResolver;
+    }
+
+    /** Codifica en el hilo que llama; el bitmap no debe reutilizarse mientras tanto. */
+    public static Encoded encode(Bitmap bitmap, Format format, int quality) {
+        long start = SystemClock.elapsedRealtime();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bitmap.getByteCount() / 4);
+        //con WEBP sin perdida en versiones anteriores a R la calidad 100 es la que lo activa
+        bitmap.compress(format.compressFormat(), format == Format.WEBP_LOSSLESS ? 100 : quality, out);
+        return new Encoded(out.toByteArray(), format, SystemClock.elapsedRealtime() - start);
+    }
+
+    /**
+     * Escribe la imagen en Pictures/MyApp y las posiciones en Documents/MyApp en segundo
+     * plano, con el nombre base dado.
+     */
+    public void save(final Encoded image, final String baseName, final String positions, final Listener listener) {
+        ioExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                String imageName = "IMG_" + baseName + "." + image.format.extension;
+                String positionsName = "POSITIONS_" + baseName + ".txt";
+                try {
+                    long start = SystemClock.elapsedRealtime();
+                    insert(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, imageName, image.format.mimeType,
+                            Environment.DIRECTORY_PICTURES, image.data);
+                    long imageMillis = SystemClock.elapsedRealtime() - start;
+
+                    start = SystemClock.elapsedRealtime();
+                    insert(MediaStore.Files.getContentUri("external"), positionsName, "text/plain",
+                            Environment.DIRECTORY_DOCUMENTS, (positions + "\n").getBytes(StandardCharsets.UTF_8));
+                    long textMillis = SystemClock.elapsedRealtime() - start;
+
+                    listener.onSaved(imageName, positionsName, image.encodeMillis, imageMillis, textMillis);
+                } catch (IOException e) {
+                    listener.onError(e);
+                }
+            }
+        });
+    }
+
+    /** Los guardados ya encolados terminan antes de que el hilo se detenga. */
+    public void shutdown() {
+        ioExecutor.shutdown();
+    }
+
+    private void insert(Uri collection, String name, String mimeType, String directory, byte[] data) throws IOException {
+        ContentValues values = new ContentValues();
+        values.put(MediaStore.MediaColumns.DISPLAY_NAME, name);
+        values.put(MediaStore.MediaColumns.MIME_TYPE, mimeType);
+        values.put(MediaStore.MediaColumns.RELATIVE_PATH, directory + "/" + RELATIVE_DIR);
+        values.put(MediaStore.MediaColumns.IS_PENDING, 1);
+
+        Uri uri = contentResolver.insert(collection, values);
+        if (uri == null) {
+            throw new IOException("MediaStore insert failed for " + name);
+        }
+        try (OutputStream out = contentResolver.openOutputStream(uri)) {
+            if (out == null) {
+                throw new IOException("No output stream for " + uri);
+            }
+            out.write(data);
+        } catch (IOException e) {
+            contentResolver.delete(uri, null, null);
+            throw e;
+        }
+        values.clear();
+        values.put(MediaStore.MediaColumns.IS_PENDING, 0);
+        contentResolver.update(uri, values, null, null);
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.projectparteii;
+
+/**
+ * Envio por anotaciones: en lugar de la imagen procesada completa se manda solo el recuadro
+ * donde difiere de la original (los rectangulos y etiquetas dibujados) y la lista de
+ * detecciones, con la que el servidor puede volver a dibujar la superposicion.
+ */
+public final class OverlayDelta {
+    /** Lee una fila de pixeles ARGB en row (de largo width). */
+    public interface Rows {
+        void read(int y, int[] row);
+    }
+
+    private OverlayDelta() {
+    }
+
+    /**
+     * Devuelve {x, y, width, height} del menor rectangulo que contiene todos los pixeles
+     * distintos entre las dos imagenes, o null si son iguales. Se recorre fila a fila con
+     * dos buffers de una fila, sin copiar las imagenes completas.
+     */
+    public static int[] changedBounds(Rows original, Rows processed, int width, int height) {
+        int[] a = new int[width];
+        int[] b = new int[width];
+        int left = width, right = -1, top = -1, bottom = -1;
+        for (int y = 0; y < height; y++) {
+            original.read(y, a);
+            processed.read(y, b);
+            int first = 0;
+            while (first < width && a[first] == b[first]) {
+                first++;
+            }
+            if (first == width) {
+                continue;
+            }
+            int last = width - 1;
+            while (a[last] == b[last]) {
+                last--;
+            }
+            if (top < 0) {
+                top = y;
+            }
+            bottom = y;
+            left = Math.min(left, first);
+            right = Math.max(right, last);
+        }
+        if (top < 0) {
+            return null;
+        }
+        return new int[]{left, top, right - left + 1, bottom - top + 1};
+    }
+
+    /**
+     * Texto de datos del envio por anotaciones: tamano de la original, posicion del recorte
+     * enviado (o null), las detecciones en JSON (o null) y el texto de siempre.
+     */
+    public static String toJson(int width, int height, int[] bounds, String detectionsJson, String text) {
+        return toJson(width, height, bounds, detectionsJson, null, text);
+    }
+
+    /**
+     * Igual que {@link #toJson(int, int, int[], String, String)} y ademas, si no es null, la
+     * prediccion en JSON ({@link Prediction#toJson(int)}) bajo "prediction".
+     */
+    public static String toJson(int width, int height, int[] bounds, String detectionsJson, String predictionJson,
+                                String text) {
+        StringBuilder json = new StringBuilder(128 + (detectionsJson != null ? detectionsJson.length() : 0)
+                + (predictionJson != null ? predictionJson.length() : 0))
+                .append("{\"mode\":\"annotations\",\"width\":").append(width)
+                .append(",\"height\":").append(height)
+                .append(",\"overlay\":");
+        if (bounds != null) {
+            json.append("{\"x\":").append(bounds[0])
+                    .append(",\"y\":").append(bounds[1])
+                    .append(",\"width\":").append(bounds[2])
+                    .append(",\"height\":").append(bounds[3])
+                    .append('}');
+        } else {
+            json.append("null");
+        }
+        json.append(",\"detections\":").append(detectionsJson != null ? detectionsJson : "[]");
+        if (predictionJson != null) {
+            json.append(",\"prediction\":").append(predictionJson);
+        }
+        json.append(",\"text\":\"");
+        appendEscaped(json, text != null ? text : "");
+        return json.append("\"}").toString();
+    }
+
+    private static void appendEscaped(StringBuilder json, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.projectparteii;
+
+import java.util.Locale;
+
+/**
+ * Metricas del procesamiento nativo: tiempos por etapa de detectFaces y predict como
+ * histogramas, y contadores de rostros, rasgos y bytes copiados. Se acumulan en memoria
+ * nativa desde que arranca el proceso (o desde el ultimo {@link #reset()}).
+ */
+public final class PipelineMetrics {
+    /** Mismo orden que MetricTimer en pipeline_metrics.h. */
+    public static final String[] TIMER_NAMES = {"detect.total", "detect.preprocess", "detect.cascades", "detect.draw",
+            "predict.total", "predict.preprocess", "predict.hog", "predict.mlp", "predict.annotate"};
+    /** Mismo orden que MetricCounter en pipeline_metrics.h. */
+    public static final String[] COUNTER_NAMES = {"faces", "features", "bytesCopied", "predictFailures",
+            "predictRejected"};
+
+    private PipelineMetrics() {
+    }
+
+    private static native long[] nativeSnapshot();
+
+    private static native void nativeReset();
+
+    public static Snapshot snapshot() {
+        return Snapshot.fromPacked(nativeSnapshot());
+    }
+
+    public static void reset() {
+        nativeReset();
+    }
+
+    /** Histograma de una etapa, en microsegundos. */
+    public static final class Timer {
+        public final String name;
+        public final long count;
+        public final long sumMicros;
+        public final long maxMicros;
+        /** La cubeta i cuenta los tiempos en [2^i, 2^(i+1)) us; la 0 tambien el 0. */
+        final long[] buckets;
+
+        Timer(String name, long count, long sumMicros, long maxMicros, long[] buckets) {
+            this.name = name;
+            this.count = count;
+            this.sumMicros = sumMicros;
+            this.maxMicros = maxMicros;
+            this.buckets = buckets;
+        }
+
+        public double meanMillis() {
+            return count > 0 ? sumMicros / 1000.0 / count : 0;
+        }
+
+        /**
+         * Percentil aproximado (0-100) en milisegundos: el limite superior de la cubeta donde
+         * cae, acotado por el maximo observado.
+         */
+        public double percentileMillis(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long target = (long) Math.ceil(count * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= Math.max(1, target)) {
+                    long upper = i == buckets.length - 1 ? maxMicros : (2L << i) - 1;
+                    return Math.min(upper, maxMicros) / 1000.0;
+                }
+            }
+            return maxMicros / 1000.0;
+        }
+    }
+
+    /** Copia de las metricas en un instante. */
+    public static final class Snapshot {
+        public final Timer[] timers;
+        public final long[] counters;
+
+        Snapshot(Timer[] timers, long[] counters) {
+            this.timers = timers;
+            this.counters = counters;
+        }
+
+        /** Lee el formato de PipelineMetrics::snapshot. */
+        static Snapshot fromPacked(long[] packed) {
+            int timerCount = (int) packed[0];
+            int counterCount = (int) packed[1];
+            int bucketCount = (int) packed[2];
+            if (timerCount != TIMER_NAMES.length || counterCount != COUNTER_NAMES.length) {
+                throw new IllegalStateException("Native metrics layout does not match: " + timerCount + " timers, "
+                        + counterCount + " counters");
+            }
+            int offset = 3;
+            Timer[] timers = new Timer[timerCount];
+            for (int t = 0; t < timerCount; t++) {
+                long[] buckets = new long[bucketCount];
+                System.arraycopy(packed, offset + 3, buckets, 0, bucketCount);
+                timers[t] = new Timer(TIMER_NAMES[t], packed[offset], packed[offset + 1], packed[offset + 2], buckets);
+                offset += 3 + bucketCount;
+            }
+            long[] counters = new long[counterCount];
+            System.arraycopy(packed, offset, counters, 0, counterCount);
+            return new Snapshot(timers, counters);
+        }
+
+        public Timer timer(String name) {
+            for (Timer timer : timers) {
+                if (timer.name.equals(name)) {
+                    return timer;
+                }
+            }
+            return null;
+        }
+
+        public long counter(String name) {
+            for (int i = 0; i < COUNTER_NAMES.length; i++) {
+                if (COUNTER_NAMES[i].equals(name)) {
+                    return counters[i];
+                }
+            }
+            return 0;
+        }
+
+        /** Una linea por etapa con datos: cantidad, media, p50, p90 y maximo en ms. */
+        public String toText() {
+            StringBuilder text = new StringBuilder();
+            for (Timer timer : timers) {
+                if (timer.count == 0) {
+                    continue;
+                }
+                text.append(String.format(Locale.US, "%s: n=%d mean=%.1f p50=%.1f p90=%.1f max=%.1f ms\n",
+                        timer.name, timer.count, timer.meanMillis(), timer.percentileMillis(50),
+                        timer.percentileMillis(90), timer.maxMicros / 1000.0));
+            }
+            for (int i = 0; i < counters.length; i++) {
+                text.append(COUNTER_NAMES[i]).append(": ").append(counters[i]).append('\n');
+            }
+            return text.toString();
+        }
+
+        /** Objeto JSON para adjuntarlo a un envio. */
+        public String toJson() {
+            StringBuilder json = new StringBuilder(512).append("{\"timers\":{");
+            for (int i = 0; i < timers.length; i++) {
+                Timer timer = timers[i];
+                if (i > 0) {
+                    json.append(',');
+                }
+                json.append('"').append(timer.name).append("\":")
+                        .append(String.format(Locale.US, "{\"count\":%d,\"meanMs\":%.3f,\"p50Ms\":%.3f,\"p90Ms\":%.3f,\"maxMs\":%.3f}",
+                                timer.count, timer.meanMillis(), timer.percentileMillis(50), timer.percentileMillis(90),
+                                timer.maxMicros / 1000.0));
+            }
+            json.append("},\"counters\":{");
+            for (int i = 0; i < counters.length; i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                json.append('"').append(COUNTER_NAMES[i]).append("\":").append(counters[i]);
+            }
+            return json.append("}}").toString();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.projectparteii;
+
+import java.util.Locale;
+
+/**
+ * Resultado de {@link ClassifierSession#predict}: la respuesta completa del MLP, la
+ * categoria con mayor puntaje y su confianza. Una prediccion rechazada quedo por debajo
+ * del umbral de confianza y no se dibujo sobre la imagen.
+ * <p>
+ * La red se entreno con objetivos 0/1 y sus salidas van aproximadamente de -0.4 a 1.4; la
+ * confianza de una categoria es su salida acotada a [0, 1], donde 1 es una respuesta
+ * one-hot. Las confianzas de las categorias son independientes y no suman 1.
+ */
+public class Prediction {
+    /** Mismos valores que devuelve nativePredict en native-lib.cpp ademas de la etiqueta. */
+    static final int STATUS_FAILED = -1;
+    static final int STATUS_REJECTED = -2;
+
+    /** Respuesta cruda del MLP, una por categoria; vacia si la imagen no se pudo describir. */
+    public final float[] scores;
+    /** Indice de la categoria con mayor puntaje, o -1 si la imagen no se pudo describir. */
+    public final int label;
+    /** Confianza (0-1) de {@link #label}. */
+    public final float confidence;
+    public final boolean rejected;
+    /** Recuadro {x, y, ancho, alto} dibujado alrededor de la prenda, o null si no se dibujo. */
+    public final int[] box;
+
+    Prediction(float[] scores, boolean rejected) {
+        this(scores, rejected, null);
+    }
+
+    Prediction(float[] scores, boolean rejected, int[] box) {
+        this.scores = scores;
+        this.rejected = rejected;
+        this.box = box;
+        int[] top = topK(scores, 1);
+        label = top.length > 0 ? top[0] : -1;
+        confidence = label >= 0 ? confidenceOf(scores[label]) : 0f;
+    }
+
+    /**
+     * Lee el resultado de nativePredict: la etiqueta dibujada o uno de los STATUS_*, y el
+     * recuadro dibujado (en ceros si no hubo contorno).
+     */
+    static Prediction fromNative(int status, float[] scores, int[] box) {
+        if (status == STATUS_FAILED) {
+            return new Prediction(new float[0], false);
+        }
+        boolean drawn = status >= 0 && box != null && box[2] > 0 && box[3] > 0;
+        return new Prediction(scores, status == STATUS_REJECTED, drawn ? box : null);
+    }
+
+    public boolean failed() {
+        return label < 0;
+    }
+
+    /** Confianza (0-1) de cada categoria, en el orden de las salidas del modelo. */
+    public float[] confidences() {
+        float[] confidences = new float[scores.length];
+        for (int i = 0; i < scores.length; i++) {
+            confidences[i] = confidenceOf(scores[i]);
+        }
+        return confidences;
+    }
+
+    /** Las k categorias con mayor puntaje, de mayor a menor. */
+    public int[] topK(int k) {
+        return topK(scores, k);
+    }
+
+    /** Nombre de la categoria, o null si la imagen no se pudo describir. */
+    public String labelName() {
+        return label >= 0 ? BatchPrediction.CATEGORY_LABELS[label] : null;
+    }
+
+    /**
+     * Objeto JSON con la categoria, su confianza, si se rechazo, el recuadro (o null) y las
+     * {@code k} categorias con mayor puntaje con sus confianzas.
+     */
+    public String toJson(int k) {
+        StringBuilder json = new StringBuilder(96 + k * 48)
+                .append("{\"label\":").append(label)
+                .append(",\"name\":");
+        appendName(json, label);
+        json.append(",\"confidence\":").append(String.format(Locale.US, "%.3f", confidence))
+                .append(",\"rejected\":").append(rejected)
+                .append(",\"box\":");
+        if (box != null) {
+            json.append("{\"x\":").append(box[0])
+                    .append(",\"y\":").append(box[1])
+                    .append(",\"width\":").append(box[2])
+                    .append(",\"height\":").append(box[3])
+                    .append('}');
+        } else {
+            json.append("null");
+        }
+        json.append(",\"top\":[");
+        int[] top = topK(k);
+        for (int i = 0; i < top.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"label\":").append(top[i]).append(",\"name\":");
+            appendName(json, top[i]);
+            json.append(",\"confidence\":").append(String.format(Locale.US, "%.3f", confidenceOf(scores[top[i]])))
+                    .append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    @Override
+    public String toString() {
+        if (failed()) {
+            return "Error: HOG descriptor size mismatch";
+        }
+        return String.format(Locale.US, "%s (%.0f%%)%s", labelName(), confidence * 100, rejected ? " rejected" : "");
+    }
+
+    //los nombres de las categorias no llevan comillas ni barras invertidas
+    private static void appendName(StringBuilder json, int label) {
+        if (label >= 0) {
+            json.append('"').append(BatchPrediction.CATEGORY_LABELS[label]).append('"');
+        } else {
+            json.append("null");
+        }
+    }
+
+    /** Misma cuenta que responseConfidence en classifier.h. */
+    static float confidenceOf(float score) {
+        return Math.min(1f, Math.max(0f, score));
+    }
+
+    /** Indices de los k valores mayores; a igual valor va primero el indice menor. */
+    static int[] topK(float[] values, int k) {
+        int count = Math.max(0, Math.min(k, values.length));
+        int[] indices = new int[count];
+        boolean[] taken = new boolean[values.length];
+        //seleccion simple: hay solo diez categorias
+        for (int n = 0; n < count; n++) {
+            int best = -1;
+            for (int i = 0; i < values.length; i++) {
+                if (!taken[i] && (best < 0 || values[i] > values[best])) {
+                    best = i;
+                }
+            }
+            taken[best] = true;
+            indices[n] = best;
+        }
+        return indices;
+    }
+}
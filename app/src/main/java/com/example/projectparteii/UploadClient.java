@@ -0,0 +1,194 @@
+package com.example.projectparteii;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Cliente de subida al servidor de la practica.
+ * <p>
+ * El cuerpo de cada peticion se escribe directamente en la conexion (por ejemplo, un bitmap
+ * comprimiendose) con transferencia chunked, sin archivos temporales ni copiar todo a
+ * memoria. La respuesta se lee completa y el flujo se cierra para que HttpURLConnection
+ * devuelva el socket a su pool y la siguiente peticion al mismo servidor lo reutilice
+ * (keep-alive). Las llamadas son bloqueantes: usar fuera del hilo principal.
+ */
+public class UploadClient {
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+    private static final int READ_TIMEOUT_MS = 15000;
+
+    /** Contenido de una parte; se escribe una sola vez directamente en la conexion. */
+    public interface Body {
+        String contentType();
+
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /** Resultado de una peticion: codigo HTTP, bytes del cuerpo enviados y duracion. */
+    public static final class Result {
+        public final int code;
+        public final long bytesSent;
+        public final long millis;
+
+        Result(int code, long bytesSent, long millis) {
+            this.code = code;
+            this.bytesSent = bytesSent;
+            this.millis = millis;
+        }
+
+        public boolean isSuccessful() {
+            return code >= 200 && code < 300;
+        }
+
+        @Override
+        public String toString() {
+            return "code=" + code + " bytes=" + bytesSent + " ms=" + millis;
+        }
+    }
+
+    private final String baseUrl;
+
+    /** baseUrl sin barra final, por ejemplo {@code http://192.168.1.10:5000}. */
+    public UploadClient(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    public static Body bytes(final byte[] data, final String contentType) {
+        return new Body() {
+            @Override
+            public String contentType() {
+                return contentType;
+            }
+
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                out.write(data);
+            }
+        };
+    }
+
+    /** Cuerpo leido de un archivo en bloques, sin cargarlo entero en memoria. */
+    public static Body file(final File file, final String contentType) {
+        return new Body() {
+            @Override
+            public String contentType() {
+                return contentType;
+            }
+
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                try (InputStream in = new FileInputStream(file)) {
+                    byte[] buffer = new byte[CHUNK_SIZE];
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        out.write(buffer, 0, read);
+                    }
+                }
+            }
+        };
+    }
+
+    public static Body text(String text) {
+        return bytes(text.getBytes(StandardCharsets.UTF_8), "text/plain; charset=utf-8");
+    }
+
+    /** Envia un solo cuerpo a {@code path}. */
+    public Result post(String path, Body body) throws IOException {
+        long start = System.nanoTime();
+        HttpURLConnection connection = open(path, body.contentType());
+        long sent;
+        try (CountingOutputStream out = new CountingOutputStream(connection.getOutputStream())) {
+            body.writeTo(out);
+            sent = out.count;
+        }
+        return finish(connection, sent, start);
+    }
+
+    /**
+     * Envia varias partes en una sola peticion multipart/form-data. La clave es el nombre del
+     * campo; las partes que no son texto llevan ese mismo nombre como nombre de archivo.
+     */
+    public Result postMultipart(String path, Map<String, Body> parts) throws IOException {
+        long start = System.nanoTime();
+        String boundary = "----ProjectPArteII" + UUID.randomUUID().toString().replace("-", "");
+        HttpURLConnection connection = open(path, "multipart/form-data; boundary=" + boundary);
+        long sent;
+        try (CountingOutputStream out = new CountingOutputStream(connection.getOutputStream())) {
+            for (Map.Entry<String, Body> part : parts.entrySet()) {
+                Body body = part.getValue();
+                StringBuilder header = new StringBuilder()
+                        .append("--").append(boundary).append("\r\n")
+                        .append("Content-Disposition: form-data; name=\"").append(part.getKey()).append('"');
+                if (!body.contentType().startsWith("text/")) {
+                    header.append("; filename=\"").append(part.getKey()).append('"');
+                }
+                header.append("\r\nContent-Type: ").append(body.contentType()).append("\r\n\r\n");
+                out.write(header.toString().getBytes(StandardCharsets.UTF_8));
+                body.writeTo(out);
+                out.write("\r\n".getBytes(StandardCharsets.UTF_8));
+            }
+            out.write(("--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+            sent = out.count;
+        }
+        return finish(connection, sent, start);
+    }
+
+    private HttpURLConnection open(String path, String contentType) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        connection.setReadTimeout(READ_TIMEOUT_MS);
+        //el tamaño no se conoce hasta terminar de comprimir
+        connection.setChunkedStreamingMode(CHUNK_SIZE);
+        connection.setRequestProperty("Connection", "keep-alive");
+        connection.setRequestProperty("Content-Type", contentType);
+        return connection;
+    }
+
+    private static Result finish(HttpURLConnection connection, long sent, long start) throws IOException {
+        int code = connection.getResponseCode();
+        //consumir la respuesta completa deja el socket listo para reutilizarse
+        InputStream in = code >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        if (in != null) {
+            try {
+                byte[] discard = new byte[1024];
+                while (in.read(discard) != -1) {
+                    // descartar
+                }
+            } finally {
+                in.close();
+            }
+        }
+        return new Result(code, sent, (System.nanoTime() - start) / 1000000);
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
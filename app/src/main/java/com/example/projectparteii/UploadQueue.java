@@ -0,0 +1,550 @@
+package com.example.projectparteii;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cola persistente de envios al servidor.
+ * <p>
+ * Cada peticion (original, procesada y datos) se guarda en su propia carpeta dentro de
+ * {@code dir} antes de intentar enviarla, asi que sobrevive a que el servidor no responda o
+ * a que la app se cierre. Un hilo de fondo vacia la cola por lotes de {@code batchSize}
+ * peticiones, con como mucho {@code concurrency} envios a la vez. Si un envio falla, el
+ * vaciado se pausa con espera exponencial (con variacion aleatoria) hasta el siguiente
+ * intento; el primer envio correcto la reinicia, y {@link #onNetworkAvailable()} la
+ * interrumpe. Las peticiones con el mismo contenido que una pendiente (o que una que se
+ * esta guardando) se descartan. En modo por partes, cada parte enviada se marca para no
+ * repetirla al reintentar.
+ */
+public class UploadQueue {
+    private static final String META_FILE = "request.properties";
+    private static final String TMP_SUFFIX = ".tmp";
+    private static final long THROUGHPUT_WINDOW_MS = 60000;
+
+    /** Una parte de la peticion; endpoint solo se usa cuando no es multipart. */
+    public static final class Part {
+        public final String name;
+        public final String endpoint;
+        public final String contentType;
+        public final byte[] data;
+
+        public Part(String name, String endpoint, String contentType, byte[] data) {
+            this.name = name;
+            this.endpoint = endpoint;
+            this.contentType = contentType;
+            this.data = data;
+        }
+    }
+
+    /** Con multipartEndpoint != null todas las partes van en una sola peticion multipart. */
+    public static final class Request {
+        public final String baseUrl;
+        public final String multipartEndpoint;
+        public final List<Part> parts;
+
+        public Request(String baseUrl, String multipartEndpoint, List<Part> parts) {
+            this.baseUrl = baseUrl;
+            this.multipartEndpoint = multipartEndpoint;
+            this.parts = parts;
+        }
+    }
+
+    /** Se llama en los hilos de envio. */
+    public interface Listener {
+        void onDelivered(String id, long ageMillis);
+
+        void onRetry(String id, int attempts, long delayMillis, IOException error);
+    }
+
+    /** Copia inmutable de las metricas de la cola. */
+    public static final class Metrics {
+        public final int depth;
+        public final long oldestAgeMs;
+        public final long delivered;
+        public final long failedAttempts;
+        public final long deduplicated;
+        public final long bytesSent;
+        public final int deliveredLastMinute;
+
+        Metrics(int depth, long oldestAgeMs, long delivered, long failedAttempts, long deduplicated, long bytesSent,
+                int deliveredLastMinute) {
+            this.depth = depth;
+            this.oldestAgeMs = oldestAgeMs;
+            this.delivered = delivered;
+            this.failedAttempts = failedAttempts;
+            this.deduplicated = deduplicated;
+            this.bytesSent = bytesSent;
+            this.deliveredLastMinute = deliveredLastMinute;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("depth=%d oldestMs=%d delivered=%d failed=%d deduplicated=%d bytes=%d perMinute=%d",
+                    depth, oldestAgeMs, delivered, failedAttempts, deduplicated, bytesSent, deliveredLastMinute);
+        }
+    }
+
+    private static final class Entry {
+        final String id;
+        final File dir;
+        final Properties meta;
+        final String key;
+        final long createdAt;
+        int attempts;
+        boolean sending;
+
+        Entry(String id, File dir, Properties meta) {
+            this.id = id;
+            this.dir = dir;
+            this.meta = meta;
+            this.key = meta.getProperty("key");
+            this.createdAt = Long.parseLong(meta.getProperty("createdAt"));
+            this.attempts = Integer.parseInt(meta.getProperty("attempts", "0"));
+        }
+    }
+
+    private final File dir;
+    private final int concurrency;
+    private final int batchSize;
+    private final long baseBackoffMs;
+    private final long maxBackoffMs;
+    private final Object lock = new Object();
+    private final Map<String, Entry> entries = new HashMap<>();
+    //clave -> id de las peticiones que se estan escribiendo en disco
+    private final Map<String, String> reserved = new HashMap<>();
+    private final ArrayDeque<Long> deliveredAt = new ArrayDeque<>();
+    private final Random random = new Random();
+    private final Runnable drainTask = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+
+    private ScheduledExecutorService scheduler;
+    private ExecutorService workers;
+    private ScheduledFuture<?> scheduledDrain;
+    private volatile Listener listener;
+
+    private int consecutiveFailures;
+    private long pausedUntil;
+    private long delivered;
+    private long failedAttempts;
+    private long deduplicated;
+    private long bytesSent;
+
+    public UploadQueue(File dir) {
+        this(dir, 2, 4, 1000, 60000);
+    }
+
+    public UploadQueue(File dir, int concurrency, int batchSize, long baseBackoffMs, long maxBackoffMs) {
+        this.dir = dir;
+        this.concurrency = concurrency;
+        this.batchSize = batchSize;
+        this.baseBackoffMs = baseBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /** Carga las peticiones pendientes de ejecuciones anteriores y empieza a vaciar la cola. */
+    public void start() {
+        synchronized (lock) {
+            if (scheduler != null) {
+                return;
+            }
+            load();
+            scheduler = Executors.newSingleThreadScheduledExecutor();
+            workers = Executors.newFixedThreadPool(concurrency);
+            scheduleNext();
+        }
+    }
+
+    /** Detiene el envio; lo pendiente queda en disco para el siguiente start(). */
+    public void stop() {
+        ScheduledExecutorService stoppedScheduler;
+        ExecutorService stoppedWorkers;
+        synchronized (lock) {
+            stoppedScheduler = scheduler;
+            stoppedWorkers = workers;
+            scheduler = null;
+            workers = null;
+            scheduledDrain = null;
+        }
+        if (stoppedScheduler != null) {
+            stoppedScheduler.shutdownNow();
+            stoppedWorkers.shutdownNow();
+        }
+    }
+
+    /**
+     * Guarda la peticion y la deja lista para enviarse. Si ya hay una pendiente con el mismo
+     * contenido devuelve su id sin duplicarla.
+     */
+    public String enqueue(Request request) throws IOException {
+        String key = keyOf(request);
+        long now = System.currentTimeMillis();
+        String id = String.format("%013d-%s", now, key.substring(0, 12));
+        //la comprobacion y la reserva van juntas: dos peticiones iguales no pueden pasar ambas
+        synchronized (lock) {
+            String pending = reserved.get(key);
+            if (pending == null) {
+                for (Entry entry : entries.values()) {
+                    if (entry.key.equals(key)) {
+                        pending = entry.id;
+                        break;
+                    }
+                }
+            }
+            if (pending != null) {
+                deduplicated++;
+                return pending;
+            }
+            reserved.put(key, id);
+        }
+
+        Entry entry = null;
+        try {
+            entry = write(id, key, now, request);
+        } finally {
+            synchronized (lock) {
+                reserved.remove(key);
+                if (entry != null) {
+                    entries.put(id, entry);
+                    scheduleNext();
+                }
+            }
+        }
+        return id;
+    }
+
+    //guarda la peticion en su carpeta; se llama fuera del candado
+    private Entry write(String id, String key, long now, Request request) throws IOException {
+        Properties meta = new Properties();
+        meta.setProperty("baseUrl", request.baseUrl);
+        if (request.multipartEndpoint != null) {
+            meta.setProperty("multipartEndpoint", request.multipartEndpoint);
+        }
+        meta.setProperty("key", key);
+        meta.setProperty("createdAt", Long.toString(now));
+        meta.setProperty("attempts", "0");
+        meta.setProperty("parts", Integer.toString(request.parts.size()));
+
+        //se escribe en una carpeta temporal y se renombra: nunca queda una peticion a medias
+        File tmp = new File(dir, id + TMP_SUFFIX);
+        File target = new File(dir, id);
+        if (!tmp.mkdirs() && !tmp.isDirectory()) {
+            throw new IOException("Could not create " + tmp);
+        }
+        for (int i = 0; i < request.parts.size(); i++) {
+            Part part = request.parts.get(i);
+            meta.setProperty("part." + i + ".name", part.name);
+            meta.setProperty("part." + i + ".type", part.contentType);
+            if (part.endpoint != null) {
+                meta.setProperty("part." + i + ".endpoint", part.endpoint);
+            }
+            try (OutputStream out = new FileOutputStream(new File(tmp, "part." + i))) {
+                out.write(part.data);
+            }
+        }
+        writeMeta(tmp, meta);
+        if (!tmp.renameTo(target)) {
+            deleteRecursively(tmp);
+            throw new IOException("Could not commit " + target);
+        }
+        return new Entry(id, target, meta);
+    }
+
+    /**
+     * La red volvio: se interrumpe la pausa por fallos y se intenta vaciar la cola ya. Las
+     * peticiones nuevas no la interrumpen, esperan a que termine.
+     */
+    public void onNetworkAvailable() {
+        synchronized (lock) {
+            pausedUntil = 0;
+            schedule(0);
+        }
+    }
+
+    public Metrics metrics() {
+        synchronized (lock) {
+            long now = System.currentTimeMillis();
+            long oldest = 0;
+            for (Entry entry : entries.values()) {
+                oldest = Math.max(oldest, now - entry.createdAt);
+            }
+            trimDelivered(now);
+            return new Metrics(entries.size(), oldest, delivered, failedAttempts, deduplicated, bytesSent, deliveredAt.size());
+        }
+    }
+
+    private void schedule(long delayMs) {
+        if (scheduler == null) {
+            return;
+        }
+        if (scheduledDrain != null && !scheduledDrain.isDone()) {
+            if (scheduledDrain.getDelay(TimeUnit.MILLISECONDS) <= delayMs) {
+                return;
+            }
+            scheduledDrain.cancel(false);
+        }
+        scheduledDrain = scheduler.schedule(drainTask, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void drain() {
+        List<Entry> batch = new ArrayList<>();
+        ExecutorService pool;
+        synchronized (lock) {
+            //esta ronda ya empezo: un enqueue() durante el envio programa la siguiente
+            scheduledDrain = null;
+            pool = workers;
+            if (pool == null || System.currentTimeMillis() < pausedUntil) {
+                scheduleNext();
+                return;
+            }
+            List<Entry> pending = new ArrayList<>(entries.values());
+            Collections.sort(pending, new Comparator<Entry>() {
+                @Override
+                public int compare(Entry a, Entry b) {
+                    return a.id.compareTo(b.id);
+                }
+            });
+            for (Entry entry : pending) {
+                if (batch.size() == batchSize) {
+                    break;
+                }
+                if (!entry.sending) {
+                    entry.sending = true;
+                    batch.add(entry);
+                }
+            }
+        }
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (final Entry entry : batch) {
+            futures.add(pool.submit(new Runnable() {
+                @Override
+                public void run() {
+                    attempt(entry);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                // attempt() no lanza; solo por seguridad
+            }
+        }
+
+        synchronized (lock) {
+            scheduleNext();
+        }
+    }
+
+    private void scheduleNext() {
+        if (entries.isEmpty()) {
+            return;
+        }
+        schedule(Math.max(0, pausedUntil - System.currentTimeMillis()));
+    }
+
+    private void attempt(Entry entry) {
+        try {
+            long sent = deliver(entry);
+            deleteRecursively(entry.dir);
+            long now = System.currentTimeMillis();
+            synchronized (lock) {
+                entries.remove(entry.id);
+                delivered++;
+                bytesSent += sent;
+                deliveredAt.addLast(now);
+                trimDelivered(now);
+                consecutiveFailures = 0;
+                pausedUntil = 0;
+            }
+            Listener current = listener;
+            if (current != null) {
+                current.onDelivered(entry.id, now - entry.createdAt);
+            }
+        } catch (IOException e) {
+            long delay;
+            int attempts;
+            synchronized (lock) {
+                attempts = ++entry.attempts;
+                entry.sending = false;
+                failedAttempts++;
+                consecutiveFailures++;
+                delay = backoffMs(consecutiveFailures);
+                pausedUntil = Math.max(pausedUntil, System.currentTimeMillis() + delay);
+                entry.meta.setProperty("attempts", Integer.toString(attempts));
+            }
+            try {
+                writeMeta(entry.dir, entry.meta);
+            } catch (IOException ignored) {
+                // el contador de intentos es solo informativo
+            }
+            Listener current = listener;
+            if (current != null) {
+                current.onRetry(entry.id, attempts, delay, e);
+            }
+        }
+    }
+
+    private long deliver(Entry entry) throws IOException {
+        Properties meta = entry.meta;
+        UploadClient client = new UploadClient(meta.getProperty("baseUrl"));
+        int parts = Integer.parseInt(meta.getProperty("parts"));
+        String multipartEndpoint = meta.getProperty("multipartEndpoint");
+        long sent = 0;
+        if (multipartEndpoint != null) {
+            Map<String, UploadClient.Body> bodies = new LinkedHashMap<>();
+            for (int i = 0; i < parts; i++) {
+                bodies.put(meta.getProperty("part." + i + ".name"), bodyOf(entry, i));
+            }
+            UploadClient.Result result = client.postMultipart(multipartEndpoint, bodies);
+            check(result, multipartEndpoint);
+            return result.bytesSent;
+        }
+        for (int i = 0; i < parts; i++) {
+            if (Boolean.parseBoolean(meta.getProperty("part." + i + ".sent"))) {
+                continue;
+            }
+            String endpoint = meta.getProperty("part." + i + ".endpoint");
+            UploadClient.Result result = client.post(endpoint, bodyOf(entry, i));
+            check(result, endpoint);
+            sent += result.bytesSent;
+            synchronized (lock) {
+                meta.setProperty("part." + i + ".sent", "true");
+            }
+            writeMeta(entry.dir, meta);
+        }
+        return sent;
+    }
+
+    private static UploadClient.Body bodyOf(Entry entry, int part) {
+        return UploadClient.file(new File(entry.dir, "part." + part), entry.meta.getProperty("part." + part + ".type"));
+    }
+
+    private static void check(UploadClient.Result result, String endpoint) throws IOException {
+        if (!result.isSuccessful()) {
+            throw new IOException("HTTP " + result.code + " from " + endpoint);
+        }
+    }
+
+    private long backoffMs(int failures) {
+        long delay = baseBackoffMs << Math.min(failures - 1, 20);
+        double jitter = 0.8 + 0.4 * random.nextDouble();
+        return Math.min(maxBackoffMs, (long) (Math.min(delay, maxBackoffMs) * jitter));
+    }
+
+    private void trimDelivered(long now) {
+        while (!deliveredAt.isEmpty() && now - deliveredAt.peekFirst() > THROUGHPUT_WINDOW_MS) {
+            deliveredAt.removeFirst();
+        }
+    }
+
+    private void load() {
+        entries.clear();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            return;
+        }
+        File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            if (child.getName().endsWith(TMP_SUFFIX)) {
+                //peticion que no llego a guardarse completa
+                deleteRecursively(child);
+                continue;
+            }
+            Properties meta = new Properties();
+            try (InputStream in = new FileInputStream(new File(child, META_FILE))) {
+                meta.load(in);
+                entries.put(child.getName(), new Entry(child.getName(), child, meta));
+            } catch (IOException | RuntimeException e) {
+                deleteRecursively(child);
+            }
+        }
+    }
+
+    private static void writeMeta(File entryDir, Properties meta) throws IOException {
+        File tmp = new File(entryDir, META_FILE + TMP_SUFFIX);
+        synchronized (meta) {
+            try (OutputStream out = new FileOutputStream(tmp)) {
+                meta.store(out, null);
+            }
+        }
+        if (!tmp.renameTo(new File(entryDir, META_FILE))) {
+            throw new IOException("Could not update " + entryDir);
+        }
+    }
+
+    private static String keyOf(Request request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(request.baseUrl.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            if (request.multipartEndpoint != null) {
+                digest.update(request.multipartEndpoint.getBytes(StandardCharsets.UTF_8));
+            }
+            for (Part part : request.parts) {
+                digest.update((byte) 0);
+                digest.update(part.name.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                if (part.endpoint != null) {
+                    digest.update(part.endpoint.getBytes(StandardCharsets.UTF_8));
+                }
+                digest.update((byte) 0);
+                digest.update(part.data);
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.projectparteii;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BitmapDecoderTest {
+    @Test
+    public void twelveMegapixelPhotoIsSubsampledToProcessingResolution() {
+        // 4000x3000 con 1024: 4000/2 = 2000, 4000/4 = 1000 < 1024
+        assertEquals(2, BitmapDecoder.calculateInSampleSize(4000, 3000, 1024));
+        assertEquals(2, BitmapDecoder.calculateInSampleSize(3000, 4000, 1024));
+    }
+
+    @Test
+    public void exactMultiplesUseTheLargerSample() {
+        assertEquals(4, BitmapDecoder.calculateInSampleSize(4096, 3072, 1024));
+    }
+
+    @Test
+    public void smallImagesAreNotSubsampled() {
+        assertEquals(1, BitmapDecoder.calculateInSampleSize(800, 600, 1024));
+        assertEquals(1, BitmapDecoder.calculateInSampleSize(2047, 1000, 1024));
+    }
+
+    @Test
+    public void noLimitKeepsFullResolution() {
+        assertEquals(1, BitmapDecoder.calculateInSampleSize(8000, 6000, 0));
+    }
+}
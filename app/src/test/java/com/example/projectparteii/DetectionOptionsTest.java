@@ -0,0 +1,57 @@
+package com.example.projectparteii;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DetectionOptionsTest {
+
+    @Test
+    public void defaultsMatchPreviousHardCodedValues() {
+        DetectionOptions options = new DetectionOptions.Builder().build();
+        assertArrayEquals(new float[]{DetectionOptions.ALL_FEATURES, 0, 1.1f, 5, 30, 20, 30}, options.toPacked(), 0f);
+        assertEquals(DetectionOptions.PACKED_SIZE, options.toPacked().length);
+    }
+
+    @Test
+    public void packsSelectedFeaturesAndSizes() {
+        DetectionOptions options = new DetectionOptions.Builder()
+                .features(DetectionOptions.FEATURE_EYES | DetectionOptions.FEATURE_MOUTH)
+                .maxSide(640)
+                .scaleFactor(1.2f)
+                .minNeighbors(3)
+                .minFaceSize(48)
+                .minFeatureSize(12)
+                .minMouthSize(16)
+                .build();
+
+        assertTrue(options.detects(DetectionOptions.FEATURE_EYES));
+        assertFalse(options.detects(DetectionOptions.FEATURE_NOSE));
+        assertArrayEquals(new float[]{5, 640, 1.2f, 3, 48, 12, 16}, options.toPacked(), 0f);
+
+        DetectionOptions facesOnly = options.buildUpon().features(0).build();
+        assertEquals(0, facesOnly.features);
+        assertEquals(640, facesOnly.maxSide);
+        assertEquals(48, facesOnly.minFaceSize);
+    }
+
+    @Test
+    public void rejectsValuesNativeCodeCannotUse() {
+        DetectionOptions.Builder builder = new DetectionOptions.Builder();
+        try {
+            builder.scaleFactor(1f);
+            fail("scaleFactor 1 accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            builder.features(8);
+            fail("unknown feature accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            builder.minFaceSize(0);
+            fail("minFaceSize 0 accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
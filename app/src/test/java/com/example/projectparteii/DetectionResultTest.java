@@ -0,0 +1,59 @@
+package com.example.projectparteii;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DetectionResultTest {
+    // Un rostro con un ojo y una boca, como los empaqueta packDetections
+    private static final int[] RECORDS = {
+            0, 10, 20, 100, 120, -1, 3,
+            1, 30, 40, 20, 10, 0, 3,
+            3, 40, 90, 40, 20, 0, 3,
+    };
+
+    @Test
+    public void accessorsReadPackedRecords() {
+        DetectionResult result = DetectionResult.wrap(RECORDS);
+        assertEquals(3, result.size());
+        assertEquals(DetectionResult.TYPE_EYE, result.type(1));
+        assertEquals(30, result.x(1));
+        assertEquals(40, result.y(1));
+        assertEquals(20, result.width(1));
+        assertEquals(10, result.height(1));
+        assertEquals(0, result.parent(1));
+        assertEquals(-1, result.parent(0));
+        assertEquals(3, result.track(2));
+        assertEquals(1, result.countOfType(DetectionResult.TYPE_FACE));
+    }
+
+    @Test
+    public void textMatchesPreviousStringFormat() {
+        assertEquals("Face: 10, 20, 100, 120\nEye: 30, 40, 20, 10\nMouth: 40, 90, 40, 20\n",
+                DetectionResult.wrap(RECORDS).toText());
+    }
+
+    @Test
+    public void jsonHasOneObjectPerDetection() {
+        int[] face = {0, 1, 2, 3, 4, -1, -1};
+        assertEquals("[{\"type\":\"Face\",\"x\":1,\"y\":2,\"width\":3,\"height\":4,\"parent\":-1,\"track\":-1}]",
+                DetectionResult.wrap(face).toJson());
+    }
+
+    @Test
+    public void nullAndEmptyAreEmptyResults() {
+        assertTrue(DetectionResult.wrap(null).isEmpty());
+        assertEquals("", DetectionResult.wrap(new int[0]).toText());
+        assertEquals("[]", DetectionResult.wrap(null).toJson());
+    }
+
+    @Test
+    public void truncatedRecordsAreRejected() {
+        try {
+            DetectionResult.wrap(new int[]{0, 1, 2});
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // registros incompletos
+        }
+    }
+}
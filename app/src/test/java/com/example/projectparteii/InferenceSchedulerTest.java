@@ -0,0 +1,178 @@
+package com.example.projectparteii;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class InferenceSchedulerTest {
+    private InferenceScheduler scheduler;
+    private final List<String> delivered = Collections.synchronizedList(new ArrayList<String>());
+
+    @Before
+    public void setUp() {
+        Executor direct = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        };
+        scheduler = new InferenceScheduler(1, direct);
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void supersededRequestsAreNotDelivered() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+
+        // La primera ocupa el unico hilo, la segunda queda en cola y la tercera la reemplaza
+        scheduler.submit("detect", blockingTask("first", release), recorder(null));
+        scheduler.submit("detect", constantTask("second"), recorder(null));
+        scheduler.submit("detect", constantTask("third"), recorder(done));
+        release.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList("third"), delivered);
+        assertEquals(2, scheduler.stats().superseded);
+    }
+
+    @Test
+    public void differentKeysDoNotCancelEachOther() throws Exception {
+        CountDownLatch done = new CountDownLatch(2);
+        scheduler.submit("detect", constantTask("faces"), recorder(done));
+        scheduler.submit("predict", constantTask("label"), recorder(done));
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(delivered.contains("faces"));
+        assertTrue(delivered.contains("label"));
+        assertEquals(2, scheduler.stats().completed);
+    }
+
+    @Test
+    public void errorsAreDeliveredAndCounted() throws Exception {
+        final CountDownLatch done = new CountDownLatch(1);
+        scheduler.submit("predict", new InferenceScheduler.Task<String>() {
+            @Override
+            public String run() throws Exception {
+                throw new IllegalStateException("closed");
+            }
+        }, new InferenceScheduler.Callback<String>() {
+            @Override
+            public void onResult(String result) {
+                fail("unexpected result");
+            }
+
+            @Override
+            public void onError(Exception e) {
+                delivered.add(e.getMessage());
+                done.countDown();
+            }
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList("closed"), delivered);
+        assertEquals(1, scheduler.stats().failed);
+    }
+
+    @Test
+    public void cancelledRequestIsDropped() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        scheduler.submit("detect", blockingTask("first", release), recorder(null));
+        scheduler.cancel("detect");
+        release.countDown();
+
+        CountDownLatch done = new CountDownLatch(1);
+        scheduler.submit("predict", constantTask("after"), recorder(done));
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList("after"), delivered);
+    }
+
+    @Test
+    public void shutdownCallbackWaitsForTheRunningTask() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicBoolean finished = new AtomicBoolean();
+        // Como nativePredict: no responde a la interrupcion de shutdownNow
+        scheduler.submit("predict", new InferenceScheduler.Task<String>() {
+            @Override
+            public String run() {
+                started.countDown();
+                while (release.getCount() > 0) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException ignored) {
+                    }
+                }
+                finished.set(true);
+                return "label";
+            }
+        }, recorder(null));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        final CountDownLatch closed = new CountDownLatch(1);
+        final AtomicBoolean finishedBeforeClose = new AtomicBoolean();
+        scheduler.shutdown(new Runnable() {
+            @Override
+            public void run() {
+                finishedBeforeClose.set(finished.get());
+                closed.countDown();
+            }
+        });
+        assertFalse(closed.await(100, TimeUnit.MILLISECONDS));
+
+        release.countDown();
+        assertTrue(closed.await(5, TimeUnit.SECONDS));
+        assertTrue(finishedBeforeClose.get());
+        assertTrue(delivered.isEmpty());
+    }
+
+    private static InferenceScheduler.Task<String> constantTask(final String value) {
+        return new InferenceScheduler.Task<String>() {
+            @Override
+            public String run() {
+                return value;
+            }
+        };
+    }
+
+    private static InferenceScheduler.Task<String> blockingTask(final String value, final CountDownLatch release) {
+        return new InferenceScheduler.Task<String>() {
+            @Override
+            public String run() throws Exception {
+                release.await(5, TimeUnit.SECONDS);
+                return value;
+            }
+        };
+    }
+
+    private InferenceScheduler.Callback<String> recorder(final CountDownLatch done) {
+        return new InferenceScheduler.Callback<String>() {
+            @Override
+            public void onResult(String result) {
+                delivered.add(result);
+                if (done != null) {
+                    done.countDown();
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                fail(e.toString());
+            }
+        };
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.projectparteii;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class OverlayDeltaTest {
+    private static OverlayDelta.Rows rows(final int[] pixels, final int width) {
+        return new OverlayDelta.Rows() {
+            @Override
+            public void read(int y, int[] row) {
+                System.arraycopy(pixels, y * width, row, 0, width);
+            }
+        };
+    }
+
+    @Test
+    public void identicalImagesHaveNoBounds() {
+        int[] image = new int[40 * 30];
+        assertNull(OverlayDelta.changedBounds(rows(image, 40), rows(image.clone(), 40), 40, 30));
+    }
+
+    @Test
+    public void boundsCoverEveryChangedPixel() {
+        int width = 40, height = 30;
+        int[] original = new int[width * height];
+        int[] processed = original.clone();
+        // contorno de un rectangulo de 10x5 en (12, 8) y un punto suelto en (30, 20)
+        for (int x = 12; x < 22; x++) {
+            processed[8 * width + x] = 0xFFFF0000;
+            processed[12 * width + x] = 0xFFFF0000;
+        }
+        processed[20 * width + 30] = 0xFF00FF00;
+
+        int[] bounds = OverlayDelta.changedBounds(rows(original, width), rows(processed, width), width, height);
+        assertArrayEquals(new int[]{12, 8, 19, 13}, bounds);
+    }
+
+    @Test
+    public void jsonCarriesOverlayDetectionsAndEscapedText() {
+        DetectionResult detections = DetectionResult.wrap(new int[]{DetectionResult.TYPE_FACE, 1, 2, 3, 4, -1, -1});
+        String json = OverlayDelta.toJson(640, 480, new int[]{1, 2, 3, 4}, detections.toJson(), "Face: \"a\"\n");
+        assertEquals("{\"mode\":\"annotations\",\"width\":640,\"height\":480,"
+                + "\"overlay\":{\"x\":1,\"y\":2,\"width\":3,\"height\":4},"
+                + "\"detections\":[{\"type\":\"Face\",\"x\":1,\"y\":2,\"width\":3,\"height\":4,\"parent\":-1,\"track\":-1}],"
+                + "\"text\":\"Face: \\\"a\\\"\\n\"}", json);
+        assertTrue(OverlayDelta.toJson(1, 1, null, null, null).contains("\"overlay\":null,\"detections\":[]"));
+    }
+
+    @Test
+    public void jsonCarriesPredictionWhenGiven() {
+        String json = OverlayDelta.toJson(2, 2, null, null, "{\"label\":2}", "Jersey");
+        assertTrue(json.contains("\"detections\":[],\"prediction\":{\"label\":2},\"text\":\"Jersey\""));
+        assertFalse(OverlayDelta.toJson(2, 2, null, null, null, "").contains("prediction"));
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.projectparteii;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PipelineMetricsTest {
+    private static final int BUCKETS = 24;
+
+    /** Arma el formato de PipelineMetrics::snapshot con tiempos en us para el primer temporizador. */
+    private static long[] packed(long[] firstTimerMicros, long... counters) {
+        int timers = PipelineMetrics.TIMER_NAMES.length;
+        long[] packed = new long[3 + timers * (3 + BUCKETS) + PipelineMetrics.COUNTER_NAMES.length];
+        packed[0] = timers;
+        packed[1] = PipelineMetrics.COUNTER_NAMES.length;
+        packed[2] = BUCKETS;
+        for (long micros : firstTimerMicros) {
+            packed[3]++;
+            packed[4] += micros;
+            packed[5] = Math.max(packed[5], micros);
+            int bucket = 0;
+            for (long m = micros; m > 1 && bucket < BUCKETS - 1; m >>= 1) {
+                bucket++;
+            }
+            packed[6 + bucket]++;
+        }
+        System.arraycopy(counters, 0, packed, packed.length - PipelineMetrics.COUNTER_NAMES.length, counters.length);
+        return packed;
+    }
+
+    @Test
+    public void readsTimersAndCounters() {
+        PipelineMetrics.Snapshot snapshot = PipelineMetrics.Snapshot.fromPacked(
+                packed(new long[]{10000, 12000, 30000}, 3, 9, 4000000, 0));
+
+        PipelineMetrics.Timer total = snapshot.timer("detect.total");
+        assertEquals(3, total.count);
+        assertEquals(52000, total.sumMicros);
+        assertEquals(30000, total.maxMicros);
+        assertEquals(52000 / 3000.0, total.meanMillis(), 1e-9);
+        assertEquals(0, snapshot.timer("predict.mlp").count);
+        assertEquals(9, snapshot.counter("features"));
+        assertEquals(4000000, snapshot.counter("bytesCopied"));
+    }
+
+    @Test
+    public void percentilesUseBucketUpperBoundsCappedByMax() {
+        long[] micros = new long[100];
+        for (int i = 0; i < micros.length; i++) {
+            micros[i] = i < 90 ? 5000 : 100000;
+        }
+        PipelineMetrics.Timer timer = PipelineMetrics.Snapshot.fromPacked(packed(micros)).timer("detect.total");
+        // 5000 us cae en [4096, 8192)
+        assertEquals(8.191, timer.percentileMillis(50), 1e-9);
+        assertEquals(8.191, timer.percentileMillis(90), 1e-9);
+        assertEquals(100.0, timer.percentileMillis(99), 1e-9);
+    }
+
+    @Test
+    public void layoutMismatchIsRejected() {
+        long[] packed = packed(new long[0]);
+        packed[0]++;
+        try {
+            PipelineMetrics.Snapshot.fromPacked(packed);
+            fail("layout mismatch must throw");
+        } catch (IllegalStateException expected) {
+            // ok
+        }
+    }
+
+    @Test
+    public void textSkipsIdleTimersAndJsonListsAll() {
+        PipelineMetrics.Snapshot snapshot = PipelineMetrics.Snapshot.fromPacked(packed(new long[]{2000}, 1, 4, 0, 0));
+        assertEquals("detect.total: n=1 mean=2.0 p50=2.0 p90=2.0 max=2.0 ms\nfaces: 1\nfeatures: 4\nbytesCopied: 0\npredictFailures: 0\npredictRejected: 0\n",
+                snapshot.toText());
+        String json = snapshot.toJson();
+        assertTrue(json.startsWith("{\"timers\":{\"detect.total\":{\"count\":1,\"meanMs\":2.000"));
+        assertTrue(json.contains("\"predict.annotate\":{\"count\":0,"));
+        assertTrue(json.endsWith("\"counters\":{\"faces\":1,\"features\":4,\"bytesCopied\":0,\"predictFailures\":0,\"predictRejected\":0}}"));
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.projectparteii;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PredictionTest {
+    /** Respuesta tipica del modelo: salidas cerca de 0 y 1, algo por fuera del rango. */
+    private static final float[] CONFIDENT = {-0.05f, 0.02f, 1.08f, 0.11f, -0.12f, 0.0f, 0.31f, 0.04f, 0.01f, -0.02f};
+    private static final float[] UNSURE = {0.12f, 0.05f, 0.38f, 0.07f, 0.35f, 0.02f, 0.33f, 0.0f, 0.04f, 0.01f};
+
+    @Test
+    public void topKOrdersByScoreAndBreaksTiesByIndex() {
+        float[] scores = {0.1f, 0.8f, -0.2f, 0.8f, 0.6f};
+        assertArrayEquals(new int[]{1, 3, 4}, Prediction.topK(scores, 3));
+        assertEquals(5, Prediction.topK(scores, 9).length);
+        assertEquals(0, Prediction.topK(scores, 0).length);
+    }
+
+    @Test
+    public void confidenceIsTheClampedOutputOfTheLabel() {
+        Prediction confident = new Prediction(CONFIDENT, false);
+        assertEquals(2, confident.label);
+        assertEquals(1f, confident.confidence, 0f);
+        assertArrayEquals(new int[]{2, 6, 3}, confident.topK(3));
+        float[] confidences = confident.confidences();
+        assertEquals(0f, confidences[0], 0f);
+        assertEquals(0.31f, confidences[6], 1e-6f);
+        assertEquals(BatchPrediction.CATEGORY_LABELS[2], confident.labelName());
+
+        Prediction unsure = new Prediction(UNSURE, false);
+        assertEquals(2, unsure.label);
+        assertEquals(0.38f, unsure.confidence, 1e-6f);
+    }
+
+    @Test
+    public void readsNativeStatus() {
+        Prediction rejected = Prediction.fromNative(Prediction.STATUS_REJECTED, UNSURE, new int[4]);
+        assertTrue(rejected.rejected);
+        assertEquals(2, rejected.label);
+        assertNull(rejected.box);
+
+        Prediction drawn = Prediction.fromNative(2, CONFIDENT, new int[]{5, 6, 70, 80});
+        assertFalse(drawn.rejected);
+        assertFalse(drawn.failed());
+        assertArrayEquals(new int[]{5, 6, 70, 80}, drawn.box);
+
+        Prediction failed = Prediction.fromNative(Prediction.STATUS_FAILED, CONFIDENT, new int[4]);
+        assertTrue(failed.failed());
+        assertNull(failed.labelName());
+        assertEquals(0, failed.scores.length);
+    }
+
+    @Test
+    public void jsonCarriesLabelBoxAndTopK() {
+        Prediction drawn = Prediction.fromNative(2, CONFIDENT, new int[]{5, 6, 70, 80});
+        assertEquals("{\"label\":2,\"name\":\"Jersey\",\"confidence\":1.000,\"rejected\":false,"
+                + "\"box\":{\"x\":5,\"y\":6,\"width\":70,\"height\":80},"
+                + "\"top\":[{\"label\":2,\"name\":\"Jersey\",\"confidence\":1.000},"
+                + "{\"label\":6,\"name\":\"Camisa\",\"confidence\":0.310}]}", drawn.toJson(2));
+
+        Prediction failed = Prediction.fromNative(Prediction.STATUS_FAILED, CONFIDENT, new int[4]);
+        assertEquals("{\"label\":-1,\"name\":null,\"confidence\":0.000,\"rejected\":false,\"box\":null,\"top\":[]}",
+                failed.toJson(3));
+    }
+
+    @Test
+    public void batchPredictionsUseTheSameConfidence() {
+        float[] scores = new float[2 * CONFIDENT.length];
+        System.arraycopy(CONFIDENT, 0, scores, 0, CONFIDENT.length);
+        BatchPrediction batch = new BatchPrediction(new int[]{2, -1}, new float[]{1f, 0f}, scores);
+
+        Prediction first = batch.prediction(0);
+        assertEquals(batch.labels[0], first.label);
+        assertEquals(batch.confidences[0], first.confidence, 0f);
+        assertArrayEquals(CONFIDENT, first.scores, 0f);
+        assertTrue(batch.prediction(1).failed());
+    }
+}
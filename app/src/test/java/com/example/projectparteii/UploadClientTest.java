@@ -0,0 +1,216 @@
+package com.example.projectparteii;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * UploadClient contra un servidor HTTP local que hace de servidor de la practica.
+ */
+public class UploadClientTest {
+    private HttpServer server;
+    private UploadClient client;
+    private final List<Received> received = new ArrayList<>();
+    private volatile int responseCode = 200;
+
+    private static final class Received {
+        final String path;
+        final String contentType;
+        final String transferEncoding;
+        final int remotePort;
+        final byte[] body;
+
+        Received(HttpExchange exchange, byte[] body) {
+            this.path = exchange.getRequestURI().getPath();
+            this.contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+            this.transferEncoding = exchange.getRequestHeaders().getFirst("Transfer-Encoding");
+            this.remotePort = exchange.getRemoteAddress().getPort();
+            this.body = body;
+        }
+    }
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                byte[] body = readAll(exchange.getRequestBody());
+                synchronized (received) {
+                    received.add(new Received(exchange, body));
+                }
+                byte[] response = "ok".getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(responseCode, response.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(response);
+                }
+            }
+        });
+        server.start();
+        client = new UploadClient("http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void bodyIsStreamedChunked() throws IOException {
+        byte[] image = randomBytes(300 * 1024);
+        UploadClient.Result result = client.post("/recepcion1original", UploadClient.bytes(image, "image/png"));
+
+        assertEquals(200, result.code);
+        assertEquals(image.length, result.bytesSent);
+        Received request = received.get(0);
+        assertEquals("/recepcion1original", request.path);
+        assertEquals("image/png", request.contentType);
+        assertEquals("chunked", request.transferEncoding);
+        assertArrayEquals(image, request.body);
+    }
+
+    @Test
+    public void consecutiveUploadsReuseTheConnection() throws IOException {
+        client.post("/recepcion1original", UploadClient.bytes(randomBytes(100 * 1024), "image/png"));
+        client.post("/recepcion1deteccion", UploadClient.bytes(randomBytes(100 * 1024), "image/png"));
+        client.post("/recepcion1datos", UploadClient.text("Face: 1, 2, 3, 4\n"));
+
+        assertEquals(3, received.size());
+        assertEquals(received.get(0).remotePort, received.get(1).remotePort);
+        assertEquals(received.get(0).remotePort, received.get(2).remotePort);
+    }
+
+    @Test
+    public void multipartCarriesAllParts() throws IOException {
+        byte[] original = randomBytes(2048);
+        Map<String, UploadClient.Body> parts = new LinkedHashMap<>();
+        parts.put("original", UploadClient.bytes(original, "image/png"));
+        parts.put("data", UploadClient.text("Face: 1, 2, 3, 4\n"));
+        UploadClient.Result result = client.postMultipart("/recepcion1", parts);
+
+        assertTrue(result.isSuccessful());
+        Received request = received.get(0);
+        assertTrue(request.contentType.startsWith("multipart/form-data; boundary="));
+        assertEquals(request.body.length, result.bytesSent);
+        String body = new String(request.body, StandardCharsets.ISO_8859_1);
+        assertTrue(body.contains("name=\"original\"; filename=\"original\""));
+        assertTrue(body.contains("name=\"data\"\r\nContent-Type: text/plain; charset=utf-8\r\n\r\nFace: 1, 2, 3, 4\n\r\n"));
+        int start = body.indexOf("\r\n\r\n") + 4;
+        assertArrayEquals(original, Arrays.copyOfRange(request.body, start, start + original.length));
+        String boundary = request.contentType.substring(request.contentType.indexOf('=') + 1);
+        assertTrue(body.endsWith("--" + boundary + "--\r\n"));
+    }
+
+    @Test
+    public void serverErrorIsReportedAndConnectionStaysUsable() throws IOException {
+        responseCode = 500;
+        UploadClient.Result failed = client.post("/recepcion1datos", UploadClient.text("x"));
+        assertEquals(500, failed.code);
+        assertFalse(failed.isSuccessful());
+
+        responseCode = 200;
+        assertTrue(client.post("/recepcion1datos", UploadClient.text("y")).isSuccessful());
+    }
+
+    @Test
+    public void streamingSendsTheSameBodiesAsTheTempFileUpload() throws IOException {
+        byte[] original = randomBytes(2 * 1024 * 1024);
+        byte[] processed = randomBytes(2 * 1024 * 1024);
+        String data = "Face: 10, 20, 100, 120\n";
+
+        // Camino anterior: archivos temporales y una conexion por parte, cuerpo en memoria.
+        // Los tiempos de ambos caminos se miden en UploadClientBenchmark (androidTest)
+        File originalFile = File.createTempFile("temp_original_image", ".png");
+        File processedFile = File.createTempFile("temp_processed_image", ".png");
+        try {
+            writeFile(originalFile, original);
+            writeFile(processedFile, processed);
+            legacyPost("/recepcion1original", originalFile);
+            legacyPost("/recepcion1deteccion", processedFile);
+            legacyPost("/recepcion1datos", data.getBytes(StandardCharsets.UTF_8));
+
+            long sent = client.post("/recepcion1original", UploadClient.bytes(original, "image/png")).bytesSent
+                    + client.post("/recepcion1deteccion", UploadClient.bytes(processed, "image/png")).bytesSent
+                    + client.post("/recepcion1datos", UploadClient.text(data)).bytesSent;
+            assertEquals(original.length + processed.length + data.length(), sent);
+        } finally {
+            originalFile.delete();
+            processedFile.delete();
+        }
+        assertEquals(6, received.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(received.get(i).path, received.get(i + 3).path);
+            assertArrayEquals(received.get(i).body, received.get(i + 3).body);
+        }
+    }
+
+    private void legacyPost(String path, File file) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + server.getAddress().getPort() + path).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream(); InputStream in = new FileInputStream(file)) {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+        assertEquals(200, connection.getResponseCode());
+    }
+
+    private void legacyPost(String path, byte[] data) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + server.getAddress().getPort() + path).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(data);
+        }
+        assertEquals(200, connection.getResponseCode());
+    }
+
+    private static void writeFile(File file, byte[] data) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(data);
+        }
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
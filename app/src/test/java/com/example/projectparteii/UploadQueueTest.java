@@ -0,0 +1,274 @@
+package com.example.projectparteii;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * UploadQueue contra un servidor local que se cae y vuelve a levantarse.
+ */
+public class UploadQueueTest {
+    private File dir;
+    private HttpServer server;
+    private int port;
+    private UploadQueue queue;
+    private final Map<String, Integer> receivedCount = new HashMap<>();
+    private final List<String> paths = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("upload-queue").toFile();
+        startServer(0);
+        port = server.getAddress().getPort();
+    }
+
+    @After
+    public void tearDown() {
+        if (queue != null) {
+            queue.stop();
+        }
+        if (server != null) {
+            server.stop(0);
+        }
+        deleteRecursively(dir);
+    }
+
+    @Test
+    public void deliversEachPartOnce() throws Exception {
+        queue = newQueue();
+        queue.start();
+        queue.enqueue(request(1));
+        queue.enqueue(request(2));
+
+        awaitDepth(queue, 0, 5000);
+        UploadQueue.Metrics metrics = queue.metrics();
+        assertEquals(2, metrics.delivered);
+        assertEquals(0, metrics.failedAttempts);
+        assertEquals(6, paths.size());
+        for (int count : receivedCount.values()) {
+            assertEquals(1, count);
+        }
+        assertEquals(0, dir.list().length);
+    }
+
+    @Test
+    public void survivesServerOutageAndRestart() throws Exception {
+        server.stop(0);
+        server = null;
+
+        queue = newQueue();
+        queue.start();
+        for (int i = 0; i < 5; i++) {
+            queue.enqueue(request(i));
+        }
+        String duplicate = queue.enqueue(request(0));
+        Thread.sleep(300);
+
+        UploadQueue.Metrics down = queue.metrics();
+        assertEquals(5, down.depth);
+        assertEquals(1, down.deduplicated);
+        assertTrue(down.failedAttempts > 0);
+        assertEquals(0, down.delivered);
+        assertTrue(down.oldestAgeMs > 0);
+        assertTrue(new File(dir, duplicate).isDirectory());
+
+        // Una nueva instancia (como tras reiniciar la app) recupera lo pendiente del disco
+        queue.stop();
+        new File(dir, "0000000000000-stale.tmp").mkdirs();
+        queue = newQueue();
+        startServer(port);
+        queue.start();
+
+        awaitDepth(queue, 0, 10000);
+        UploadQueue.Metrics up = queue.metrics();
+        assertEquals(5, up.delivered);
+        assertEquals(5, up.deliveredLastMinute);
+        assertEquals(15, paths.size());
+        assertEquals(15, receivedCount.size());
+        for (int count : receivedCount.values()) {
+            assertEquals(1, count);
+        }
+        assertEquals(0, dir.list().length);
+    }
+
+    @Test
+    public void multipartRequestIsRetriedWhole() throws Exception {
+        server.stop(0);
+        server = null;
+        queue = newQueue();
+        queue.start();
+        List<UploadQueue.Part> parts = Arrays.asList(
+                new UploadQueue.Part("original", null, "image/png", randomBytes(4096, 7)),
+                new UploadQueue.Part("data", null, "text/plain; charset=utf-8", "Face: 1, 2, 3, 4\n".getBytes(StandardCharsets.UTF_8)));
+        queue.enqueue(new UploadQueue.Request("http://127.0.0.1:" + port, "/recepcion1", parts));
+        Thread.sleep(100);
+
+        startServer(port);
+        queue.onNetworkAvailable();
+        awaitDepth(queue, 0, 5000);
+        assertEquals(Arrays.asList("/recepcion1"), paths);
+    }
+
+    @Test
+    public void concurrentDuplicatesAreStoredOnce() throws Exception {
+        server.stop(0);
+        server = null;
+        queue = new UploadQueue(dir, 2, 3, 10000, 10000);
+        queue.start();
+        final UploadQueue.Request request = request(3);
+        final CountDownLatch go = new CountDownLatch(1);
+        final String[] ids = new String[8];
+        Thread[] threads = new Thread[ids.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        go.await();
+                        ids[index] = queue.enqueue(request);
+                    } catch (InterruptedException | IOException e) {
+                        ids[index] = null;
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        go.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        for (String id : ids) {
+            assertEquals(ids[0], id);
+        }
+        UploadQueue.Metrics metrics = queue.metrics();
+        assertEquals(1, metrics.depth);
+        assertEquals(ids.length - 1, metrics.deduplicated);
+        assertEquals(1, dir.list().length);
+    }
+
+    @Test
+    public void enqueueDoesNotCutTheBackoffShort() throws Exception {
+        server.stop(0);
+        server = null;
+        queue = new UploadQueue(dir, 2, 3, 10000, 10000);
+        queue.start();
+        queue.enqueue(request(1));
+        awaitFailures(queue, 1, 5000);
+
+        // Nuevas peticiones durante la pausa esperan a que termine
+        queue.enqueue(request(2));
+        queue.enqueue(request(3));
+        Thread.sleep(200);
+        assertEquals(1, queue.metrics().failedAttempts);
+        assertEquals(3, queue.metrics().depth);
+
+        // Solo la vuelta de la red interrumpe la pausa
+        startServer(port);
+        queue.onNetworkAvailable();
+        awaitDepth(queue, 0, 5000);
+        assertEquals(1, queue.metrics().failedAttempts);
+    }
+
+    private UploadQueue newQueue() {
+        return new UploadQueue(dir, 2, 3, 20, 200);
+    }
+
+    private UploadQueue.Request request(int seed) {
+        List<UploadQueue.Part> parts = Arrays.asList(
+                new UploadQueue.Part("original", "/recepcion1original", "image/png", randomBytes(50 * 1024, seed)),
+                new UploadQueue.Part("processed", "/recepcion1deteccion", "image/png", randomBytes(50 * 1024, seed + 100)),
+                new UploadQueue.Part("data", "/recepcion1datos", "text/plain; charset=utf-8",
+                        ("Face: " + seed + ", 2, 3, 4\n").getBytes(StandardCharsets.UTF_8)));
+        return new UploadQueue.Request("http://127.0.0.1:" + port, null, parts);
+    }
+
+    private void startServer(int bindPort) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", bindPort), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                byte[] body = readAll(exchange.getRequestBody());
+                String path = exchange.getRequestURI().getPath();
+                String key = path + ":" + Arrays.hashCode(body);
+                synchronized (receivedCount) {
+                    paths.add(path);
+                    Integer count = receivedCount.get(key);
+                    receivedCount.put(key, count == null ? 1 : count + 1);
+                }
+                exchange.sendResponseHeaders(200, -1);
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    private static void awaitDepth(UploadQueue queue, int depth, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (queue.metrics().depth != depth) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("queue depth " + queue.metrics().depth + " != " + depth);
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private static void awaitFailures(UploadQueue queue, long failures, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (queue.metrics().failedAttempts < failures) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("failed attempts " + queue.metrics().failedAttempts + " < " + failures);
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private static byte[] randomBytes(int size, int seed) {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,111 @@
+// Rendimiento de la clasificacion imagen por imagen frente a classifyBatch.
+//
+//   batch_predict_bench <modelo.xml|models.pack> [carpeta_imagenes] [tamano_lote...]
+//
+// Sin carpeta se usan imagenes sinteticas de 512x512. Reporta imagenes/segundo y verifica
+// que ambas rutas den las mismas etiquetas.
+#include <opencv2/core.hpp>
+#include <opencv2/imgcodecs.hpp>
+#include <opencv2/imgproc.hpp>
+#include <cstdio>
+#include <cstdlib>
+#include <string>
+#include <vector>
+
+#include "classifier.h"
+
+using namespace cv;
+using namespace std;
+
+namespace {
+
+vector<Mat> loadImages(const string &dir) {
+    vector<Mat> images;
+    vector<String> files;
+    glob(dir, files, false);
+    for (const String &file : files) {
+        Mat bgr = imread(file, IMREAD_COLOR);
+        if (!bgr.empty()) {
+            Mat rgba;
+            cvtColor(bgr, rgba, COLOR_BGR2RGBA);
+            images.push_back(rgba);
+        }
+    }
+    return images;
+}
+
+// Fondo blanco con una figura oscura, parecido a las fotos de prendas
+vector<Mat> syntheticImages(int count) {
+    vector<Mat> images;
+    RNG rng(42);
+    for (int i = 0; i < count; i++) {
+        Mat rgba(512, 512, CV_8UC4, Scalar(255, 255, 255, 255));
+        Point center(rng.uniform(160, 352), rng.uniform(160, 352));
+        Size axes(rng.uniform(60, 150), rng.uniform(60, 150));
+        ellipse(rgba, center, axes, rng.uniform(0, 180), 0, 360,
+                Scalar(rng.uniform(0, 120), rng.uniform(0, 120), rng.uniform(0, 120), 255), FILLED);
+        images.push_back(rgba);
+    }
+    return images;
+}
+
+}
+
+int main(int argc, char **argv) {
+    if (argc < 2) {
+        fprintf(stderr, "Usage: %s <model> [images_dir] [batchSize...]\n", argv[0]);
+        return 2;
+    }
+    ClassifierSession session;
+    if (!session.open(argv[1])) {
+        fprintf(stderr, "Could not load model %s\n", argv[1]);
+        return 1;
+    }
+    session.warmUp();
+
+    vector<Mat> images = argc > 2 ? loadImages(argv[2]) : syntheticImages(64);
+    if (images.empty()) {
+        fprintf(stderr, "No images in %s\n", argv[2]);
+        return 1;
+    }
+    vector<int> batchSizes;
+    for (int i = 3; i < argc; i++) {
+        batchSizes.push_back(atoi(argv[i]));
+    }
+    if (batchSizes.empty()) {
+        batchSizes = {1, 4, 8, 16, 32};
+    }
+
+    int64 start = getTickCount();
+    vector<int> expected(images.size());
+    for (size_t i = 0; i < images.size(); i++) {
+        expected[i] = session.classify(images[i]);
+    }
+    double singleSec = (getTickCount() - start) / getTickFrequency();
+    printf("%zu images, %d threads\n", images.size(), getNumThreads());
+    printf("%10s %12s %8s %10s\n", "batch", "images/s", "speedup", "mismatch");
+    printf("%10s %12.1f %7.2fx %10d\n", "single", images.size() / singleSec, 1.0, 0);
+
+    for (int batchSize : batchSizes) {
+        if (batchSize <= 0) {
+            continue;
+        }
+        int mismatches = 0;
+        start = getTickCount();
+        for (size_t first = 0; first < images.size(); first += batchSize) {
+            size_t last = min(images.size(), first + batchSize);
+            vector<Mat> batch(images.begin() + first, images.begin() + last);
+            vector<int> labels;
+            vector<float> confidences;
+            session.classifyBatch(batch, labels, confidences);
+            for (size_t i = 0; i < labels.size(); i++) {
+                if (labels[i] != expected[first + i]) {
+                    mismatches++;
+                }
+            }
+        }
+        double batchSec = (getTickCount() - start) / getTickFrequency();
+        printf("%10d %12.1f %7.2fx %10d\n", batchSize, images.size() / batchSec, singleSec / batchSec, mismatches);
+    }
+    return 0;
+}
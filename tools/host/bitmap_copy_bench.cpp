@@ -0,0 +1,93 @@
+// Micro-benchmark de la capa JNI de bitmaps: el camino anterior (bitmapToMat copia los
+// pixeles a un Mat nuevo y matToBitmap los copia de vuelta) contra BitmapView, que trabaja
+// sobre los pixeles bloqueados. Un buffer RGBA hace de Bitmap.
+//
+//   bitmap_copy_bench [repeticiones]
+#include <opencv2/core.hpp>
+#include <opencv2/imgproc.hpp>
+#include <cstdio>
+#include <cstdlib>
+#include <vector>
+
+using namespace cv;
+using namespace std;
+
+namespace {
+
+struct Result {
+    int copies;
+    double ms;
+};
+
+// Trabajo comun de ambos caminos: gris para las cascadas y algunos rectangulos dibujados
+void process(const Mat &rgba, Mat &annotated) {
+    Mat gray;
+    cvtColor(rgba, gray, COLOR_RGBA2GRAY);
+    for (int i = 0; i < 8; i++) {
+        rectangle(annotated, Rect(20 + i * 40, 20 + i * 30, 60, 60), Scalar(0, 0, 255), 3);
+    }
+}
+
+Result detectLegacy(const Mat &inPixels, Mat &outPixels) {
+    Mat img;
+    inPixels.copyTo(img);           // bitmapToMat
+    process(img, img);
+    img.copyTo(outPixels);          // matToBitmap
+    return {2, 0};
+}
+
+Result detectView(const Mat &inPixels, Mat &outPixels) {
+    inPixels.copyTo(outPixels);     // unica copia hacia la salida
+    process(inPixels, outPixels);   // lectura directa sobre la entrada, dibujo sobre la salida
+    return {1, 0};
+}
+
+Result predictLegacy(Mat &pixels) {
+    Mat img;
+    pixels.copyTo(img);             // copia manual en predict
+    process(img, img);
+    img.copyTo(pixels);             // matToBitmap
+    return {2, 0};
+}
+
+Result predictView(Mat &pixels) {
+    process(pixels, pixels);        // se dibuja en el Bitmap bloqueado
+    return {0, 0};
+}
+
+template<typename F>
+Result measure(int repetitions, F run) {
+    Result result = {0, 0};
+    int64 start = getTickCount();
+    for (int i = 0; i < repetitions; i++) {
+        result.copies = run().copies;
+    }
+    result.ms = (getTickCount() - start) * 1000.0 / getTickFrequency() / repetitions;
+    return result;
+}
+
+}
+
+int main(int argc, char **argv) {
+    int repetitions = argc > 1 ? atoi(argv[1]) : 50;
+    vector<Size> sizes = {Size(640, 480), Size(1280, 960), Size(2048, 1536), Size(4000, 3000)};
+
+    printf("%-10s %-8s %-7s %7s %10s %10s\n", "size", "path", "mode", "copies", "MB copied", "ms/frame");
+    for (const Size &size : sizes) {
+        Mat input(size, CV_8UC4), output(size, CV_8UC4);
+        randu(input, Scalar::all(0), Scalar::all(255));
+        double mb = size.area() * 4 / 1048576.0;
+        char label[32];
+        snprintf(label, sizeof(label), "%dx%d", size.width, size.height);
+
+        Result r = measure(repetitions, [&]() { return detectLegacy(input, output); });
+        printf("%-10s %-8s %-7s %7d %10.1f %10.2f\n", label, "detect", "copy", r.copies, r.copies * mb, r.ms);
+        r = measure(repetitions, [&]() { return detectView(input, output); });
+        printf("%-10s %-8s %-7s %7d %10.1f %10.2f\n", label, "detect", "view", r.copies, r.copies * mb, r.ms);
+        r = measure(repetitions, [&]() { return predictLegacy(output); });
+        printf("%-10s %-8s %-7s %7d %10.1f %10.2f\n", label, "predict", "copy", r.copies, r.copies * mb, r.ms);
+        r = measure(repetitions, [&]() { return predictView(output); });
+        printf("%-10s %-8s %-7s %7d %10.1f %10.2f\n", label, "predict", "view", r.copies, r.copies * mb, r.ms);
+    }
+    return 0;
+}
@@ -0,0 +1,193 @@
+// Memoria y latencia de la deteccion para distintas combinaciones de DetectionParams.
+//
+//   cascade_options_bench <assets_dir> [carpeta_imagenes] [runs] [maxSide]
+//
+// Cada combinacion corre en un proceso hijo nuevo, con el registro de cascadas vacio, para
+// que la primera llamada incluya la carga perezosa de las cascadas que pide. Por combinacion
+// se reporta el aumento de memoria residente tras esa primera llamada (Linux, /proc), el
+// tiempo de la primera llamada, la mediana y p90 de las siguientes y las detecciones por
+// imagen. Sin imagenes se usa una escena sintetica, donde casi nunca hay rostros: sirve para
+// la memoria y el costo de la cascada de rostros.
+#include <opencv2/core.hpp>
+#include <opencv2/core/utility.hpp>
+#include <opencv2/imgcodecs.hpp>
+#include <opencv2/imgproc.hpp>
+#include <sys/wait.h>
+#include <unistd.h>
+#include <algorithm>
+#include <cstdio>
+#include <cstdlib>
+#include <string>
+#include <vector>
+
+#include "face_detector.h"
+
+using namespace cv;
+using namespace std;
+
+namespace {
+
+struct Combination {
+    const char *name;
+    int features;
+    double scaleFactor;
+    int minNeighbors;
+    int minFaceSize;
+};
+
+const Combination COMBINATIONS[] = {
+        {"faces",              0,                              1.1, 5, 30},
+        {"faces+eyes",         DETECT_EYES,                    1.1, 5, 30},
+        {"faces+eyes+mouth",   DETECT_EYES | DETECT_MOUTH,     1.1, 5, 30},
+        {"faces+nose",         DETECT_NOSE,                    1.1, 5, 30},
+        {"all",                DETECT_ALL_FEATURES,            1.1, 5, 30},
+        {"all sf1.2 mn3",      DETECT_ALL_FEATURES,            1.2, 3, 30},
+        {"all minFace60",      DETECT_ALL_FEATURES,            1.1, 5, 60},
+        {"faces sf1.2 mn3",    0,                              1.2, 3, 30},
+};
+
+double elapsedMs(int64 start) {
+    return (double) (getTickCount() - start) * 1000.0 / getTickFrequency();
+}
+
+// Memoria residente del proceso en KB, -1 si no se puede leer
+long residentKb() {
+    FILE *statm = fopen("/proc/self/statm", "r");
+    if (statm == nullptr) {
+        return -1;
+    }
+    long size = 0, resident = 0;
+    int read = fscanf(statm, "%ld %ld", &size, &resident);
+    fclose(statm);
+    return read == 2 ? resident * (sysconf(_SC_PAGESIZE) / 1024) : -1;
+}
+
+// Misma idea que la escena de pipeline_bench: fondo con ruido y ovalos claros
+Mat syntheticScene() {
+    Mat rgba(768, 1024, CV_8UC4);
+    RNG rng(42);
+    for (int y = 0; y < rgba.rows; y++) {
+        Vec4b *row = rgba.ptr<Vec4b>(y);
+        for (int x = 0; x < rgba.cols; x++) {
+            uchar base = saturate_cast<uchar>(80 + (x + y) / 12 + rng.uniform(0, 24));
+            row[x] = Vec4b(base, base, saturate_cast<uchar>(base + 20), 255);
+        }
+    }
+    for (int i = 0; i < 3; i++) {
+        Point center(140 + i * 160, 260 + (i % 2) * 120);
+        ellipse(rgba, center, Size(60, 80), 0, 0, 360, Scalar(210, 170, 150, 255), FILLED);
+        circle(rgba, center + Point(-22, -20), 9, Scalar(30, 30, 30, 255), FILLED);
+        circle(rgba, center + Point(22, -20), 9, Scalar(30, 30, 30, 255), FILLED);
+        ellipse(rgba, center + Point(0, 35), Size(24, 8), 0, 0, 360, Scalar(120, 40, 40, 255), FILLED);
+    }
+    return rgba;
+}
+
+vector<Mat> loadImages(const string &dir) {
+    vector<Mat> images;
+    if (!dir.empty()) {
+        vector<String> files;
+        glob(dir, files, false);
+        for (const String &file : files) {
+            Mat bgr = imread(file, IMREAD_COLOR);
+            if (!bgr.empty()) {
+                Mat rgba;
+                cvtColor(bgr, rgba, COLOR_BGR2RGBA);
+                images.push_back(rgba);
+            }
+        }
+    }
+    if (images.empty()) {
+        images.push_back(syntheticScene());
+    }
+    return images;
+}
+
+// Corre en el proceso hijo; devuelve el codigo de salida
+int measure(const Combination &combination, const string &imagesDir, const CascadePaths &paths,
+            int maxSide, int runs) {
+    vector<Mat> images = loadImages(imagesDir);
+    DetectionParams params;
+    params.maxSide = maxSide;
+    params.features = combination.features;
+    params.scaleFactor = combination.scaleFactor;
+    params.minNeighbors = combination.minNeighbors;
+    params.minFaceSize = combination.minFaceSize;
+
+    // La primera imagen carga las cascadas pedidas
+    vector<Detection> detections;
+    long before = residentKb();
+    int64 start = getTickCount();
+    if (!detectFeatures(images[0], paths, params, detections)) {
+        fprintf(stderr, "Could not load cascades for %s\n", combination.name);
+        return 1;
+    }
+    double firstMs = elapsedMs(start);
+    long after = residentKb();
+
+    vector<double> samples;
+    size_t found = 0;
+    for (int run = 0; run < runs; run++) {
+        for (const Mat &image : images) {
+            start = getTickCount();
+            detectFeatures(image, paths, params, detections);
+            samples.push_back(elapsedMs(start));
+            found += detections.size();
+        }
+    }
+    sort(samples.begin(), samples.end());
+    double median = samples[samples.size() / 2];
+    double p90 = samples[min(samples.size() - 1, samples.size() * 9 / 10)];
+
+    if (before >= 0 && after >= 0) {
+        printf("%-18s %8d %10ld %10.1f %10.2f %10.2f %10.1f\n", combination.name, 1 + featureCascadeCount(params),
+               after - before, firstMs, median, p90, (double) found / samples.size());
+    } else {
+        printf("%-18s %8d %10s %10.1f %10.2f %10.2f %10.1f\n", combination.name, 1 + featureCascadeCount(params),
+               "n/a", firstMs, median, p90, (double) found / samples.size());
+    }
+    fflush(stdout);
+    return 0;
+}
+
+}
+
+int main(int argc, char **argv) {
+    if (argc < 2) {
+        fprintf(stderr, "Usage: %s <assets_dir> [images_dir] [runs] [maxSide]\n", argv[0]);
+        return 2;
+    }
+    string assetsDir = argv[1];
+    CascadePaths paths;
+    paths.face = assetsDir + "/haarcascade_frontalcatface.xml";
+    paths.eye = assetsDir + "/haarcascade_eye.xml";
+    paths.nose = assetsDir + "/haarcascade_mcs_nose.xml";
+    paths.mouth = assetsDir + "/haarcascade_mcs_mouth.xml";
+    string imagesDir = argc > 2 ? argv[2] : "";
+    int runs = argc > 3 ? max(1, atoi(argv[3])) : 5;
+    int maxSide = argc > 4 ? atoi(argv[4]) : 1024;
+
+    printf("maxSide %d, %d runs\n", maxSide, runs);
+    printf("%-18s %8s %10s %10s %10s %10s %10s\n", "options", "cascades", "load KB", "first ms", "median ms",
+           "p90 ms", "dets/img");
+
+    // Un proceso por combinacion: el registro de cascadas es global al proceso. El padre no
+    // usa OpenCV para no heredar un pool de hilos a medio crear en los hijos
+    int failures = 0;
+    for (const Combination &combination : COMBINATIONS) {
+        pid_t child = fork();
+        if (child < 0) {
+            perror("fork");
+            return 1;
+        }
+        if (child == 0) {
+            _exit(measure(combination, imagesDir, paths, maxSide, runs));
+        }
+        int status = 0;
+        waitpid(child, &status, 0);
+        if (!WIFEXITED(status) || WEXITSTATUS(status) != 0) {
+            failures++;
+        }
+    }
+    return failures == 0 ? 0 : 1;
+}
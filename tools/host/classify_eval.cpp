@@ -0,0 +1,170 @@
+// Evalua el clasificador sobre una carpeta de imagenes etiquetadas y el efecto del umbral
+// de confianza de predict.
+//
+//   classify_eval <assets_dir> <carpeta_etiquetada> [umbral...]
+//
+// La carpeta tiene una subcarpeta por categoria, con el indice (0-9) o el nombre de la
+// categoria como nombre ("/" se escribe "_", por ejemplo Camiseta_Top). Cada imagen se
+// clasifica una vez y se mide aparte lo que cuesta dibujar el contorno (annotate). Para
+// cada umbral sobre la confianza de la categoria predicha (responseConfidence, de 0 a 1)
+// se reporta cuantas imagenes se rechazan, la precision sobre las aceptadas, cuantas de
+// las rechazadas estaban mal clasificadas y el tiempo que se ahorra al no dibujarlas.
+#include <opencv2/core.hpp>
+#include <opencv2/core/utility.hpp>
+#include <opencv2/imgcodecs.hpp>
+#include <opencv2/imgproc.hpp>
+#include <algorithm>
+#include <cstdio>
+#include <cstdlib>
+#include <string>
+#include <vector>
+
+#include "classifier.h"
+
+using namespace cv;
+using namespace std;
+
+namespace {
+
+const int TOP_K = 3;
+
+struct Sample {
+    int truth;
+    int label;
+    float confidence;
+    bool inTopK;
+    double classifyMs;
+    double annotateMs;
+};
+
+double elapsedMs(int64 start) {
+    return (double) (getTickCount() - start) * 1000.0 / getTickFrequency();
+}
+
+// Indice de la categoria por nombre de carpeta, -1 si no corresponde a ninguna
+int categoryOf(const string &folder) {
+    if (!folder.empty() && folder.find_first_not_of("0123456789") == string::npos) {
+        int index = atoi(folder.c_str());
+        return index < (int) category_labels.size() ? index : -1;
+    }
+    for (size_t i = 0; i < category_labels.size(); i++) {
+        string name = category_labels[i];
+        replace(name.begin(), name.end(), '/', '_');
+        if (name == folder) {
+            return (int) i;
+        }
+    }
+    return -1;
+}
+
+}
+
+int main(int argc, char **argv) {
+    if (argc < 3) {
+        fprintf(stderr, "Usage: %s <assets_dir> <labelled_dir> [threshold...]\n", argv[0]);
+        return 2;
+    }
+    string assetsDir = argv[1];
+    vector<float> thresholds;
+    for (int i = 3; i < argc; i++) {
+        thresholds.push_back((float) atof(argv[i]));
+    }
+    if (thresholds.empty()) {
+        thresholds = {0.f, 0.3f, 0.5f, 0.6f, 0.7f, 0.8f, 0.9f};
+    }
+
+    ClassifierSession session;
+    if (!session.open(assetsDir + "/fashion_mnist_mlp.xml")) {
+        fprintf(stderr, "Could not load the model from %s\n", assetsDir.c_str());
+        return 1;
+    }
+    session.warmUp();
+
+    vector<String> files;
+    glob(argv[2], files, true);
+    sort(files.begin(), files.end());
+
+    vector<Sample> samples;
+    int skipped = 0;
+    for (const String &file : files) {
+        size_t slash = file.find_last_of('/');
+        size_t parentSlash = slash == string::npos || slash == 0 ? string::npos : file.find_last_of('/', slash - 1);
+        string folder = slash == string::npos ? "" : file.substr(parentSlash + 1, slash - parentSlash - 1);
+        int truth = categoryOf(folder);
+        Mat bgr = truth >= 0 ? imread(file, IMREAD_COLOR) : Mat();
+        if (bgr.empty()) {
+            skipped++;
+            continue;
+        }
+        Mat rgba;
+        cvtColor(bgr, rgba, COLOR_BGR2RGBA);
+
+        Sample sample;
+        sample.truth = truth;
+        Mat fullGray;
+        vector<float> scores;
+        int64 start = getTickCount();
+        sample.label = session.classify(rgba, nullptr, &fullGray, &scores);
+        sample.classifyMs = elapsedMs(start);
+        if (sample.label < 0) {
+            fprintf(stderr, "HOG descriptor size mismatch on %s\n", file.c_str());
+            return 1;
+        }
+
+        sample.confidence = responseConfidence(scores[sample.label]);
+        vector<int> top;
+        topKIndices(scores, TOP_K, top);
+        sample.inTopK = find(top.begin(), top.end(), truth) != top.end();
+
+        // El contorno se mide siempre, para saber cuanto se ahorra al rechazar
+        Mat annotated = rgba.clone();
+        start = getTickCount();
+        session.annotate(annotated, sample.label, fullGray);
+        sample.annotateMs = elapsedMs(start);
+        samples.push_back(sample);
+    }
+    if (samples.empty()) {
+        fprintf(stderr, "No labelled images in %s\n", argv[2]);
+        return 1;
+    }
+
+    int correct = 0, correctTopK = 0;
+    double classifyMs = 0, annotateMs = 0;
+    for (const Sample &sample : samples) {
+        correct += sample.label == sample.truth;
+        correctTopK += sample.inTopK;
+        classifyMs += sample.classifyMs;
+        annotateMs += sample.annotateMs;
+    }
+    double totalMs = classifyMs + annotateMs;
+    printf("%zu images (%d skipped), top-1 %.1f%%, top-%d %.1f%%, classify %.2f ms/img, annotate %.2f ms/img\n",
+           samples.size(), skipped, 100.0 * correct / samples.size(), TOP_K, 100.0 * correctTopK / samples.size(),
+           classifyMs / samples.size(), annotateMs / samples.size());
+    printf("%9s %9s %10s %12s %14s %11s %9s\n", "threshold", "rejected", "acc.accept", "acc.overall",
+           "wrong.rejected", "saved ms", "saved");
+
+    for (float threshold : thresholds) {
+        int accepted = 0, acceptedCorrect = 0, rejected = 0, rejectedWrong = 0;
+        double savedMs = 0;
+        for (const Sample &sample : samples) {
+            bool good = sample.label == sample.truth;
+            if (sample.confidence < threshold) {
+                rejected++;
+                rejectedWrong += !good;
+                savedMs += sample.annotateMs;
+            } else {
+                accepted++;
+                acceptedCorrect += good;
+            }
+        }
+        // acc.overall cuenta las rechazadas como fallos; wrong.rejected es la fraccion de
+        // rechazadas que el modelo habria clasificado mal
+        printf("%9.2f %8.1f%% %9.1f%% %11.1f%% %13.1f%% %11.1f %8.1f%%\n", threshold,
+               100.0 * rejected / samples.size(),
+               accepted > 0 ? 100.0 * acceptedCorrect / accepted : 0.0,
+               100.0 * acceptedCorrect / samples.size(),
+               rejected > 0 ? 100.0 * rejectedWrong / rejected : 0.0,
+               savedMs, 100.0 * savedMs / totalMs);
+    }
+    return 0;
+}
@@ -0,0 +1,135 @@
+// Compara la deteccion sobre imagenes reducidas contra la resolucion original.
+//
+//   detect_eval <assets_dir> <carpeta_imagenes> [scaleFactor] [maxSide...]
+//
+// Para cada maxSide reporta la latencia media y cuantos rectangulos de la referencia
+// (maxSide = 0) se recuperan con IoU >= 0.5, por tipo de deteccion.
+#include <opencv2/core.hpp>
+#include <opencv2/imgcodecs.hpp>
+#include <opencv2/imgproc.hpp>
+#include <cstdio>
+#include <cstdlib>
+#include <string>
+#include <vector>
+
+#include "face_detector.h"
+
+using namespace cv;
+using namespace std;
+
+namespace {
+
+const char *TYPE_NAMES[] = {"face", "eye", "nose", "mouth"};
+
+double iou(const Rect &a, const Rect &b) {
+    double inter = (a & b).area();
+    double uni = a.area() + b.area() - inter;
+    return uni > 0 ? inter / uni : 0;
+}
+
+struct Score {
+    int expected[4] = {0, 0, 0, 0};
+    int matched[4] = {0, 0, 0, 0};
+    int found[4] = {0, 0, 0, 0};
+    double totalMs = 0;
+};
+
+void compare(const vector<Detection> &reference, const vector<Detection> &actual, Score &score) {
+    vector<bool> used(actual.size(), false);
+    for (const Detection &expected : reference) {
+        score.expected[expected.type]++;
+        for (size_t i = 0; i < actual.size(); i++) {
+            if (!used[i] && actual[i].type == expected.type && iou(actual[i].rect, expected.rect) >= 0.5) {
+                used[i] = true;
+                score.matched[expected.type]++;
+                break;
+            }
+        }
+    }
+    for (const Detection &detection : actual) {
+        score.found[detection.type]++;
+    }
+}
+
+}
+
+int main(int argc, char **argv) {
+    if (argc < 3) {
+        fprintf(stderr, "Usage: %s <assets_dir> <images_dir> [scaleFactor] [maxSide...]\n", argv[0]);
+        return 2;
+    }
+    string assetsDir = argv[1];
+    CascadePaths paths;
+    paths.face = assetsDir + "/haarcascade_frontalcatface.xml";
+    paths.eye = assetsDir + "/haarcascade_eye.xml";
+    paths.nose = assetsDir + "/haarcascade_mcs_nose.xml";
+    paths.mouth = assetsDir + "/haarcascade_mcs_mouth.xml";
+
+    double scaleFactor = argc > 3 ? atof(argv[3]) : 1.1;
+    vector<int> sides;
+    for (int i = 4; i < argc; i++) {
+        sides.push_back(atoi(argv[i]));
+    }
+    if (sides.empty()) {
+        sides = {2048, 1536, 1024, 800, 640, 480};
+    }
+
+    vector<String> files;
+    glob(argv[2], files, false);
+    vector<Mat> images;
+    for (const String &file : files) {
+        Mat bgr = imread(file, IMREAD_COLOR);
+        if (!bgr.empty()) {
+            Mat rgba;
+            cvtColor(bgr, rgba, COLOR_BGR2RGBA);
+            images.push_back(rgba);
+        }
+    }
+    if (images.empty()) {
+        fprintf(stderr, "No images in %s\n", argv[2]);
+        return 1;
+    }
+
+    DetectionParams reference;
+    reference.scaleFactor = scaleFactor;
+    vector<vector<Detection>> expected(images.size());
+    double referenceMs = 0;
+    for (size_t i = 0; i < images.size(); i++) {
+        DetectionTimings timings;
+        if (!detectFeatures(images[i], paths, reference, expected[i], &timings)) {
+            fprintf(stderr, "Could not load cascades from %s\n", assetsDir.c_str());
+            return 1;
+        }
+        referenceMs += timings.preprocessMs + timings.detectMs;
+    }
+
+    printf("%zu images, scaleFactor %.2f, full resolution %.1f ms/image\n",
+           images.size(), scaleFactor, referenceMs / images.size());
+    printf("%8s %10s %8s", "maxSide", "ms/image", "speedup");
+    for (const char *name : TYPE_NAMES) {
+        printf(" %14s", name);
+    }
+    printf("\n");
+
+    for (int side : sides) {
+        DetectionParams params;
+        params.maxSide = side;
+        params.scaleFactor = scaleFactor;
+        Score score;
+        for (size_t i = 0; i < images.size(); i++) {
+            vector<Detection> detections;
+            DetectionTimings timings;
+            detectFeatures(images[i], paths, params, detections, &timings);
+            score.totalMs += timings.preprocessMs + timings.detectMs;
+            compare(expected[i], detections, score);
+        }
+        double ms = score.totalMs / images.size();
+        printf("%8d %10.1f %7.1fx", side, ms, referenceMs / images.size() / ms);
+        for (int t = 0; t < 4; t++) {
+            // recuperados/referencia (+ detecciones nuevas)
+            printf(" %5d/%-4d+%-3d", score.matched[t], score.expected[t], score.found[t] - score.matched[t]);
+        }
+        printf("\n");
+    }
+    return 0;
+}
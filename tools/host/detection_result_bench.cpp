@@ -0,0 +1,100 @@
+// Costo de devolver detecciones como texto (formatDetections, camino anterior de
+// detectFaces) frente a registros de enteros (packDetections) para entradas sinteticas.
+//
+//   detection_result_bench [rostros] [repeticiones]
+//
+// Cuenta las reservas de memoria del lado nativo con un operator new instrumentado.
+#include <opencv2/core.hpp>
+#include <atomic>
+#include <cstdio>
+#include <cstdlib>
+#include <new>
+#include <string>
+#include <vector>
+
+#include "face_detector.h"
+
+using namespace cv;
+using namespace std;
+
+namespace {
+
+atomic<long> allocations(0);
+
+}
+
+void *operator new(size_t size) {
+    allocations++;
+    void *memory = malloc(size == 0 ? 1 : size);
+    if (memory == nullptr) {
+        throw bad_alloc();
+    }
+    return memory;
+}
+
+void operator delete(void *memory) noexcept {
+    free(memory);
+}
+
+void operator delete(void *memory, size_t) noexcept {
+    free(memory);
+}
+
+namespace {
+
+// Cada rostro con dos ojos, nariz y boca
+vector<Detection> syntheticDetections(int faces) {
+    vector<Detection> detections;
+    RNG rng(7);
+    for (int i = 0; i < faces; i++) {
+        Rect face(rng.uniform(0, 3000), rng.uniform(0, 3000), rng.uniform(80, 400), rng.uniform(80, 400));
+        detections.push_back({DETECTION_FACE, face, -1});
+        detections.push_back({DETECTION_EYE, Rect(face.x + 10, face.y + 20, 30, 20), i});
+        detections.push_back({DETECTION_EYE, Rect(face.x + 50, face.y + 20, 30, 20), i});
+        detections.push_back({DETECTION_NOSE, Rect(face.x + 35, face.y + 45, 25, 30), i});
+        detections.push_back({DETECTION_MOUTH, Rect(face.x + 25, face.y + 80, 45, 20), i});
+    }
+    return detections;
+}
+
+template<typename F>
+void measure(const char *name, int repetitions, size_t bytes, F body) {
+    long before = allocations.load();
+    int64 start = getTickCount();
+    for (int i = 0; i < repetitions; i++) {
+        body();
+    }
+    double usPerCall = (getTickCount() - start) * 1e6 / getTickFrequency() / repetitions;
+    double allocsPerCall = (double) (allocations.load() - before) / repetitions;
+    printf("%-22s %12.2f %12.1f %12zu\n", name, usPerCall, allocsPerCall, bytes);
+}
+
+}
+
+int main(int argc, char **argv) {
+    int faces = argc > 1 ? atoi(argv[1]) : 100;
+    int repetitions = argc > 2 ? atoi(argv[2]) : 2000;
+    vector<Detection> detections = syntheticDetections(faces);
+
+    string text = formatDetections(detections);
+    vector<int> packed;
+    packDetections(detections, packed);
+
+    printf("%d faces, %zu detections, %d repetitions\n", faces, detections.size(), repetitions);
+    printf("%-22s %12s %12s %12s\n", "path", "us/call", "allocs/call", "bytes");
+    volatile size_t sink = 0;
+    measure("text (stringstream)", repetitions, text.size(), [&]() {
+        sink += formatDetections(detections).size();
+    });
+    // Como toDetectionArray: un vector nuevo por llamada
+    measure("packed (new vector)", repetitions, packed.size() * sizeof(int), [&]() {
+        vector<int> records;
+        packDetections(detections, records);
+        sink += records.size();
+    });
+    measure("packed (reused)", repetitions, packed.size() * sizeof(int), [&]() {
+        packDetections(detections, packed);
+        sink += packed.size();
+    });
+    return 0;
+}
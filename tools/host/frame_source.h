@@ -0,0 +1,59 @@
+// Lectura de secuencias de cuadros grabados para las herramientas de host.
+//
+// Acepta los planos Y que graba LiveFaceAnalyzer.recordFrames
+// (frame_<n>_<ancho>x<alto>_r<rotacion>.y) o imagenes normales, que se leen en gris.
+// Los archivos se ordenan por nombre.
+#ifndef PROJECTPARTEII_FRAME_SOURCE_H
+#define PROJECTPARTEII_FRAME_SOURCE_H
+
+#include <opencv2/core.hpp>
+#include <opencv2/imgcodecs.hpp>
+#include <algorithm>
+#include <cstdio>
+#include <fstream>
+#include <string>
+#include <vector>
+
+struct Frame {
+    cv::Mat gray;
+    int rotation = 0;
+};
+
+inline bool loadRawFrame(const std::string &file, Frame &frame) {
+    size_t slash = file.find_last_of("/\\");
+    std::string name = file.substr(slash == std::string::npos ? 0 : slash + 1);
+    int index, width, height, rotation;
+    if (sscanf(name.c_str(), "frame_%d_%dx%d_r%d.y", &index, &width, &height, &rotation) != 4) {
+        return false;
+    }
+    std::ifstream in(file, std::ios::binary);
+    frame.gray.create(height, width, CV_8UC1);
+    in.read(reinterpret_cast<char *>(frame.gray.data), (std::streamsize) width * height);
+    frame.rotation = rotation;
+    return in.gcount() == (std::streamsize) width * height;
+}
+
+inline std::vector<Frame> loadFrames(const std::string &dir) {
+    std::vector<cv::String> files;
+    cv::glob(dir, files, false);
+    std::sort(files.begin(), files.end());
+    std::vector<Frame> frames;
+    for (const cv::String &file : files) {
+        Frame frame;
+        if (file.size() > 2 && file.compare(file.size() - 2, 2, ".y") == 0) {
+            if (!loadRawFrame(file, frame)) {
+                fprintf(stderr, "Skipping %s\n", file.c_str());
+                continue;
+            }
+        } else {
+            frame.gray = cv::imread(file, cv::IMREAD_GRAYSCALE);
+            if (frame.gray.empty()) {
+                continue;
+            }
+        }
+        frames.push_back(frame);
+    }
+    return frames;
+}
+
+#endif //PROJECTPARTEII_FRAME_SOURCE_H
@@ -0,0 +1,167 @@
+// Reproduce cuadros grabados del modo en vivo a la cadencia de la camara y mide FPS
+// sostenidos y latencia por etapa.
+//
+//   live_replay <assets_dir> <carpeta_cuadros> [camara_fps] [maxSide] [intervalo_completo]
+//
+// Los cuadros se leen con frame_source.h. Un hilo entrega cuadros a camara_fps y el
+// detector toma siempre el mas reciente, como STRATEGY_KEEP_ONLY_LATEST; los que se pisan
+// cuentan como descartados. Con intervalo_completo > 1 se usa FaceTracker, como en la app.
+#include <opencv2/core.hpp>
+#include <algorithm>
+#include <chrono>
+#include <condition_variable>
+#include <cstdio>
+#include <cstdlib>
+#include <mutex>
+#include <string>
+#include <thread>
+#include <vector>
+
+#include "face_detector.h"
+#include "face_tracker.h"
+#include "frame_source.h"
+
+using namespace cv;
+using namespace std;
+
+namespace {
+
+typedef chrono::steady_clock Clock;
+
+struct Sample {
+    DetectionTimings timings;
+    double frameMs;
+    // Desde que el cuadro llega hasta que hay resultado, incluida la espera
+    double latencyMs;
+};
+
+double percentile(vector<double> values, double p) {
+    if (values.empty()) {
+        return 0;
+    }
+    sort(values.begin(), values.end());
+    return values[min(values.size() - 1, (size_t) (p * (values.size() - 1) + 0.5))];
+}
+
+void report(const char *stage, const vector<double> &values) {
+    double total = 0;
+    for (double value : values) {
+        total += value;
+    }
+    printf("%-12s %10.2f %10.2f %10.2f\n", stage, values.empty() ? 0 : total / values.size(),
+           percentile(values, 0.5), percentile(values, 0.95));
+}
+
+}
+
+int main(int argc, char **argv) {
+    if (argc < 3) {
+        fprintf(stderr, "Usage: %s <assets_dir> <frames_dir> [camera_fps] [maxSide] [fullDetectionInterval]\n", argv[0]);
+        return 2;
+    }
+    string assetsDir = argv[1];
+    CascadePaths paths;
+    paths.face = assetsDir + "/haarcascade_frontalcatface.xml";
+    paths.eye = assetsDir + "/haarcascade_eye.xml";
+    paths.nose = assetsDir + "/haarcascade_mcs_nose.xml";
+    paths.mouth = assetsDir + "/haarcascade_mcs_mouth.xml";
+
+    double cameraFps = argc > 3 ? atof(argv[3]) : 30.0;
+    DetectionParams params;
+    params.maxSide = argc > 4 ? atoi(argv[4]) : 480;
+    TrackerParams trackerParams;
+    trackerParams.fullDetectionInterval = argc > 5 ? atoi(argv[5]) : 1;
+    FaceTracker tracker(paths, params, trackerParams);
+    bool tracking = trackerParams.fullDetectionInterval > 1;
+
+    vector<Frame> frames = loadFrames(argv[2]);
+    if (frames.empty()) {
+        fprintf(stderr, "No frames in %s\n", argv[2]);
+        return 1;
+    }
+    // Primera pasada fuera de la medicion: carga las cascadas
+    vector<Detection> detections;
+    if (!detectFeaturesGray(frames[0].gray, frames[0].rotation, paths, params, detections)) {
+        fprintf(stderr, "Could not load cascades from %s\n", assetsDir.c_str());
+        return 1;
+    }
+
+    // Ranura de un solo cuadro: el productor la sobrescribe, el detector la vacia
+    mutex lock;
+    condition_variable ready;
+    int latest = -1;
+    Clock::time_point latestArrival;
+    bool finished = false;
+    int dropped = 0;
+
+    thread camera([&]() {
+        chrono::duration<double> interval(1.0 / cameraFps);
+        Clock::time_point next = Clock::now();
+        for (size_t i = 0; i < frames.size(); i++) {
+            this_thread::sleep_until(next);
+            next += chrono::duration_cast<Clock::duration>(interval);
+            lock_guard<mutex> guard(lock);
+            if (latest >= 0) {
+                dropped++;
+            }
+            latest = (int) i;
+            latestArrival = Clock::now();
+            ready.notify_one();
+        }
+        lock_guard<mutex> guard(lock);
+        finished = true;
+        ready.notify_one();
+    });
+
+    vector<Sample> samples;
+    Clock::time_point start = Clock::now();
+    Clock::time_point lastResult = start;
+    while (true) {
+        int index;
+        Clock::time_point arrival;
+        {
+            unique_lock<mutex> guard(lock);
+            ready.wait(guard, [&]() { return latest >= 0 || finished; });
+            if (latest < 0) {
+                break;
+            }
+            index = latest;
+            arrival = latestArrival;
+            latest = -1;
+        }
+        Sample sample;
+        Clock::time_point begin = Clock::now();
+        if (tracking) {
+            tracker.update(frames[index].gray, frames[index].rotation, detections, &sample.timings);
+        } else {
+            detectFeaturesGray(frames[index].gray, frames[index].rotation, paths, params, detections, &sample.timings);
+        }
+        lastResult = Clock::now();
+        sample.frameMs = chrono::duration<double, milli>(lastResult - begin).count();
+        sample.latencyMs = chrono::duration<double, milli>(lastResult - arrival).count();
+        samples.push_back(sample);
+    }
+    camera.join();
+
+    double elapsedSec = chrono::duration<double>(lastResult - start).count();
+    printf("%zu frames %dx%d at %.1f fps, maxSide %d, full detection every %d\n", frames.size(),
+           frames[0].gray.cols, frames[0].gray.rows, cameraFps, params.maxSide, trackerParams.fullDetectionInterval);
+    printf("analyzed %zu, dropped %d, sustained %.1f fps\n", samples.size(), dropped,
+           elapsedSec > 0 ? samples.size() / elapsedSec : 0);
+
+    vector<double> cascades, preprocess, detect, frame, latency;
+    for (const Sample &sample : samples) {
+        cascades.push_back(sample.timings.cascadesMs);
+        preprocess.push_back(sample.timings.preprocessMs);
+        detect.push_back(sample.timings.detectMs);
+        frame.push_back(sample.frameMs);
+        latency.push_back(sample.latencyMs);
+    }
+    printf("%-12s %10s %10s %10s\n", "stage_ms", "mean", "p50", "p95");
+    report("cascades", cascades);
+    report("preprocess", preprocess);
+    report("detect", detect);
+    report("frame", frame);
+    report("latency", latency);
+    return 0;
+}
@@ -0,0 +1,72 @@
+// Tiempo de carga de los modelos: XML de assets contra models.pack.
+//
+//   modelpack_bench <assets_dir> <models.pack> [repeticiones]
+#include <opencv2/core.hpp>
+#include <opencv2/objdetect.hpp>
+#include <cstdio>
+#include <cstdlib>
+#include <string>
+
+#include "mlp_model.h"
+#include "model_pack.h"
+
+using namespace cv;
+using namespace std;
+
+namespace {
+
+template<typename F>
+double averageMs(int repetitions, F load) {
+    int64 start = getTickCount();
+    for (int i = 0; i < repetitions; i++) {
+        load();
+    }
+    return (getTickCount() - start) * 1000.0 / getTickFrequency() / repetitions;
+}
+
+}
+
+int main(int argc, char **argv) {
+    if (argc < 3) {
+        fprintf(stderr, "Usage: %s <assets_dir> <models.pack> [repetitions]\n", argv[0]);
+        return 2;
+    }
+    string assetsDir = argv[1];
+    string packPath = argv[2];
+    int repetitions = argc > 3 ? atoi(argv[3]) : 10;
+
+    const char *cascades[] = {"haarcascade_frontalcatface", "haarcascade_eye",
+                              "haarcascade_mcs_nose", "haarcascade_mcs_mouth"};
+
+    printf("%-28s %12s %12s %8s\n", "model", "xml_ms", "pack_ms", "speedup");
+    double xmlTotal = 0, packTotal = 0;
+    for (const char *name : cascades) {
+        string xmlPath = assetsDir + "/" + name + ".xml";
+        double xmlMs = averageMs(repetitions, [&]() {
+            CascadeClassifier classifier;
+            CV_Assert(classifier.load(xmlPath));
+        });
+        // Incluye abrir y mapear el paquete, como en un arranque en frio
+        double packMs = averageMs(repetitions, [&]() {
+            CascadeClassifier classifier;
+            CV_Assert(ModelPack::open(packPath)->loadCascade(name, classifier));
+        });
+        printf("%-28s %12.2f %12.2f %7.1fx\n", name, xmlMs, packMs, xmlMs / packMs);
+        xmlTotal += xmlMs;
+        packTotal += packMs;
+    }
+
+    string mlpPath = assetsDir + "/fashion_mnist_mlp.xml";
+    double xmlMs = averageMs(repetitions, [&]() {
+        CV_Assert(loadXmlMlpModel(mlpPath));
+    });
+    double packMs = averageMs(repetitions, [&]() {
+        CV_Assert(loadPackedMlpModel(ModelPack::open(packPath), "fashion_mnist_mlp"));
+    });
+    printf("%-28s %12.2f %12.2f %7.1fx\n", "fashion_mnist_mlp", xmlMs, packMs, xmlMs / packMs);
+    xmlTotal += xmlMs;
+    packTotal += packMs;
+
+    printf("%-28s %12.2f %12.2f %7.1fx\n", "total", xmlTotal, packTotal, xmlTotal / packTotal);
+    return 0;
+}
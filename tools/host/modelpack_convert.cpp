@@ -0,0 +1,210 @@
+// Convierte las cascadas Haar y el ANN_MLP de assets al formato binario models.pack.
+//
+//   modelpack_convert <salida.pack> <modelo.xml>...
+#include <opencv2/core.hpp>
+#include <opencv2/ml.hpp>
+#include <opencv2/objdetect.hpp>
+#include <cctype>
+#include <cfloat>
+#include <cmath>
+#include <cstdio>
+#include <cstring>
+#include <fstream>
+#include <sstream>
+#include <string>
+#include <vector>
+
+#include "model_pack.h"
+
+using namespace cv;
+using namespace std;
+using namespace modelpack;
+
+namespace {
+
+struct Section {
+    string name;
+    uint32_t type;
+    string payload;
+};
+
+template<typename T>
+void append(string &out, const T *data, size_t count) {
+    out.append(reinterpret_cast<const char *>(data), count * sizeof(T));
+}
+
+bool readFile(const string &path, string &out) {
+    ifstream in(path, ios::binary);
+    if (!in) {
+        return false;
+    }
+    stringstream buffer;
+    buffer << in.rdbuf();
+    out = buffer.str();
+    return true;
+}
+
+// Quita comentarios e indentacion; el contenido numerico queda igual.
+string compactXml(const string &xml) {
+    string out;
+    out.reserve(xml.size());
+    bool pendingSpace = false;
+    for (size_t i = 0; i < xml.size(); i++) {
+        if (xml.compare(i, 4, "<!--") == 0) {
+            size_t end = xml.find("-->", i + 4);
+            i = end == string::npos ? xml.size() : end + 2;
+            continue;
+        }
+        char c = xml[i];
+        if (isspace((unsigned char) c)) {
+            pendingSpace = true;
+            continue;
+        }
+        // los espacios entre etiquetas sobran; dentro del contenido se deja uno solo
+        if (pendingSpace && c != '<' && !out.empty() && out.back() != '>') {
+            out.push_back(' ');
+        }
+        pendingSpace = false;
+        out.push_back(c);
+    }
+    return out;
+}
+
+bool buildMlpSection(const FileNode &root, Section &section) {
+    if ((string) root["activation_function"] != "SIGMOID_SYM") {
+        fprintf(stderr, "Only SIGMOID_SYM networks are supported\n");
+        return false;
+    }
+    vector<int> layerSizes;
+    root["layer_sizes"] >> layerSizes;
+    vector<double> inputScale, outputScale;
+    root["input_scale"] >> inputScale;
+    root["output_scale"] >> outputScale;
+    FileNode weightsNode = root["weights"];
+    if (layerSizes.size() < 2 || weightsNode.size() != layerSizes.size() - 1 ||
+        inputScale.size() != 2 * (size_t) layerSizes.front() ||
+        outputScale.size() != 2 * (size_t) layerSizes.back()) {
+        fprintf(stderr, "Malformed ANN_MLP\n");
+        return false;
+    }
+
+    MlpHeader header;
+    memset(&header, 0, sizeof(header));
+    header.activation = ml::ANN_MLP::SIGMOID_SYM;
+    header.layerCount = (uint32_t) layerSizes.size();
+    header.fParam1 = (double) root["f_param1"];
+    header.fParam2 = (double) root["f_param2"];
+    // mismos valores por defecto que ANN_MLP::setActivationFunction
+    if (fabs(header.fParam1) < FLT_EPSILON) header.fParam1 = 2. / 3;
+    if (fabs(header.fParam2) < FLT_EPSILON) header.fParam2 = 1.7159;
+
+    string &out = section.payload;
+    append(out, &header, 1);
+    vector<int32_t> sizes(layerSizes.begin(), layerSizes.end());
+    if (sizes.size() % 2 != 0) {
+        sizes.push_back(0);
+    }
+    append(out, sizes.data(), sizes.size());
+    append(out, inputScale.data(), inputScale.size());
+    append(out, outputScale.data(), outputScale.size());
+
+    size_t layer = 1;
+    for (FileNodeIterator it = weightsNode.begin(); it != weightsNode.end(); ++it, ++layer) {
+        vector<double> weights;
+        (*it) >> weights;
+        if (weights.size() != (size_t) (layerSizes[layer - 1] + 1) * layerSizes[layer]) {
+            fprintf(stderr, "Malformed weights for layer %zu\n", layer);
+            return false;
+        }
+        append(out, weights.data(), weights.size());
+    }
+    section.type = SECTION_MLP;
+    return true;
+}
+
+bool buildCascadeSection(const string &path, const FileNode &root, Section &section) {
+    string xml;
+    if (root["stageType"].empty()) {
+        // Formato antiguo (opencv-haar-classifier): se convierte una vez aqui para que en
+        // el telefono no se repita la conversion en cada carga
+        string converted = path + ".converted.xml";
+        if (!CascadeClassifier::convert(path, converted) || !readFile(converted, xml)) {
+            fprintf(stderr, "Could not convert legacy cascade %s\n", path.c_str());
+            return false;
+        }
+        remove(converted.c_str());
+    } else if (!readFile(path, xml)) {
+        return false;
+    }
+    section.payload = compactXml(xml);
+    section.type = SECTION_CASCADE;
+    return true;
+}
+
+}
+
+int main(int argc, char **argv) {
+    if (argc < 3) {
+        fprintf(stderr, "Usage: %s <output.pack> <model.xml>...\n", argv[0]);
+        return 2;
+    }
+
+    vector<Section> sections;
+    for (int i = 2; i < argc; i++) {
+        string path = argv[i];
+        FileStorage fs(path, FileStorage::READ);
+        if (!fs.isOpened()) {
+            fprintf(stderr, "Could not open %s\n", path.c_str());
+            return 1;
+        }
+        Section section;
+        section.name = modelName(path);
+        if (section.name.size() >= sizeof(SectionEntry::name)) {
+            fprintf(stderr, "Model name too long: %s\n", section.name.c_str());
+            return 1;
+        }
+        FileNode root = fs.getFirstTopLevelNode();
+        bool ok = root.name() == "opencv_ml_ann_mlp"
+                  ? buildMlpSection(root, section)
+                  : buildCascadeSection(path, root, section);
+        if (!ok) {
+            return 1;
+        }
+        printf("%-32s %8zu bytes\n", section.name.c_str(), section.payload.size());
+        sections.push_back(section);
+    }
+
+    PackHeader header;
+    memset(&header, 0, sizeof(header));
+    memcpy(header.magic, PACK_MAGIC, sizeof(PACK_MAGIC));
+    header.version = PACK_VERSION;
+    header.sectionCount = (uint32_t) sections.size();
+
+    vector<SectionEntry> table(sections.size());
+    uint64_t offset = sizeof(PackHeader) + sections.size() * sizeof(SectionEntry);
+    for (size_t i = 0; i < sections.size(); i++) {
+        offset = (offset + PACK_ALIGNMENT - 1) / PACK_ALIGNMENT * PACK_ALIGNMENT;
+        memset(&table[i], 0, sizeof(SectionEntry));
+        strncpy(table[i].name, sections[i].name.c_str(), sizeof(table[i].name) - 1);
+        table[i].type = sections[i].type;
+        table[i].offset = offset;
+        table[i].size = sections[i].payload.size();
+        offset += table[i].size;
+    }
+
+    ofstream out(argv[1], ios::binary | ios::trunc);
+    out.write(reinterpret_cast<const char *>(&header), sizeof(header));
+    out.write(reinterpret_cast<const char *>(table.data()), table.size() * sizeof(SectionEntry));
+    for (size_t i = 0; i < sections.size(); i++) {
+        while ((uint64_t) out.tellp() < table[i].offset) {
+            out.put('\0');
+        }
+        out.write(sections[i].payload.data(), sections[i].payload.size());
+    }
+    if (!out) {
+        fprintf(stderr, "Could not write %s\n", argv[1]);
+        return 1;
+    }
+    printf("Wrote %s (%llu bytes)\n", argv[1], (unsigned long long) offset);
+    return 0;
+}
@@ -0,0 +1,146 @@
+// Comprueba que models.pack y los XML originales dan exactamente las mismas detecciones y
+// predicciones.
+//
+//   modelpack_test <assets_dir> <models.pack> [carpeta_imagenes]
+#include <opencv2/core.hpp>
+#include <opencv2/imgcodecs.hpp>
+#include <opencv2/imgproc.hpp>
+#include <opencv2/objdetect.hpp>
+#include <cstdio>
+#include <string>
+#include <vector>
+
+#include "classifier.h"
+#include "mlp_model.h"
+#include "model_pack.h"
+
+using namespace cv;
+using namespace std;
+
+namespace {
+
+const char *CASCADES[] = {"haarcascade_frontalcatface", "haarcascade_eye",
+                          "haarcascade_mcs_nose", "haarcascade_mcs_mouth"};
+
+vector<Mat> loadImages(const string &dir) {
+    vector<Mat> images;
+    if (!dir.empty()) {
+        vector<String> files;
+        glob(dir, files, false);
+        for (const String &file : files) {
+            Mat img = imread(file, IMREAD_COLOR);
+            if (!img.empty()) {
+                images.push_back(img);
+            }
+        }
+    }
+    // Sin imagenes de muestra se usa ruido; las cascadas igual encuentran falsos positivos
+    RNG rng(12345);
+    for (int i = 0; i < 4; i++) {
+        Mat noise(480, 640, CV_8UC3);
+        rng.fill(noise, RNG::UNIFORM, 0, 256);
+        GaussianBlur(noise, noise, Size(7, 7), 2);
+        images.push_back(noise);
+    }
+    return images;
+}
+
+bool sameRects(const vector<Rect> &a, const vector<Rect> &b) {
+    if (a.size() != b.size()) {
+        return false;
+    }
+    for (size_t i = 0; i < a.size(); i++) {
+        if (a[i] != b[i]) {
+            return false;
+        }
+    }
+    return true;
+}
+
+}
+
+int main(int argc, char **argv) {
+    if (argc < 3) {
+        fprintf(stderr, "Usage: %s <assets_dir> <models.pack> [images_dir]\n", argv[0]);
+        return 2;
+    }
+    string assetsDir = argv[1];
+    shared_ptr<ModelPack> pack = ModelPack::open(argv[2]);
+    if (!pack) {
+        fprintf(stderr, "Could not open %s\n", argv[2]);
+        return 1;
+    }
+    vector<Mat> images = loadImages(argc > 3 ? argv[3] : "");
+    int failures = 0;
+
+    for (const char *name : CASCADES) {
+        CascadeClassifier xml, packed;
+        if (!xml.load(assetsDir + "/" + name + ".xml") || !pack->loadCascade(name, packed)) {
+            fprintf(stderr, "Could not load cascade %s\n", name);
+            return 1;
+        }
+        size_t total = 0;
+        for (size_t i = 0; i < images.size(); i++) {
+            Mat gray;
+            cvtColor(images[i], gray, COLOR_BGR2GRAY);
+            GaussianBlur(gray, gray, Size(5, 5), 1.5);
+            equalizeHist(gray, gray);
+            vector<Rect> expected, actual;
+            xml.detectMultiScale(gray, expected, 1.1, 5, CASCADE_SCALE_IMAGE, Size(20, 20));
+            packed.detectMultiScale(gray, actual, 1.1, 5, CASCADE_SCALE_IMAGE, Size(20, 20));
+            total += expected.size();
+            if (!sameRects(expected, actual)) {
+                fprintf(stderr, "FAIL %s: image %zu gives %zu vs %zu detections\n",
+                        name, i, expected.size(), actual.size());
+                failures++;
+            }
+        }
+        printf("%-28s %zu detections on %zu images\n", name, total, images.size());
+    }
+
+    unique_ptr<MlpModel> xmlModel = loadXmlMlpModel(assetsDir + "/fashion_mnist_mlp.xml");
+    unique_ptr<MlpModel> packedModel = loadPackedMlpModel(pack, "fashion_mnist_mlp");
+    if (!xmlModel || !packedModel) {
+        fprintf(stderr, "Could not load the MLP\n");
+        return 1;
+    }
+
+    // Descriptores HOG de las imagenes mas muestras aleatorias en el rango de HOG
+    HOGDescriptor hog(IMG_SIZE, Size(14, 14), Size(7, 7), Size(7, 7), 9);
+    Mat samples(0, xmlModel->inputSize(), CV_32F);
+    for (const Mat &image : images) {
+        Mat gray;
+        cvtColor(image, gray, COLOR_BGR2GRAY);
+        resize(gray, gray, IMG_SIZE);
+        vector<float> descriptors;
+        hog.compute(gray, descriptors);
+        samples.push_back(Mat(descriptors).reshape(1, 1));
+    }
+    Mat random(500, xmlModel->inputSize(), CV_32F);
+    RNG rng(54321);
+    rng.fill(random, RNG::UNIFORM, 0.f, 0.5f);
+    samples.push_back(random);
+
+    Mat expected, actual;
+    xmlModel->predict(samples, expected);
+    packedModel->predict(samples, actual);
+    int mismatches = 0;
+    for (int r = 0; r < samples.rows; r++) {
+        Point expectedMax, actualMax;
+        minMaxLoc(expected.row(r), 0, 0, 0, &expectedMax);
+        minMaxLoc(actual.row(r), 0, 0, 0, &actualMax);
+        if (expectedMax.x != actualMax.x) {
+            mismatches++;
+        }
+    }
+    double maxDiff = norm(expected, actual, NORM_INF);
+    printf("MLP: %d samples, %d label mismatches, max response difference %g\n",
+           samples.rows, mismatches, maxDiff);
+    if (mismatches != 0 || maxDiff > 1e-4) {
+        fprintf(stderr, "FAIL fashion_mnist_mlp\n");
+        failures++;
+    }
+
+    printf(failures == 0 ? "OK\n" : "%d failures\n", failures);
+    return failures == 0 ? 0 : 1;
+}
@@ -0,0 +1,143 @@
+// Tamano y tiempo de codificacion del envio: dos PNG completos frente a la original con otro
+// codec mas el recorte dibujado y las detecciones en JSON.
+//
+//   payload_compare <assets_dir> <carpeta_imagenes> [jpeg|webp|png] [calidad]
+//
+// Los codificadores de OpenCV no son los de Android, asi que los numeros absolutos cambian en
+// el telefono; la proporcion entre los dos modos es la que importa.
+#include <opencv2/core.hpp>
+#include <opencv2/imgcodecs.hpp>
+#include <opencv2/imgproc.hpp>
+#include <cstdio>
+#include <cstdlib>
+#include <sstream>
+#include <string>
+#include <vector>
+
+#include "face_detector.h"
+
+using namespace cv;
+using namespace std;
+
+namespace {
+
+const char *TYPE_NAMES[] = {"Face", "Eye", "Nose", "Mouth"};
+
+double elapsedMs(int64 start) {
+    return (double) (getTickCount() - start) * 1000.0 / getTickFrequency();
+}
+
+// Mismo formato que DetectionResult.toJson
+string detectionsJson(const vector<Detection> &detections) {
+    std::stringstream json;
+    json << "[";
+    for (size_t i = 0; i < detections.size(); i++) {
+        const Detection &d = detections[i];
+        json << (i > 0 ? "," : "") << "{\"type\":\"" << TYPE_NAMES[d.type] << "\",\"x\":" << d.rect.x
+             << ",\"y\":" << d.rect.y << ",\"width\":" << d.rect.width << ",\"height\":" << d.rect.height
+             << ",\"parent\":" << d.parent << ",\"track\":" << d.track << "}";
+    }
+    json << "]";
+    return json.str();
+}
+
+struct Totals {
+    size_t bytes = 0;
+    double ms = 0;
+};
+
+}
+
+int main(int argc, char **argv) {
+    if (argc < 3) {
+        fprintf(stderr, "Usage: %s <assets_dir> <images_dir> [jpeg|webp|png] [quality]\n", argv[0]);
+        return 2;
+    }
+    string assetsDir = argv[1];
+    CascadePaths paths;
+    paths.face = assetsDir + "/haarcascade_frontalcatface.xml";
+    paths.eye = assetsDir + "/haarcascade_eye.xml";
+    paths.nose = assetsDir + "/haarcascade_mcs_nose.xml";
+    paths.mouth = assetsDir + "/haarcascade_mcs_mouth.xml";
+
+    string codec = argc > 3 ? argv[3] : "jpeg";
+    int quality = argc > 4 ? atoi(argv[4]) : 90;
+    string extension = "." + codec;
+    vector<int> codecParams;
+    if (codec == "jpeg") {
+        extension = ".jpg";
+        codecParams = {IMWRITE_JPEG_QUALITY, quality};
+    } else if (codec == "webp") {
+        codecParams = {IMWRITE_WEBP_QUALITY, quality};
+    } else if (codec != "png") {
+        fprintf(stderr, "Unknown codec %s\n", codec.c_str());
+        return 2;
+    }
+
+    vector<String> files;
+    glob(argv[2], files, false);
+    DetectionParams params;
+    Totals full, annotations;
+    size_t overlayPixels = 0, imagePixels = 0;
+    int count = 0;
+    for (const String &file : files) {
+        Mat bgr = imread(file, IMREAD_COLOR);
+        if (bgr.empty()) {
+            continue;
+        }
+        Mat rgba;
+        cvtColor(bgr, rgba, COLOR_BGR2RGBA);
+        vector<Detection> detections;
+        if (!detectFeatures(rgba, paths, params, detections, nullptr)) {
+            fprintf(stderr, "Could not load cascades from %s\n", assetsDir.c_str());
+            return 1;
+        }
+        Mat processed = rgba.clone();
+        drawDetections(processed, detections);
+        string text = formatDetections(detections);
+
+        // Hoy: original y procesada en PNG mas el texto
+        vector<uchar> buffer;
+        int64 start = getTickCount();
+        imencode(".png", rgba, buffer);
+        size_t bytes = buffer.size();
+        imencode(".png", processed, buffer);
+        bytes += buffer.size() + text.size();
+        full.ms += elapsedMs(start);
+        full.bytes += bytes;
+
+        // Anotaciones: original con el codec elegido, recorte de lo dibujado y JSON
+        start = getTickCount();
+        imencode(extension, rgba, buffer, codecParams);
+        bytes = buffer.size();
+        Mat diff, changed;
+        absdiff(rgba, processed, diff);
+        cvtColor(diff, changed, COLOR_RGBA2GRAY);
+        Rect bounds = boundingRect(changed);
+        if (bounds.area() > 0) {
+            imencode(".png", processed(bounds), buffer);
+            bytes += buffer.size();
+        }
+        // ~96 bytes de la envoltura de OverlayDelta.toJson (modo, tamano y recorte)
+        bytes += detectionsJson(detections).size() + text.size() + 96;
+        annotations.ms += elapsedMs(start);
+        annotations.bytes += bytes;
+
+        overlayPixels += bounds.area();
+        imagePixels += rgba.total();
+        count++;
+    }
+    if (count == 0) {
+        fprintf(stderr, "No images in %s\n", argv[2]);
+        return 1;
+    }
+
+    printf("%d images, annotations codec %s q%d, overlay covers %.1f%% of the pixels\n",
+           count, codec.c_str(), quality, 100.0 * overlayPixels / imagePixels);
+    printf("%-12s %14s %12s\n", "mode", "bytes/image", "encode ms");
+    printf("%-12s %14zu %12.1f\n", "two-png", full.bytes / count, full.ms / count);
+    printf("%-12s %14zu %12.1f\n", "annotations", annotations.bytes / count, annotations.ms / count);
+    printf("payload %.1fx smaller, encode %.1fx faster\n",
+           (double) full.bytes / annotations.bytes, full.ms / annotations.ms);
+    return 0;
+}
@@ -0,0 +1,339 @@
+// Benchmark por etapas de la deteccion y la clasificacion, con salida JSON para seguir
+// regresiones entre versiones.
+//
+//   pipeline_bench <assets_dir> [--images dir] [--runs N] [--max-side N]
+//                  [--json salida.json] [--baseline base.json] [--tolerance 0.2]
+//
+// Cada imagen de muestra (o una escena sintetica fija si no se pasa --images) se repite en
+// mosaicos de 1, 2 y 4 copias, para multiplicar los rostros, y se reduce a 640, 1280 y 2048
+// pixeles de lado mayor. En cada caso se mide cada etapa por separado: decode, grayscale,
+// blur_equalize, cascade, background, hog, mlp y contour. Con --baseline se comparan las
+// medianas con una ejecucion anterior y el programa termina con 1 si alguna etapa empeora
+// mas de la tolerancia (y mas de 0.5 ms, para no saltar por ruido).
+#include <opencv2/core.hpp>
+#include <opencv2/core/utility.hpp>
+#include <opencv2/imgcodecs.hpp>
+#include <opencv2/imgproc.hpp>
+#include <algorithm>
+#include <cstdio>
+#include <cstdlib>
+#include <cstring>
+#include <map>
+#include <string>
+#include <vector>
+
+#include "classifier.h"
+#include "face_detector.h"
+
+using namespace cv;
+using namespace std;
+
+namespace {
+
+const int RESOLUTIONS[] = {640, 1280, 2048};
+const int TILES[] = {1, 2, 4};
+const int MAX_SOURCES = 3;
+const double NOISE_FLOOR_MS = 0.5;
+
+const char *const STAGES[] = {"decode", "grayscale", "blur_equalize", "cascade", "background", "hog", "mlp", "contour"};
+const int STAGE_COUNT = 8;
+enum Stage { DECODE, GRAYSCALE, BLUR_EQUALIZE, CASCADE, BACKGROUND, HOG, MLP, CONTOUR };
+
+struct Stats {
+    double median = 0;
+    double p90 = 0;
+    double mean = 0;
+};
+
+struct Case {
+    string name;
+    Mat rgba;
+    vector<uchar> png;
+    int faces = 0;
+    vector<double> samples[STAGE_COUNT];
+    Stats stats[STAGE_COUNT];
+};
+
+double elapsedMs(int64 start) {
+    return (double) (getTickCount() - start) * 1000.0 / getTickFrequency();
+}
+
+Stats summarize(vector<double> values) {
+    Stats stats;
+    if (values.empty()) {
+        return stats;
+    }
+    sort(values.begin(), values.end());
+    stats.median = values[values.size() / 2];
+    stats.p90 = values[min(values.size() - 1, values.size() * 9 / 10)];
+    for (double value : values) {
+        stats.mean += value;
+    }
+    stats.mean /= values.size();
+    return stats;
+}
+
+// Escena fija para que la suite corra aunque no haya imagenes de muestra: fondo con
+// gradiente y ruido, una prenda oscura sobre blanco y ovalos claros. Las cascadas
+// normalmente no encuentran rostros aqui; sirve para medir el costo base de cada etapa.
+Mat syntheticScene() {
+    Mat rgba(768, 1024, CV_8UC4);
+    RNG rng(42);
+    for (int y = 0; y < rgba.rows; y++) {
+        Vec4b *row = rgba.ptr<Vec4b>(y);
+        for (int x = 0; x < rgba.cols; x++) {
+            uchar base = saturate_cast<uchar>(80 + (x + y) / 12 + rng.uniform(0, 24));
+            row[x] = Vec4b(base, base, saturate_cast<uchar>(base + 20), 255);
+        }
+    }
+    rectangle(rgba, Rect(620, 120, 360, 520), Scalar(255, 255, 255, 255), FILLED);
+    rectangle(rgba, Rect(700, 200, 200, 360), Scalar(40, 40, 90, 255), FILLED);
+    for (int i = 0; i < 3; i++) {
+        Point center(140 + i * 160, 260 + (i % 2) * 120);
+        ellipse(rgba, center, Size(60, 80), 0, 0, 360, Scalar(210, 170, 150, 255), FILLED);
+        circle(rgba, center + Point(-22, -20), 9, Scalar(30, 30, 30, 255), FILLED);
+        circle(rgba, center + Point(22, -20), 9, Scalar(30, 30, 30, 255), FILLED);
+        ellipse(rgba, center + Point(0, 35), Size(24, 8), 0, 0, 360, Scalar(120, 40, 40, 255), FILLED);
+    }
+    return rgba;
+}
+
+Mat tiled(const Mat &source, int copies) {
+    int cols = copies >= 2 ? 2 : 1;
+    int rows = copies >= 4 ? 2 : 1;
+    Mat out(source.rows * rows, source.cols * cols, source.type());
+    for (int r = 0; r < rows; r++) {
+        for (int c = 0; c < cols; c++) {
+            source.copyTo(out(Rect(c * source.cols, r * source.rows, source.cols, source.rows)));
+        }
+    }
+    return out;
+}
+
+Mat resizedTo(const Mat &image, int longestSide) {
+    double scale = (double) longestSide / max(image.cols, image.rows);
+    Mat out;
+    resize(image, out, Size(), scale, scale, scale < 1.0 ? INTER_AREA : INTER_LINEAR);
+    return out;
+}
+
+void runOnce(Case &c, const CascadePaths &paths, const DetectionParams &params,
+             const ClassifierSession &session, bool record) {
+    double ms[STAGE_COUNT];
+
+    int64 start = getTickCount();
+    Mat bgr = imdecode(c.png, IMREAD_COLOR);
+    Mat rgba;
+    cvtColor(bgr, rgba, COLOR_BGR2RGBA);
+    ms[DECODE] = elapsedMs(start);
+
+    start = getTickCount();
+    Mat gray;
+    cvtColor(rgba, gray, COLOR_RGBA2GRAY);
+    ms[GRAYSCALE] = elapsedMs(start);
+
+    start = getTickCount();
+    Mat work;
+    double scale = prepareGray(gray, 0, params.maxSide, work);
+    ms[BLUR_EQUALIZE] = elapsedMs(start);
+
+    start = getTickCount();
+    vector<Detection> detections;
+    if (!detectPrepared(work, scale, paths, params, detections)) {
+        fprintf(stderr, "Could not load cascades\n");
+        exit(1);
+    }
+    ms[CASCADE] = elapsedMs(start);
+
+    ClassifierTimings timings;
+    Mat fullGray;
+    int label = session.classify(rgba, &timings, &fullGray);
+    ms[BACKGROUND] = timings.preprocessMs;
+    ms[HOG] = timings.hogMs;
+    ms[MLP] = timings.mlpMs;
+
+    start = getTickCount();
+    if (label >= 0) {
+        session.annotate(rgba, label, fullGray);
+    }
+    ms[CONTOUR] = elapsedMs(start);
+
+    c.faces = (int) count_if(detections.begin(), detections.end(), [](const Detection &d) {
+        return d.type == DETECTION_FACE;
+    });
+    if (record) {
+        for (int s = 0; s < STAGE_COUNT; s++) {
+            c.samples[s].push_back(ms[s]);
+        }
+    }
+}
+
+void writeJson(const string &path, const vector<Case> &cases, int runs, const DetectionParams &params) {
+    FileStorage fs(path, FileStorage::WRITE | FileStorage::FORMAT_JSON);
+    fs << "runs" << runs << "maxSide" << params.maxSide << "threads" << getNumThreads();
+    fs << "cases" << "[";
+    for (const Case &c : cases) {
+        fs << "{" << "name" << c.name << "width" << c.rgba.cols << "height" << c.rgba.rows << "faces" << c.faces;
+        fs << "stages" << "{";
+        for (int s = 0; s < STAGE_COUNT; s++) {
+            fs << STAGES[s] << "{" << "median" << c.stats[s].median << "p90" << c.stats[s].p90
+               << "mean" << c.stats[s].mean << "}";
+        }
+        fs << "}" << "}";
+    }
+    fs << "]";
+}
+
+// Devuelve cuantas etapas empeoraron respecto a la linea base
+int compareBaseline(const string &path, const vector<Case> &cases, double tolerance) {
+    FileStorage fs(path, FileStorage::READ | FileStorage::FORMAT_JSON);
+    if (!fs.isOpened()) {
+        fprintf(stderr, "Could not read baseline %s\n", path.c_str());
+        return -1;
+    }
+    map<string, map<string, double>> baseline;
+    FileNode baseCases = fs["cases"];
+    for (FileNodeIterator it = baseCases.begin(); it != baseCases.end(); ++it) {
+        FileNode stages = (*it)["stages"];
+        for (int s = 0; s < STAGE_COUNT; s++) {
+            FileNode stage = stages[STAGES[s]];
+            if (!stage.empty()) {
+                baseline[(string) (*it)["name"]][STAGES[s]] = (double) stage["median"];
+            }
+        }
+    }
+
+    int regressions = 0;
+    for (const Case &c : cases) {
+        auto found = baseline.find(c.name);
+        if (found == baseline.end()) {
+            continue;
+        }
+        for (int s = 0; s < STAGE_COUNT; s++) {
+            auto stage = found->second.find(STAGES[s]);
+            if (stage == found->second.end()) {
+                continue;
+            }
+            double before = stage->second;
+            double now = c.stats[s].median;
+            if (now > before * (1.0 + tolerance) && now - before > NOISE_FLOOR_MS) {
+                printf("REGRESSION %s %s: %.2f ms -> %.2f ms (+%.0f%%)\n", c.name.c_str(), STAGES[s],
+                       before, now, 100.0 * (now - before) / before);
+                regressions++;
+            }
+        }
+    }
+    return regressions;
+}
+
+}
+
+int main(int argc, char **argv) {
+    if (argc < 2) {
+        fprintf(stderr, "Usage: %s <assets_dir> [--images dir] [--runs N] [--max-side N] [--json out.json]"
+                        " [--baseline base.json] [--tolerance 0.2]\n", argv[0]);
+        return 2;
+    }
+    string assetsDir = argv[1];
+    string imagesDir, jsonPath, baselinePath;
+    int runs = 10;
+    double tolerance = 0.2;
+    DetectionParams params;
+    params.maxSide = 1024;
+    for (int i = 2; i + 1 < argc; i += 2) {
+        if (!strcmp(argv[i], "--images")) imagesDir = argv[i + 1];
+        else if (!strcmp(argv[i], "--runs")) runs = max(1, atoi(argv[i + 1]));
+        else if (!strcmp(argv[i], "--max-side")) params.maxSide = atoi(argv[i + 1]);
+        else if (!strcmp(argv[i], "--json")) jsonPath = argv[i + 1];
+        else if (!strcmp(argv[i], "--baseline")) baselinePath = argv[i + 1];
+        else if (!strcmp(argv[i], "--tolerance")) tolerance = atof(argv[i + 1]);
+        else {
+            fprintf(stderr, "Unknown option %s\n", argv[i]);
+            return 2;
+        }
+    }
+
+    CascadePaths paths;
+    paths.face = assetsDir + "/haarcascade_frontalcatface.xml";
+    paths.eye = assetsDir + "/haarcascade_eye.xml";
+    paths.nose = assetsDir + "/haarcascade_mcs_nose.xml";
+    paths.mouth = assetsDir + "/haarcascade_mcs_mouth.xml";
+
+    ClassifierSession session;
+    if (!session.open(assetsDir + "/fashion_mnist_mlp.xml")) {
+        fprintf(stderr, "Could not load the model from %s\n", assetsDir.c_str());
+        return 1;
+    }
+    session.warmUp();
+
+    // Imagenes de muestra en orden de nombre, para que los casos sean los mismos en cada corrida
+    vector<pair<string, Mat>> sources;
+    if (!imagesDir.empty()) {
+        vector<String> files;
+        glob(imagesDir, files, false);
+        sort(files.begin(), files.end());
+        for (const String &file : files) {
+            if ((int) sources.size() == MAX_SOURCES) {
+                break;
+            }
+            Mat bgr = imread(file, IMREAD_COLOR);
+            if (!bgr.empty()) {
+                Mat rgba;
+                cvtColor(bgr, rgba, COLOR_BGR2RGBA);
+                sources.push_back(make_pair("img" + to_string(sources.size()), rgba));
+            }
+        }
+    }
+    if (sources.empty()) {
+        sources.push_back(make_pair(string("synthetic"), syntheticScene()));
+    }
+
+    vector<Case> cases;
+    for (const auto &source : sources) {
+        for (int copies : TILES) {
+            Mat mosaic = tiled(source.second, copies);
+            for (int side : RESOLUTIONS) {
+                Case c;
+                c.name = source.first + "_" + to_string(side) + "_x" + to_string(copies);
+                c.rgba = resizedTo(mosaic, side);
+                Mat bgr;
+                cvtColor(c.rgba, bgr, COLOR_RGBA2BGR);
+                imencode(".png", bgr, c.png);
+                cases.push_back(c);
+            }
+        }
+    }
+
+    printf("%zu cases, %d runs, maxSide %d, %d threads\n", cases.size(), runs, params.maxSide, getNumThreads());
+    printf("%-22s %5s", "case", "faces");
+    for (const char *stage : STAGES) {
+        printf(" %13s", stage);
+    }
+    printf("\n");
+    for (Case &c : cases) {
+        //calentamiento
+        runOnce(c, paths, params, session, false);
+        for (int r = 0; r < runs; r++) {
+            runOnce(c, paths, params, session, true);
+        }
+        printf("%-22s %5d", c.name.c_str(), c.faces);
+        for (int s = 0; s < STAGE_COUNT; s++) {
+            c.stats[s] = summarize(c.samples[s]);
+            printf(" %13.2f", c.stats[s].median);
+        }
+        printf("\n");
+    }
+
+    if (!jsonPath.empty()) {
+        writeJson(jsonPath, cases, runs, params);
+        printf("JSON written to %s\n", jsonPath.c_str());
+    }
+    if (!baselinePath.empty()) {
+        int regressions = compareBaseline(baselinePath, cases, tolerance);
+        if (regressions != 0) {
+            return 1;
+        }
+        printf("No regressions against %s (tolerance %.0f%%)\n", baselinePath.c_str(), tolerance * 100);
+    }
+    return 0;
+}
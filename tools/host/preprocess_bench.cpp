@@ -0,0 +1,150 @@
+// Preprocesado de predict: la cadena original (RGBA->BGR->HSV, inRange, not, morfologia,
+// copyTo, gris, resize y otra vez gris para el contorno) contra la pasada unica de
+// whiteMaskAndGray con buffers reutilizados.
+//
+//   preprocess_bench <assets_dir> [carpeta_imagenes] [runs]
+//
+// Primero valida que las dos versiones den exactamente lo mismo: la imagen de 28x28, el
+// gris completo y las etiquetas y confianzas del MLP sobre todas las imagenes (termina con
+// 1 si algo difiere). Despues mide ambas por resolucion. Sin carpeta usa escenas
+// sinteticas con fondo blanco.
+#include <opencv2/core.hpp>
+#include <opencv2/core/utility.hpp>
+#include <opencv2/imgcodecs.hpp>
+#include <opencv2/imgproc.hpp>
+#include <algorithm>
+#include <cstdio>
+#include <cstdlib>
+#include <string>
+#include <vector>
+
+#include "classifier.h"
+
+using namespace cv;
+using namespace std;
+
+namespace {
+
+double elapsedMs(int64 start) {
+    return (double) (getTickCount() - start) * 1000.0 / getTickFrequency();
+}
+
+// Prenda oscura con ruido sobre fondo blanco con ruido leve, como una foto de catalogo
+Mat syntheticGarment(int width, int height, int seed) {
+    Mat rgba(height, width, CV_8UC4);
+    RNG rng(seed);
+    for (int y = 0; y < height; y++) {
+        Vec4b *row = rgba.ptr<Vec4b>(y);
+        for (int x = 0; x < width; x++) {
+            int v = 255 - rng.uniform(0, 60);
+            row[x] = Vec4b(saturate_cast<uchar>(v - rng.uniform(0, 12)), saturate_cast<uchar>(v - rng.uniform(0, 12)),
+                           (uchar) v, 255);
+        }
+    }
+    Point center(width / 2, height / 2);
+    ellipse(rgba, center, Size(width / 4, height / 3), seed * 7 % 40, 0, 360,
+            Scalar(40 + seed * 13 % 120, 60, 90 + seed * 29 % 120, 255), FILLED);
+    rectangle(rgba, Rect(width / 5, height / 4, width / 10, height / 3), Scalar(120, 30, 30, 255), FILLED);
+    return rgba;
+}
+
+Mat resizedTo(const Mat &image, int longestSide) {
+    double scale = (double) longestSide / max(image.cols, image.rows);
+    Mat out;
+    resize(image, out, Size(), scale, scale, scale < 1.0 ? INTER_AREA : INTER_LINEAR);
+    return out;
+}
+
+}
+
+int main(int argc, char **argv) {
+    if (argc < 2) {
+        fprintf(stderr, "Usage: %s <assets_dir> [images_dir] [runs]\n", argv[0]);
+        return 2;
+    }
+    string assetsDir = argv[1];
+    int runs = argc > 3 ? max(1, atoi(argv[3])) : 20;
+
+    ClassifierSession session;
+    if (!session.open(assetsDir + "/fashion_mnist_mlp.xml")) {
+        fprintf(stderr, "Could not load the model from %s\n", assetsDir.c_str());
+        return 1;
+    }
+    printf("fused preprocessing self-check at open: %s\n", session.usesFusedPreprocess() ? "identical" : "DIFFERENT");
+
+    vector<Mat> images;
+    if (argc > 2 && argv[2][0] != '\0') {
+        vector<String> files;
+        glob(argv[2], files, false);
+        for (const String &file : files) {
+            Mat bgr = imread(file, IMREAD_COLOR);
+            if (!bgr.empty()) {
+                Mat rgba;
+                cvtColor(bgr, rgba, COLOR_BGR2RGBA);
+                images.push_back(rgba);
+            }
+        }
+    }
+    if (images.empty()) {
+        for (int seed = 1; seed <= 12; seed++) {
+            images.push_back(syntheticGarment(400 + seed * 37, 300 + seed * 53, seed));
+        }
+    }
+
+    // Validacion
+    int mismatches = 0;
+    for (size_t i = 0; i < images.size(); i++) {
+        Mat fused, reference, fusedGray, referenceGray;
+        preprocessForHOG(images[i], fused, true, &fusedGray);
+        preprocessForHOG(images[i], reference, false, &referenceGray);
+        if (norm(fused, reference, NORM_INF) != 0 || norm(fusedGray, referenceGray, NORM_INF) != 0) {
+            fprintf(stderr, "Image %zu: preprocessing differs\n", i);
+            mismatches++;
+        }
+    }
+    vector<int> fusedLabels, referenceLabels;
+    vector<float> fusedConfidences, referenceConfidences;
+    session.setFusedPreprocess(true);
+    session.classifyBatch(images, fusedLabels, fusedConfidences);
+    session.setFusedPreprocess(false);
+    session.classifyBatch(images, referenceLabels, referenceConfidences);
+    for (size_t i = 0; i < images.size(); i++) {
+        if (fusedLabels[i] != referenceLabels[i] || fusedConfidences[i] != referenceConfidences[i]) {
+            fprintf(stderr, "Image %zu: prediction %d (%.9g) != %d (%.9g)\n", i, fusedLabels[i], fusedConfidences[i],
+                    referenceLabels[i], referenceConfidences[i]);
+            mismatches++;
+        }
+    }
+    printf("validation: %zu images, %d mismatches\n", images.size(), mismatches);
+    if (mismatches != 0) {
+        return 1;
+    }
+
+    // Benchmark: preprocesado de classify mas el gris que necesita annotate
+    printf("%8s %14s %14s %8s\n", "maxSide", "original ms", "fused ms", "speedup");
+    for (int side : {640, 1280, 2048}) {
+        vector<Mat> scaled;
+        for (const Mat &image : images) {
+            scaled.push_back(resizedTo(image, side));
+        }
+        double referenceMs = 0, fusedMs = 0;
+        for (int r = 0; r <= runs; r++) {
+            for (const Mat &image : scaled) {
+                Mat small, gray;
+                int64 start = getTickCount();
+                preprocessForHOG(image, small, false, &gray);
+                double ms = elapsedMs(start);
+                start = getTickCount();
+                preprocessForHOG(image, small, true, &gray);
+                // la primera vuelta solo calienta los buffers
+                if (r > 0) {
+                    referenceMs += ms;
+                    fusedMs += elapsedMs(start);
+                }
+            }
+        }
+        int samples = runs * (int) scaled.size();
+        printf("%8d %14.2f %14.2f %7.1fx\n", side, referenceMs / samples, fusedMs / samples, referenceMs / fusedMs);
+    }
+    return 0;
+}
@@ -0,0 +1,168 @@
+// Evalua FaceTracker sobre una secuencia de cuadros frente a la deteccion completa en cada
+// cuadro.
+//
+//   track_eval <assets_dir> <carpeta_cuadros> [intervalo_completo] [maxSide] [cuadros_ocultos]
+//
+// Por cuadro imprime el modo (full/track), las llamadas a detectMultiScale de cada camino,
+// las ahorradas, cuantos rostros de la referencia se recuperan con IoU >= 0.5 y cuantos
+// rostros del seguidor no corresponden a ninguno de la referencia (stale). Al final,
+// totales, tiempo medio por cuadro y cuantas pistas distintas se crearon.
+//
+// Con cuadros_ocultos > 0 se simula una oclusion: a partir de la mitad de la secuencia esa
+// cantidad de cuadros se reemplaza por un cuadro gris uniforme (modo occl). Durante la
+// oclusion el seguidor no deberia mostrar rostros en su posicion anterior, y se reporta
+// cuantas pistas de antes de la oclusion reaparecen despues con el mismo identificador.
+#include <opencv2/core.hpp>
+#include <algorithm>
+#include <cstdio>
+#include <cstdlib>
+#include <set>
+#include <string>
+#include <vector>
+
+#include "face_detector.h"
+#include "face_tracker.h"
+#include "frame_source.h"
+
+using namespace cv;
+using namespace std;
+
+namespace {
+
+double iou(const Rect &a, const Rect &b) {
+    double inter = (a & b).area();
+    double uni = a.area() + b.area() - inter;
+    return uni > 0 ? inter / uni : 0;
+}
+
+vector<Rect> facesOf(const vector<Detection> &detections) {
+    vector<Rect> faces;
+    for (const Detection &detection : detections) {
+        if (detection.type == DETECTION_FACE) {
+            faces.push_back(detection.rect);
+        }
+    }
+    return faces;
+}
+
+int matched(const vector<Rect> &expected, const vector<Rect> &actual) {
+    int count = 0;
+    vector<bool> used(actual.size(), false);
+    for (const Rect &face : expected) {
+        for (size_t i = 0; i < actual.size(); i++) {
+            if (!used[i] && iou(face, actual[i]) >= 0.5) {
+                used[i] = true;
+                count++;
+                break;
+            }
+        }
+    }
+    return count;
+}
+
+double elapsedMs(int64 start) {
+    return (double) (getTickCount() - start) * 1000.0 / getTickFrequency();
+}
+
+}
+
+int main(int argc, char **argv) {
+    if (argc < 3) {
+        fprintf(stderr, "Usage: %s <assets_dir> <frames_dir> [fullDetectionInterval] [maxSide] [occludedFrames]\n",
+                argv[0]);
+        return 2;
+    }
+    string assetsDir = argv[1];
+    CascadePaths paths;
+    paths.face = assetsDir + "/haarcascade_frontalcatface.xml";
+    paths.eye = assetsDir + "/haarcascade_eye.xml";
+    paths.nose = assetsDir + "/haarcascade_mcs_nose.xml";
+    paths.mouth = assetsDir + "/haarcascade_mcs_mouth.xml";
+
+    TrackerParams trackerParams;
+    trackerParams.fullDetectionInterval = argc > 3 ? atoi(argv[3]) : 10;
+    DetectionParams params;
+    params.maxSide = argc > 4 ? atoi(argv[4]) : 480;
+    int occluded = argc > 5 ? max(0, atoi(argv[5])) : 0;
+
+    vector<Frame> frames = loadFrames(argv[2]);
+    if (frames.empty()) {
+        fprintf(stderr, "No frames in %s\n", argv[2]);
+        return 1;
+    }
+
+    FaceTracker tracker(paths, params, trackerParams);
+    vector<Detection> reference, tracked;
+    // Primera pasada fuera de la medicion: carga las cascadas
+    if (!detectFeaturesGray(frames[0].gray, frames[0].rotation, paths, params, reference)) {
+        fprintf(stderr, "Could not load cascades from %s\n", assetsDir.c_str());
+        return 1;
+    }
+
+    // Cuadros [occludedFrom, occludedTo) tapados por completo
+    size_t occludedFrom = frames.size() / 2;
+    size_t occludedTo = min(frames.size(), occludedFrom + occluded);
+    for (size_t i = occludedFrom; i < occludedTo; i++) {
+        frames[i].gray.setTo(Scalar(128));
+    }
+
+    printf("%6s %6s %11s %11s %6s %9s %6s\n", "frame", "mode", "full_calls", "track_calls", "saved", "recall",
+           "stale");
+    long fullCalls = 0, trackCalls = 0, expectedFaces = 0, recoveredFaces = 0, staleFaces = 0;
+    double fullMs = 0, trackMs = 0;
+    set<int> trackIds, beforeOcclusion, afterOcclusion;
+    for (size_t i = 0; i < frames.size(); i++) {
+        bool hidden = i >= occludedFrom && i < occludedTo;
+        int64 start = getTickCount();
+        detectFeaturesGray(frames[i].gray, frames[i].rotation, paths, params, reference);
+        fullMs += elapsedMs(start);
+        vector<Rect> expected = facesOf(reference);
+        int frameFullCalls = 1 + featureCascadeCount(params) * (int) expected.size();
+
+        TrackerFrameStats stats;
+        start = getTickCount();
+        tracker.update(frames[i].gray, frames[i].rotation, tracked, nullptr, &stats);
+        trackMs += elapsedMs(start);
+        for (const Detection &detection : tracked) {
+            trackIds.insert(detection.track);
+            if (occluded > 0 && detection.type == DETECTION_FACE) {
+                // Pistas del ultimo cuadro antes de la oclusion y de cualquiera posterior
+                if (i + 1 == occludedFrom) {
+                    beforeOcclusion.insert(detection.track);
+                } else if (i >= occludedTo) {
+                    afterOcclusion.insert(detection.track);
+                }
+            }
+        }
+
+        vector<Rect> actual = facesOf(tracked);
+        int recovered = matched(expected, actual);
+        int stale = (int) actual.size() - recovered;
+        const char *mode = hidden ? "occl" : stats.fullDetection ? "full" : "track";
+        printf("%6zu %6s %11d %11d %6d %4d/%-4d %6d\n", i, mode, frameFullCalls, stats.cascadeInvocations,
+               frameFullCalls - stats.cascadeInvocations, recovered, (int) expected.size(), stale);
+        staleFaces += stale;
+
+        fullCalls += frameFullCalls;
+        trackCalls += stats.cascadeInvocations;
+        expectedFaces += expected.size();
+        recoveredFaces += recovered;
+    }
+
+    size_t count = frames.size();
+    printf("\nfull detection every %d frames, maxSide %d\n", trackerParams.fullDetectionInterval, params.maxSide);
+    printf("cascade calls/frame: full %.2f, tracked %.2f, saved %.2f\n", (double) fullCalls / count,
+           (double) trackCalls / count, (double) (fullCalls - trackCalls) / count);
+    printf("ms/frame: full %.2f, tracked %.2f\n", fullMs / count, trackMs / count);
+    printf("reference faces recovered: %ld/%ld, stale faces: %ld, distinct tracks: %zu\n", recoveredFaces,
+           expectedFaces, staleFaces, trackIds.size());
+    if (occluded > 0) {
+        int kept = 0;
+        for (int id : beforeOcclusion) {
+            kept += afterOcclusion.count(id) > 0;
+        }
+        printf("occlusion frames %zu-%zu: tracks kept %d/%zu (maxMisses %d)\n", occludedFrom, occludedTo - 1,
+               kept, beforeOcclusion.size(), trackerParams.maxMisses);
+    }
+    return 0;
+}